@@ -32,6 +32,7 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
+import spark.routematch.PathParams;
 import spark.routematch.RouteMatch;
 import spark.utils.IOUtils;
 import spark.utils.SparkUtils;
@@ -49,8 +50,8 @@ public class Request {
 
     private static final String USER_AGENT = "user-agent";
 
-    private Map<String, String> params;
-    private List<String> splat;
+    private String requestUri;
+    private PathParams pathParams;
     private QueryParamsMap queryMap;
 
     private HttpServletRequest servletRequest;
@@ -61,6 +62,9 @@ public class Request {
 
 
     /* Lazy loaded stuff */
+    private String[] paramValues = null;
+    private Map<String, String> params = null;
+    private List<String> splat = null;
     private String body = null;
     private byte[] bodyAsBytes = null;
 
@@ -114,17 +118,17 @@ public class Request {
         this.servletRequest = request;
 
         // Empty
-        params = new HashMap<>();
-        splat = new ArrayList<>();
+        pathParams = PathParams.EMPTY;
     }
 
     protected void changeMatch(RouteMatch match) {
-        List<String> requestList = SparkUtils.convertRouteToList(match.getRequestURI());
-        List<String> matchedList = SparkUtils.convertRouteToList(match.getMatchUri());
-
+        // Param values are only decoded when they are read
         this.matchedPath = match.getMatchUri();
-        params = getParams(requestList, matchedList);
-        splat = getSplat(requestList, matchedList);
+        this.requestUri = match.getRequestURI();
+        this.pathParams = match.getPathParams();
+        this.paramValues = null;
+        this.params = null;
+        this.splat = null;
     }
 
     /**
@@ -133,7 +137,14 @@ public class Request {
      * @return a map containing all route params
      */
     public Map<String, String> params() {
-        return Collections.unmodifiableMap(params);
+        if (params == null) {
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < pathParams.size(); i++) {
+                map.put(pathParams.name(i), paramValue(i));
+            }
+            params = Collections.unmodifiableMap(map);
+        }
+        return params;
     }
 
     /**
@@ -148,17 +159,45 @@ public class Request {
             return null;
         }
 
-        if (param.startsWith(":")) {
-            return params.get(param.toLowerCase()); // NOSONAR
-        } else {
-            return params.get(":" + param.toLowerCase()); // NOSONAR
-        }
+        int index = pathParams.indexOf(param);
+        return index >= 0 ? paramValue(index) : null;
+    }
+
+    /**
+     * Returns the value of the provided route pattern parameter as a long, parsed straight from the request URI.
+     * Example: parameter 'id' from the following pattern: (get '/users/:id')
+     *
+     * @param param the param
+     * @return the param value
+     * @throws NumberFormatException if the param is not found or is not a long
+     */
+    public long paramAsLong(String param) {
+        return parseParam(param, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the value of the provided route pattern parameter as an int, parsed straight from the request URI.
+     * Example: parameter 'page' from the following pattern: (get '/books/:page')
+     *
+     * @param param the param
+     * @return the param value
+     * @throws NumberFormatException if the param is not found or is not an int
+     */
+    public int paramAsInt(String param) {
+        return (int) parseParam(param, Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
 
     /**
      * @return an array containing the splat (wildcard) parameters
      */
     public String[] splat() {
+        if (splat == null) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < pathParams.splatSize(); i++) {
+                values.add(splatValue(i));
+            }
+            splat = Collections.unmodifiableList(values);
+        }
         return splat.toArray(new String[0]);
     }
 
@@ -516,58 +555,85 @@ public class Request {
         return servletRequest.getProtocol();
     }
 
-    private static Map<String, String> getParams(List<String> request, List<String> matched) {
-        Map<String, String> params = new HashMap<>();
-
-        for (int i = 0; (i < request.size()) && (i < matched.size()); i++) {
-            String matchedPart = matched.get(i);
-
-            if (SparkUtils.isParam(matchedPart)) {
-
-                String decodedReq = UrlDecode.path(request.get(i));
-
-                LOG.debug("matchedPart: "
-                                  + matchedPart
-                                  + " = "
-                                  + decodedReq);
-
-                params.put(matchedPart.toLowerCase(), decodedReq);
-            }
+    private String paramValue(int index) {
+        if (paramValues == null) {
+            paramValues = new String[pathParams.size()];
         }
-        return Collections.unmodifiableMap(params);
+        String value = paramValues[index];
+        if (value == null) {
+            int start = pathParams.start(index);
+            value = UrlDecode.path(requestUri, start, pathParams.end(index) - start);
+            paramValues[index] = value;
+        }
+        return value;
     }
 
-    private static List<String> getSplat(List<String> request, List<String> matched) {
-        int nbrOfRequestParts = request.size();
-        int nbrOfMatchedParts = matched.size();
-
-        boolean sameLength = (nbrOfRequestParts == nbrOfMatchedParts);
+    private String splatValue(int index) {
+        int start = pathParams.splatStart(index);
+        int end = pathParams.splatEnd(index);
+        String value = requestUri.substring(start, end);
 
-        List<String> splat = new ArrayList<>();
-
-        for (int i = 0; (i < nbrOfRequestParts) && (i < nbrOfMatchedParts); i++) {
+        if (pathParams.splatSegments(index) > 1 && value.contains("//")) {
+            // Empty segments are dropped from the splat
+            value = String.join("/", SparkUtils.convertRouteToList(value));
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value;
+        }
+    }
 
-            String matchedPart = matched.get(i);
+    private long parseParam(String param, long min, long max) {
+        int index = param != null ? pathParams.indexOf(param) : -1;
+        if (index < 0) {
+            throw new NumberFormatException("No route param '" + param + "'");
+        }
 
-            if (SparkUtils.isSplat(matchedPart)) {
+        int start = pathParams.start(index);
+        int end = pathParams.end(index);
+        for (int i = start; i < end; i++) {
+            char c = requestUri.charAt(i);
+            if (c == '%' || c == ';') {
+                // Encoded, let the decoder deal with it
+                long value = Long.parseLong(paramValue(index));
+                if (value < min || value > max) {
+                    throw new NumberFormatException("Out of range: " + paramValue(index));
+                }
+                return value;
+            }
+        }
 
-                StringBuilder splatParam = new StringBuilder(request.get(i));
+        // Same algorithm as Long.parseLong, accumulating negatively to be able to reach min
+        int i = start;
+        boolean negative = false;
+        if (i < end && (requestUri.charAt(i) == '-' || requestUri.charAt(i) == '+')) {
+            negative = requestUri.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw numberFormatException(start, end);
+        }
 
-                if (!sameLength && (i == (nbrOfMatchedParts - 1))) {
-                    for (int j = i + 1; j < nbrOfRequestParts; j++) {
-                        splatParam.append("/");
-                        splatParam.append(request.get(j));
-                    }
-                }
-                try {
-                    String decodedSplat = URLDecoder.decode(splatParam.toString(), "UTF-8");
-                    splat.add(decodedSplat);
-                } catch (UnsupportedEncodingException e) {
-                }
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(requestUri.charAt(i), 10);
+            if (digit < 0 || result < multmin) {
+                throw numberFormatException(start, end);
             }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(start, end);
+            }
+            result -= digit;
         }
+        return negative ? result : -result;
+    }
 
-        return Collections.unmodifiableList(splat);
+    private NumberFormatException numberFormatException(int start, int end) {
+        return new NumberFormatException("For input string: \"" + requestUri.substring(start, end) + "\"");
     }
 
     /**
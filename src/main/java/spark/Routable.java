@@ -17,6 +17,8 @@
 package spark;
 
 import spark.route.HttpMethod;
+import spark.sse.SseHandler;
+import spark.sse.SseRoute;
 import spark.utils.SparkUtils;
 
 /**
@@ -824,6 +826,17 @@ abstract class Routable {
         return RouteImpl.create(path, route);
     }
 
+    /**
+     * Maps a Server-Sent Events endpoint for HTTP GET requests. The response is kept open, and events are sent
+     * through the emitter given to the handler, until the emitter is closed or the client disconnects.
+     *
+     * @param path    the path
+     * @param handler the handler of connecting clients
+     */
+    public void sse(String path, SseHandler handler) {
+        addRoute(HttpMethod.get, RouteImpl.create(path, new SseRoute(handler)));
+    }
+
     /**
      * Sets default response transformer
      *
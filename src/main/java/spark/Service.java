@@ -28,15 +28,20 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spark.admission.AdmissionControl;
 import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.EmbeddedServers;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerClassWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerInstanceWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
+import spark.metrics.RouteMetrics;
+import spark.ratelimit.RateLimiter;
 import spark.route.HttpMethod;
 import spark.route.Routes;
 import spark.route.ServletRoutes;
 import spark.routematch.RouteMatch;
+import spark.serialization.SerializerChain;
+import spark.serialization.TypedSerializer;
 import spark.ssl.SslStores;
 import spark.staticfiles.MimeType;
 import spark.staticfiles.StaticFilesConfiguration;
@@ -71,11 +76,15 @@ public final class Service extends Routable {
     private int maxThreads = -1;
     private int minThreads = -1;
     private int threadIdleTimeoutMillis = -1;
+    private boolean virtualThreads;
+    private AdmissionControl admissionControl;
+    private final RouteMetrics routeMetrics = new RouteMetrics();
     private Optional<Long> webSocketIdleTimeoutMillis = Optional.empty();
 
     EmbeddedServer server;
     private final Deque<String> pathDeque = new ArrayDeque<>();
     Routes routes;
+    private Routes swappedRoutes;
 
     private CountDownLatch initLatch = new CountDownLatch(1);
     private CountDownLatch stopLatch = new CountDownLatch(0);
@@ -87,6 +96,7 @@ public final class Service extends Routable {
 
     private final StaticFilesConfiguration staticFilesConfiguration;
     private final ExceptionMapper exceptionMapper = new ExceptionMapper();
+    private final SerializerChain serializerChain;
 
     // default exception handler during initialization phase
     private Consumer<Exception> initExceptionHandler = (e) -> {
@@ -112,8 +122,10 @@ public final class Service extends Routable {
 
         if (isRunningFromServlet()) {
             staticFilesConfiguration = StaticFilesConfiguration.servletInstance;
+            serializerChain = SerializerChain.getServletInstance();
         } else {
             staticFilesConfiguration = StaticFilesConfiguration.create();
+            serializerChain = new SerializerChain();
         }
     }
 
@@ -327,6 +339,67 @@ public final class Service extends Routable {
         return this;
     }
 
+    /**
+     * Handles requests on virtual threads, if the runtime supports them (Java 21 or later). A request blocking on
+     * IO, e.g. a JDBC call, then does not hold a platform thread, and the number of concurrent requests is not
+     * limited by the thread pool, so {@link #threadPool(int)} is ignored. Falls back to the thread pool otherwise.
+     * <p>
+     * Blocking calls should be bounded by other means instead, e.g. the size of the connection pool. Blocking inside
+     * synchronized blocks pins the carrier thread on Java versions before 24, and per-thread caches in ThreadLocals
+     * are no longer reused between requests.
+     *
+     * @return the object with virtual threads configured
+     */
+    public synchronized Service virtualThreads() {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        this.virtualThreads = true;
+
+        return this;
+    }
+
+    /**
+     * Limits the number of requests the embedded server handles concurrently. Requests beyond the limit are rejected
+     * right away instead of queuing for a thread, see {@link AdmissionControl}.
+     *
+     * @param admissionControl the admission control, e.g. {@code AdmissionControl.fixed(200)}.
+     * @return the object with admission control configured
+     */
+    public synchronized Service admissionControl(AdmissionControl admissionControl) {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        this.admissionControl = admissionControl;
+
+        return this;
+    }
+
+    /**
+     * Enables the metrics of the routes and registers them as MBeans. The embedded server then records the count,
+     * errors, status classes, response sizes and latencies of requests by route, e.g. GET /users/:id. Requests are
+     * not recorded when running in a servlet container.
+     *
+     * @return the metrics
+     */
+    public RouteMetrics metrics() {
+        routeMetrics.enable();
+        return routeMetrics;
+    }
+
+    /**
+     * Enables the metrics of the routes and maps a GET route returning them in the Prometheus text format.
+     *
+     * @param path the path of the route, e.g. "/metrics"
+     */
+    public void metricsRoute(String path) {
+        metrics();
+        get(path, (request, response) -> {
+            response.type(RouteMetrics.PROMETHEUS_CONTENT_TYPE);
+            return routeMetrics.toPrometheusText();
+        });
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -375,7 +448,7 @@ public final class Service extends Routable {
      * @return <tt>true</tt> if this is a matching route which has been previously routed
      * @throws IllegalArgumentException if <tt>path</tt> is null or blank
      */
-    public boolean unmap(String path) {
+    public synchronized boolean unmap(String path) {
         return routes.remove(path);
     }
 
@@ -390,7 +463,7 @@ public final class Service extends Routable {
      * @throws IllegalArgumentException if <tt>path</tt> is null or blank or if <tt>httpMethod</tt> is null, blank,
      *                                  or an invalid HTTP method
      */
-    public boolean unmap(String path, String httpMethod) {
+    public synchronized boolean unmap(String path, String httpMethod) {
         return routes.remove(path, httpMethod);
     }
 
@@ -542,6 +615,8 @@ public final class Service extends Routable {
 
             routes.clear();
             exceptionMapper.clear();
+            serializerChain.clear();
+            routeMetrics.unregisterMBeans();
             staticFilesConfiguration.clear();
             initialized = false;
             stopLatch.countDown();
@@ -570,6 +645,59 @@ public final class Service extends Routable {
         pathDeque.removeLast();
     }
 
+    /**
+     * Limits the rate of requests to all paths of the current path() group, or to all paths outside of a group.
+     * Requests over the limit are rejected with 429 before they reach any filter or route, for example:
+     * path("/api", () -> {
+     * ....rateLimit(RateLimiter.create(100, Duration.ofMinutes(1)).keyedBy(RateLimiter.header("X-API-Key")));
+     * ....get("/emails", EmailApi::list);
+     * });
+     *
+     * @param rateLimiter the rate limiter, shared by the paths it is attached to
+     */
+    public void rateLimit(RateLimiter rateLimiter) {
+        rateLimit("/*", rateLimiter);
+    }
+
+    /**
+     * Limits the rate of requests to a path, relative to the current path() group. Requests over the limit are
+     * rejected with 429 before they reach any filter or route.
+     *
+     * @param path        the path, segments starting with ':' match any segment and a trailing '*' matches any
+     *                    remaining segments
+     * @param rateLimiter the rate limiter, shared by the paths it is attached to
+     */
+    public synchronized void rateLimit(String path, RateLimiter rateLimiter) {
+        if (rateLimiter == null) {
+            throw new IllegalArgumentException("rateLimiter must not be null");
+        }
+        init();
+        targetRoutes().add(getPaths() + path, rateLimiter);
+    }
+
+    /**
+     * Atomically replaces all routes and filters with the ones declared in the routeGroup, e.g. to reload the routes
+     * of a running server. The new routes are collected on the side and swapped in at once; requests being matched
+     * meanwhile keep seeing the old routes and never a partially built set. Routes mapped by other threads wait until
+     * the swap is done and are then added to the swapped in routes.
+     * swapRoutes(() -> {
+     * ....get("/hello", (q, a) -> "Hello again");
+     * ....path("/api", ApiRoutes::register);
+     * });
+     *
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public synchronized void swapRoutes(RouteGroup routeGroup) {
+        init();
+        swappedRoutes = Routes.createDeferred();
+        try {
+            routeGroup.addRoutes();
+            routes.replaceWith(swappedRoutes);
+        } finally {
+            swappedRoutes = null;
+        }
+    }
+
     public String getPaths() {
         return String.join("", pathDeque);
     }
@@ -581,29 +709,34 @@ public final class Service extends Routable {
     }
 
     @Override
-    public void addRoute(HttpMethod httpMethod, RouteImpl route) {
+    public synchronized void addRoute(HttpMethod httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod, route.withPrefix(getPaths()));
+        targetRoutes().add(httpMethod, route.withPrefix(getPaths()));
     }
 
     @Override
-    public void addFilter(HttpMethod httpMethod, FilterImpl filter) {
+    public synchronized void addFilter(HttpMethod httpMethod, FilterImpl filter) {
         init();
-        routes.add(httpMethod, filter.withPrefix(getPaths()));
+        targetRoutes().add(httpMethod, filter.withPrefix(getPaths()));
     }
 
     @Override
     @Deprecated
-    public void addRoute(String httpMethod, RouteImpl route) {
+    public synchronized void addRoute(String httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod + " '" + getPaths() + route.getPath() + "'", route.getAcceptType(), route);
+        targetRoutes().add(httpMethod + " '" + getPaths() + route.getPath() + "'", route.getAcceptType(), route);
     }
 
     @Override
     @Deprecated
-    public void addFilter(String httpMethod, FilterImpl filter) {
+    public synchronized void addFilter(String httpMethod, FilterImpl filter) {
         init();
-        routes.add(httpMethod + " '" + getPaths() + filter.getPath() + "'", filter.getAcceptType(), filter);
+        targetRoutes().add(httpMethod + " '" + getPaths() + filter.getPath() + "'", filter.getAcceptType(), filter);
+    }
+
+    // Callers hold the lock of this service, which swapRoutes holds while swappedRoutes is set
+    private Routes targetRoutes() {
+        return swappedRoutes != null ? swappedRoutes : routes;
     }
 
     public synchronized void init() {
@@ -623,11 +756,15 @@ public final class Service extends Routable {
                     server = EmbeddedServers.create(embeddedServerIdentifier,
                                                     routes,
                                                     exceptionMapper,
+                                                    serializerChain,
                                                     staticFilesConfiguration,
                                                     hasMultipleHandlers());
 
                     server.configureWebSockets(webSocketHandlers, webSocketIdleTimeoutMillis);
                     server.trustForwardHeaders(trustForwardHeaders);
+                    server.virtualThreads(virtualThreads);
+                    server.admissionControl(admissionControl);
+                    server.routeMetrics(routeMetrics);
 
                     port = server.ignite(
                             ipAddress,
@@ -692,6 +829,23 @@ public final class Service extends Routable {
         exceptionMapper.map(exceptionClass, wrapper);
     }
 
+    //////////////////////////////////////////////////
+    // SERIALIZERS
+    //////////////////////////////////////////////////
+
+    /**
+     * Maps a serializer that writes route results of the given type, and its subtypes, to the response output stream.
+     * Results of the most specific mapped type are written by its serializer, results of no mapped type as the
+     * UTF-8 encoded result of toString. A serializer mapped before to the same type is replaced.
+     *
+     * @param type       the type of the results
+     * @param serializer the serializer
+     * @param <T>        the type of the results
+     */
+    public synchronized <T> void serializer(Class<T> type, TypedSerializer<? super T> serializer) {
+        serializerChain.register(type, serializer);
+    }
+
     //////////////////////////////////////////////////
     // HALT methods
     //////////////////////////////////////////////////
@@ -838,6 +992,49 @@ public final class Service extends Routable {
             staticFilesConfiguration.setExpireTimeSeconds(seconds);
         }
 
+        /**
+         * Caches static files in memory so that frequently requested files are served without reading them again.
+         * The least recently served files are evicted when the cache is full. Files on the file system are read
+         * again when they change.
+         *
+         * @param maxBytes the maximum number of bytes to cache, files larger than a quarter of it are not cached.
+         *                 0 disables the cache.
+         */
+        public void cacheSize(long maxBytes) {
+            staticFilesConfiguration.setCacheSize(maxBytes);
+        }
+
+        /**
+         * Sets how many bytes of gzip compressed copies of static files are held in memory, 32 MB by default. Files
+         * without a precompressed .gz sibling and up to a quarter of this size are compressed once; larger files are
+         * compressed while they are sent, on every request, so ship .gz siblings for those.
+         *
+         * @param maxBytes the maximum number of compressed bytes to hold. 0 compresses every file while it is sent.
+         */
+        public void compressedCacheSize(long maxBytes) {
+            staticFilesConfiguration.setCompressedCacheSize(maxBytes);
+        }
+
+        /**
+         * Serves static files also under fingerprinted paths holding a hash of their content, e.g. /app.js as
+         * /app.3f9a1c2b.js. Responses for fingerprinted paths may be cached by clients for a year, so pages should
+         * refer to files by the path returned by {@link #fingerprintedPath(String)}. Only files in locations that
+         * can be listed are fingerprinted, which excludes the class path root.
+         */
+        public void fingerprint() {
+            staticFilesConfiguration.enableFingerprinting();
+        }
+
+        /**
+         * Gets the path referring to the current version of a static file.
+         *
+         * @param path the path of the file, e.g. /app.js
+         * @return the fingerprinted path, e.g. /app.3f9a1c2b.js, or the path itself if the file is not fingerprinted
+         */
+        public String fingerprintedPath(String path) {
+            return staticFilesConfiguration.getFingerprintedPath(path);
+        }
+
         /**
          * Maps an extension to a mime-type. This will overwrite any previous mappings.
          *
@@ -16,7 +16,12 @@
  */
 package spark;
 
+import spark.admission.AdmissionControl;
+import spark.metrics.RouteMetrics;
+import spark.ratelimit.RateLimiter;
 import spark.routematch.RouteMatch;
+import spark.serialization.TypedSerializer;
+import spark.sse.SseHandler;
 
 import java.util.List;
 import java.util.function.Consumer;
@@ -87,6 +92,41 @@ public class Spark {
         getInstance().path(path, routeGroup);
     }
 
+    /**
+     * Limits the rate of requests to all paths of the current path() group, or to all paths outside of a group.
+     * See {@link Service#rateLimit(RateLimiter)}.
+     *
+     * @param rateLimiter the rate limiter
+     */
+    public static void rateLimit(RateLimiter rateLimiter) {
+        getInstance().rateLimit(rateLimiter);
+    }
+
+    /**
+     * Limits the rate of requests to a path, relative to the current path() group.
+     * See {@link Service#rateLimit(String, RateLimiter)}.
+     *
+     * @param path        the path
+     * @param rateLimiter the rate limiter
+     */
+    public static void rateLimit(String path, RateLimiter rateLimiter) {
+        getInstance().rateLimit(path, rateLimiter);
+    }
+
+    /**
+     * Atomically replaces all routes and filters with the ones declared in the routeGroup, e.g. to reload the routes
+     * of a running server. Requests being matched meanwhile keep seeing the old routes and never a partially built set.
+     * swapRoutes(() -> {
+     * ....get("/hello", (q, a) -> "Hello again");
+     * ....path("/api", ApiRoutes::register);
+     * });
+     *
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public static void swapRoutes(RouteGroup routeGroup) {
+        getInstance().swapRoutes(routeGroup);
+    }
+
     /**
      * Map the route for HTTP GET requests
      *
@@ -867,6 +907,17 @@ public class Spark {
         getInstance().patch(path, acceptType, route, transformer);
     }
 
+    /**
+     * Maps a Server-Sent Events endpoint for HTTP GET requests. The response is kept open, and events are sent
+     * through the emitter given to the handler, until the emitter is closed or the client disconnects.
+     *
+     * @param path    the path
+     * @param handler the handler of connecting clients
+     */
+    public static void sse(String path, SseHandler handler) {
+        getInstance().sse(path, handler);
+    }
+
     /**
      * Unmaps a particular route from the collection of those that have been previously routed.
      * Search for previously established routes using the given path and unmaps any matches that are found.
@@ -912,6 +963,23 @@ public class Spark {
         getInstance().exception(exceptionClass, handler);
     }
 
+    //////////////////////////////////////////////////
+    // SERIALIZERS
+    //////////////////////////////////////////////////
+
+    /**
+     * Maps a serializer that writes route results of the given type, and its subtypes, to the response output stream.
+     * Results of the most specific mapped type are written by its serializer, results of no mapped type as the
+     * UTF-8 encoded result of toString. A serializer mapped before to the same type is replaced.
+     *
+     * @param type       the type of the results
+     * @param serializer the serializer
+     * @param <T>        the type of the results
+     */
+    public static <T> void serializer(Class<T> type, TypedSerializer<? super T> serializer) {
+        getInstance().serializer(type, serializer);
+    }
+
     //////////////////////////////////////////////////
     // HALT methods
     //////////////////////////////////////////////////
@@ -1174,6 +1242,43 @@ public class Spark {
         getInstance().threadPool(maxThreads, minThreads, idleTimeoutMillis);
     }
 
+    /**
+     * Handles requests on virtual threads, if the runtime supports them (Java 21 or later).
+     * See {@link Service#virtualThreads()}.
+     */
+    public static void virtualThreads() {
+        getInstance().virtualThreads();
+    }
+
+    /**
+     * Limits the number of requests the embedded server handles concurrently.
+     * See {@link Service#admissionControl(AdmissionControl)}.
+     *
+     * @param admissionControl the admission control, e.g. {@code AdmissionControl.fixed(200)}.
+     */
+    public static void admissionControl(AdmissionControl admissionControl) {
+        getInstance().admissionControl(admissionControl);
+    }
+
+    /**
+     * Enables the metrics of the routes and registers them as MBeans.
+     * See {@link Service#metrics()}.
+     *
+     * @return the metrics
+     */
+    public static RouteMetrics metrics() {
+        return getInstance().metrics();
+    }
+
+    /**
+     * Enables the metrics of the routes and maps a GET route returning them in the Prometheus text format.
+     *
+     * @param path the path of the route, e.g. "/metrics"
+     */
+    public static void metricsRoute(String path) {
+        getInstance().metricsRoute(path);
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response body that is written as it is produced, e.g. a large export, instead of being held in memory. Return it
+ * from a route:
+ * <pre>
+ * get("/export.csv", (request, response) -&gt; {
+ *     response.type("text/csv");
+ *     return (StreamingBody) output -&gt; {
+ *         Writer writer = output.writer();
+ *         for (Row row : rows()) {
+ *             writer.write(row.toCsv());
+ *         }
+ *     };
+ * });
+ * </pre>
+ * The body is written after the after and after-after filters have run, so they can still change the status and
+ * headers. Bytes are sent to the client when the response buffer is full or the output is flushed.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+    /**
+     * Writes the body.
+     *
+     * @param output the output of the response
+     * @throws Exception implementation can choose to throw exception, the response may already be committed then
+     */
+    void writeTo(Output output) throws Exception;
+
+    /**
+     * The output of a response that a {@link StreamingBody} is written to. The stream, writer and channel write to
+     * the same response, and do not need to be closed.
+     */
+    interface Output {
+
+        /**
+         * @return the output stream of the response, may compress the written bytes
+         * @throws IOException in the case of IO error.
+         */
+        OutputStream outputStream() throws IOException;
+
+        /**
+         * @return a writer encoding to UTF-8 into the output stream. It buffers characters, switching from it to the
+         * output stream or channel flushes it.
+         * @throws IOException in the case of IO error.
+         */
+        Writer writer() throws IOException;
+
+        /**
+         * @return a channel writing into the output stream. Buffers are not copied when possible, e.g. direct buffers
+         * when the response is not compressed.
+         * @throws IOException in the case of IO error.
+         */
+        WritableByteChannel channel() throws IOException;
+
+        /**
+         * Sends everything written so far to the client, committing the response.
+         *
+         * @throws IOException in the case of IO error, e.g. when the client has disconnected.
+         */
+        void flush() throws IOException;
+    }
+
+}
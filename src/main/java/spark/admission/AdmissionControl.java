@@ -0,0 +1,277 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Limits the number of requests handled concurrently by the embedded server. Requests beyond the limit are rejected
+ * right away, with 503 and a Retry-After header by default, instead of waiting for a thread and slowing down every
+ * other request.
+ * <p>
+ * The limit is either fixed or adapts to the latency of the requests, see {@link #adaptive(int, int, int)}. Requests
+ * can be put in priority classes: critical ones, e.g. health checks, are never rejected, low priority ones are
+ * rejected first.
+ * <p>
+ * A request counts against the limit until its response is complete, also when it is completed asynchronously.
+ * Streams marked with {@link #STREAM_ATTRIBUTE} count only until the route has returned.
+ */
+public final class AdmissionControl {
+
+    /**
+     * The priority class of a request.
+     */
+    public enum Priority {
+        /**
+         * Never rejected and not counted against the limit.
+         */
+        CRITICAL,
+        /**
+         * Rejected when the limit is reached.
+         */
+        NORMAL,
+        /**
+         * Rejected when three quarters of the limit are reached, leaving room for requests of normal priority.
+         */
+        LOW
+    }
+
+    public static final int DEFAULT_REJECTION_STATUS = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    /**
+     * Request attribute marking a response that stays open for as long as the client listens, e.g. Server-Sent
+     * Events. Its permit is released once the route has returned instead of when the response is complete.
+     */
+    public static final String STREAM_ATTRIBUTE = "spark.admission.stream";
+
+    private static final Permit CRITICAL_PERMIT = new Permit(null);
+
+    private final Limit limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Function<HttpServletRequest, Priority> priorities = request -> Priority.NORMAL;
+    private volatile int rejectionStatus = DEFAULT_REJECTION_STATUS;
+    private volatile int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+
+    private AdmissionControl(Limit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @param limit the number of requests handled concurrently
+     * @return admission control with a fixed limit
+     */
+    public static AdmissionControl fixed(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return new AdmissionControl(new FixedLimit(limit));
+    }
+
+    /**
+     * Creates admission control with a limit that follows the latency of the requests. The limit is lowered while
+     * the latency rises above its long term average, i.e. requests are queuing somewhere, and raised otherwise.
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit     the lowest limit
+     * @param maxLimit     the highest limit
+     * @return admission control with an adaptive limit
+     */
+    public static AdmissionControl adaptive(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+        }
+        return new AdmissionControl(new GradientLimit(initialLimit, minLimit, maxLimit));
+    }
+
+    /**
+     * Sets the priority class of requests, e.g. to never reject health checks.
+     *
+     * @param priorities maps a request to its priority class
+     * @return this instance
+     */
+    public AdmissionControl withPriorities(Function<HttpServletRequest, Priority> priorities) {
+        if (priorities == null) {
+            throw new IllegalArgumentException("priorities must not be null");
+        }
+        this.priorities = priorities;
+        return this;
+    }
+
+    /**
+     * Sets the response to rejected requests.
+     *
+     * @param status            the status code
+     * @param retryAfterSeconds the value of the Retry-After header, 0 to leave it out
+     * @return this instance
+     */
+    public AdmissionControl withRejection(int status, int retryAfterSeconds) {
+        if (retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("retryAfterSeconds must not be negative");
+        }
+        this.rejectionStatus = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    /**
+     * @return the current limit
+     */
+    public int limit() {
+        return limit.get();
+    }
+
+    /**
+     * @return the number of requests currently counted against the limit
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of requests rejected so far
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Admits a request if the limit for its priority class is not reached. The returned permit must be released
+     * once the response is complete.
+     *
+     * @param request the request
+     * @return the permit or null if the request is rejected
+     */
+    public Permit tryAcquire(HttpServletRequest request) {
+        Priority priority = priorities.apply(request);
+        if (priority == Priority.CRITICAL) {
+            return CRITICAL_PERMIT;
+        }
+
+        int current = limit.get();
+        int max = priority == Priority.LOW ? Math.max(1, current * 3 / 4) : current;
+
+        int count;
+        do {
+            count = inFlight.get();
+            if (count >= max) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(count, count + 1));
+
+        return new Permit(this);
+    }
+
+    /**
+     * Writes the response to a rejected request.
+     *
+     * @param response the response
+     */
+    public void reject(HttpServletResponse response) {
+        response.setStatus(rejectionStatus);
+        if (retryAfterSeconds > 0) {
+            response.setHeader("Retry-After", Integer.toString(retryAfterSeconds));
+        }
+    }
+
+    private void release(long startNanos, boolean sample) {
+        int count = inFlight.getAndDecrement();
+        if (sample) {
+            limit.onSample(System.nanoTime() - startNanos, count);
+        }
+    }
+
+    /**
+     * Counts an admitted request against the limit until released.
+     */
+    public static final class Permit {
+
+        private final AdmissionControl admissionControl;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdmissionControl admissionControl) {
+            this.admissionControl = admissionControl;
+            this.startNanos = admissionControl != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Releases the permit, only the first call has an effect.
+         */
+        public void release() {
+            if (admissionControl != null && released.compareAndSet(false, true)) {
+                admissionControl.release(startNanos, true);
+            }
+        }
+
+        /**
+         * Releases the permit without reporting how long the request took to the limit, for requests that stay open
+         * for as long as the client listens, e.g. Server-Sent Events. Only the first release has an effect.
+         */
+        public void releaseWithoutSample() {
+            if (admissionControl != null && released.compareAndSet(false, true)) {
+                admissionControl.release(startNanos, false);
+            }
+        }
+    }
+
+    /**
+     * The number of requests handled concurrently.
+     */
+    interface Limit {
+
+        int get();
+
+        /**
+         * Called when a request is complete.
+         *
+         * @param latencyNanos how long the request took
+         * @param inFlight     the number of requests in flight, including this one
+         */
+        void onSample(long latencyNanos, int inFlight);
+    }
+
+    private static final class FixedLimit implements Limit {
+
+        private final int limit;
+
+        private FixedLimit(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int get() {
+            return limit;
+        }
+
+        @Override
+        public void onSample(long latencyNanos, int inFlight) {
+            // Fixed
+        }
+    }
+
+}
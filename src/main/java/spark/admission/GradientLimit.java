@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.admission;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A limit adjusted by the gradient between the long term average latency and the latency of a request. While
+ * requests take as long as usual the limit grows by about its square root, as latency rises it shrinks
+ * proportionally, down to half per sample. Changes are smoothed over several samples.
+ */
+final class GradientLimit implements AdmissionControl.Limit {
+
+    // Number of samples the long term latency is averaged over
+    private static final double LONG_TERM_SAMPLES = 600;
+
+    // Latency increase tolerated before the limit is lowered
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    // Samples are skipped while another thread updates the limit
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limit;
+    private double longTermNanos;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public int get() {
+        return (int) limit;
+    }
+
+    @Override
+    public void onSample(long latencyNanos, int inFlight) {
+        if (latencyNanos <= 0 || !lock.tryLock()) {
+            return;
+        }
+        try {
+            if (longTermNanos == 0) {
+                longTermNanos = latencyNanos;
+            } else {
+                longTermNanos += (latencyNanos - longTermNanos) / LONG_TERM_SAMPLES;
+            }
+            // Recover faster from a period of high latency, otherwise it hides the next one
+            if (longTermNanos > 2 * latencyNanos) {
+                longTermNanos *= 0.95;
+            }
+
+            double current = limit;
+            // Requests do not use the limit, so their latency says nothing about it
+            if (inFlight < current / 2) {
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermNanos / latencyNanos));
+            double next = current * gradient + Math.sqrt(current);
+            next = current * (1 - SMOOTHING) + next * SMOOTHING;
+
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -19,7 +19,9 @@ package spark.embeddedserver;
 import java.util.Map;
 import java.util.Optional;
 
+import spark.admission.AdmissionControl;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
+import spark.metrics.RouteMetrics;
 import spark.ssl.SslStores;
 
 /**
@@ -55,6 +57,35 @@ public interface EmbeddedServer {
 
     }
 
+    /**
+     * Must be called before ignite()
+     *
+     * @param virtualThreads true if requests should be handled on virtual threads when the runtime supports them.
+     */
+    default void virtualThreads(boolean virtualThreads) {
+
+    }
+
+    /**
+     * Must be called before ignite()
+     *
+     * @param admissionControl the admission control requests must pass, null to admit all requests.
+     */
+    default void admissionControl(AdmissionControl admissionControl) {
+        if (admissionControl != null) {
+            NotSupportedException.raise(getClass().getSimpleName(), "Admission control");
+        }
+    }
+
+    /**
+     * Must be called before ignite()
+     *
+     * @param routeMetrics the metrics to record requests to once enabled.
+     */
+    default void routeMetrics(RouteMetrics routeMetrics) {
+
+    }
+
     /**
      * Configures the web sockets for the embedded server.
      *
@@ -18,6 +18,7 @@ package spark.embeddedserver;
 
 import spark.ExceptionMapper;
 import spark.route.Routes;
+import spark.serialization.SerializerChain;
 import spark.staticfiles.StaticFilesConfiguration;
 
 /**
@@ -39,4 +40,23 @@ public interface EmbeddedServerFactory {
      * @return the created instance
      */
     EmbeddedServer create(Routes routeMatcher, StaticFilesConfiguration staticFilesConfiguration, ExceptionMapper exceptionMapper, boolean hasMultipleHandler);
+
+    /**
+     * Creates an embedded server instance that serializes route results with the given serializer chain. Factories
+     * that do not override this use the default serializers.
+     *
+     * @param routeMatcher The route matcher
+     * @param staticFilesConfiguration The static files configuration object
+     * @param exceptionMapper The exception mapper
+     * @param serializerChain The serializer chain
+     * @param hasMultipleHandler true if other handlers exist
+     * @return the created instance
+     */
+    default EmbeddedServer create(Routes routeMatcher,
+                                  StaticFilesConfiguration staticFilesConfiguration,
+                                  ExceptionMapper exceptionMapper,
+                                  SerializerChain serializerChain,
+                                  boolean hasMultipleHandler) {
+        return create(routeMatcher, staticFilesConfiguration, exceptionMapper, hasMultipleHandler);
+    }
 }
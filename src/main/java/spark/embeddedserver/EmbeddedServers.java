@@ -22,6 +22,7 @@ import java.util.Map;
 import spark.ExceptionMapper;
 import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 import spark.route.Routes;
+import spark.serialization.SerializerChain;
 import spark.staticfiles.StaticFilesConfiguration;
 
 /**
@@ -74,10 +75,40 @@ public class EmbeddedServers {
                                         StaticFilesConfiguration staticFilesConfiguration,
                                         boolean multipleHandlers) {
 
+        return create(identifier,
+                      routeMatcher,
+                      exceptionMapper,
+                      new SerializerChain(),
+                      staticFilesConfiguration,
+                      multipleHandlers);
+    }
+
+    /**
+     * Creates an embedded server of type corresponding to the provided identifier.
+     *
+     * @param identifier               the identifier
+     * @param routeMatcher             the route matcher
+     * @param exceptionMapper          the exception mapper
+     * @param serializerChain          the serializer chain
+     * @param staticFilesConfiguration the static files configuration object
+     * @param multipleHandlers         true if other handlers exist
+     * @return the created EmbeddedServer object
+     */
+    public static EmbeddedServer create(Object identifier,
+                                        Routes routeMatcher,
+                                        ExceptionMapper exceptionMapper,
+                                        SerializerChain serializerChain,
+                                        StaticFilesConfiguration staticFilesConfiguration,
+                                        boolean multipleHandlers) {
+
         EmbeddedServerFactory factory = factories.get(identifier);
 
         if (factory != null) {
-            return factory.create(routeMatcher, staticFilesConfiguration, exceptionMapper, multipleHandlers);
+            return factory.create(routeMatcher,
+                                  staticFilesConfiguration,
+                                  exceptionMapper,
+                                  serializerChain,
+                                  multipleHandlers);
         } else {
             throw new RuntimeException("No embedded server matching the identifier");
         }
@@ -23,6 +23,7 @@ import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.EmbeddedServerFactory;
 import spark.http.matching.MatcherFilter;
 import spark.route.Routes;
+import spark.serialization.SerializerChain;
 import spark.staticfiles.StaticFilesConfiguration;
 
 /**
@@ -32,6 +33,7 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
     private final JettyServerFactory serverFactory;
     private ThreadPool threadPool;
     private boolean httpOnly = true;
+    private long asyncTimeoutMillis = MatcherFilter.DEFAULT_ASYNC_TIMEOUT_MILLIS;
 
     public EmbeddedJettyFactory() {
         this.serverFactory = new JettyServer();
@@ -46,8 +48,23 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
                                  StaticFilesConfiguration staticFilesConfiguration,
                                  ExceptionMapper exceptionMapper,
                                  boolean hasMultipleHandler) {
-        MatcherFilter matcherFilter = new MatcherFilter(routeMatcher, staticFilesConfiguration, exceptionMapper, false, hasMultipleHandler);
+        return create(routeMatcher, staticFilesConfiguration, exceptionMapper, new SerializerChain(), hasMultipleHandler);
+    }
+
+    @Override
+    public EmbeddedServer create(Routes routeMatcher,
+                                 StaticFilesConfiguration staticFilesConfiguration,
+                                 ExceptionMapper exceptionMapper,
+                                 SerializerChain serializerChain,
+                                 boolean hasMultipleHandler) {
+        MatcherFilter matcherFilter = new MatcherFilter(routeMatcher,
+                                                        staticFilesConfiguration,
+                                                        exceptionMapper,
+                                                        serializerChain,
+                                                        false,
+                                                        hasMultipleHandler);
         matcherFilter.init(null);
+        matcherFilter.setAsyncTimeoutMillis(asyncTimeoutMillis);
 
         JettyHandler handler = new JettyHandler(matcherFilter);
         handler.getSessionCookieConfig().setHttpOnly(httpOnly);
@@ -70,4 +87,16 @@ public class EmbeddedJettyFactory implements EmbeddedServerFactory {
         this.httpOnly = httpOnly;
         return this;
     }
+
+    /**
+     * Sets the time routes returning a completion stage have to complete it, see
+     * {@link MatcherFilter#setAsyncTimeoutMillis(long)}.
+     *
+     * @param asyncTimeoutMillis the timeout in milliseconds, 0 for no timeout
+     * @return Builder pattern - returns this instance
+     */
+    public EmbeddedJettyFactory withAsyncTimeout(long asyncTimeoutMillis) {
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+        return this;
+    }
 }
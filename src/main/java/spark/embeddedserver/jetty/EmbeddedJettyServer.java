@@ -31,9 +31,12 @@ import org.eclipse.jetty.util.thread.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spark.admission.AdmissionControl;
 import spark.embeddedserver.EmbeddedServer;
+import spark.embeddedserver.NotSupportedException;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketServletContextHandlerFactory;
+import spark.metrics.RouteMetrics;
 import spark.ssl.SslStores;
 
 /**
@@ -57,6 +60,9 @@ public class EmbeddedJettyServer implements EmbeddedServer {
 
     private ThreadPool threadPool = null;
     private boolean trustForwardHeaders = true; // true by default
+    private boolean virtualThreads;
+    private AdmissionControl admissionControl;
+    private RouteMetrics routeMetrics;
 
     public EmbeddedJettyServer(JettyServerFactory serverFactory, Handler handler) {
         this.serverFactory = serverFactory;
@@ -76,6 +82,24 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         this.trustForwardHeaders = trust;
     }
 
+    @Override
+    public void virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public void admissionControl(AdmissionControl admissionControl) {
+        if (admissionControl != null && !(handler instanceof JettyHandler)) {
+            NotSupportedException.raise(handler.getClass().getSimpleName(), "Admission control");
+        }
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void routeMetrics(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -99,7 +123,13 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         }
 
         // Create instance of jetty server with either default or supplied queued thread pool
-        if(threadPool == null) {
+        if (threadPool == null && virtualThreads && VirtualThreadPool.isSupported()) {
+            server = serverFactory.create(new VirtualThreadPool());
+        } else if(threadPool == null) {
+            if (virtualThreads) {
+                logger.warn("Virtual threads are not supported by Java {}, using a thread pool",
+                            System.getProperty("java.version"));
+            }
             server = serverFactory.create(maxThreads, minThreads, threadIdleTimeoutMillis);
         } else {
             server = serverFactory.create(threadPool);
@@ -125,6 +155,11 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         ServletContextHandler webSocketServletContextHandler =
             WebSocketServletContextHandlerFactory.create(webSocketHandlers, webSocketIdleTimeoutMillis);
 
+        if (handler instanceof JettyHandler) {
+            ((JettyHandler) handler).setAdmissionControl(admissionControl);
+            ((JettyHandler) handler).setRouteMetrics(routeMetrics);
+        }
+
         // Handle web socket routes
         if (webSocketServletContextHandler == null) {
             server.setHandler(handler);
@@ -24,6 +24,7 @@ import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 
+import spark.routematch.RouteMatch;
 import spark.utils.IOUtils;
 
 /**
@@ -33,6 +34,8 @@ import spark.utils.IOUtils;
 public class HttpRequestWrapper extends HttpServletRequestWrapper {
     private byte[] cachedBytes;
     private boolean notConsumed = false;
+    private RouteMatch routeMatch;
+    private boolean failed;
 
     public HttpRequestWrapper(HttpServletRequest request) {
         super(request);
@@ -46,6 +49,28 @@ public class HttpRequestWrapper extends HttpServletRequestWrapper {
         this.notConsumed = notConsumed;
     }
 
+    /**
+     * @return the route the request was matched to, null if none
+     */
+    public RouteMatch routeMatch() {
+        return routeMatch;
+    }
+
+    public void routeMatch(RouteMatch routeMatch) {
+        this.routeMatch = routeMatch;
+    }
+
+    /**
+     * @return true if handling the request threw an exception
+     */
+    public boolean failed() {
+        return failed;
+    }
+
+    public void failed(boolean failed) {
+        this.failed = failed;
+    }
+
     @Override
     public ServletInputStream getInputStream() throws IOException {
         HttpServletRequest request = (HttpServletRequest) super.getRequest();
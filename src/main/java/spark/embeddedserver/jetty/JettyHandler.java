@@ -17,15 +17,23 @@
 package spark.embeddedserver.jetty;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.Filter;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.server.session.SessionHandler;
 
+import spark.admission.AdmissionControl;
+import spark.metrics.RouteMetrics;
+import spark.routematch.RouteMatch;
+
 /**
  * Simple Jetty Handler
  *
@@ -35,20 +43,143 @@ public class JettyHandler extends SessionHandler {
 
     private final Filter filter;
 
+    private volatile AdmissionControl admissionControl;
+    private volatile RouteMetrics routeMetrics;
+
     public JettyHandler(Filter filter) {
         this.filter = filter;
     }
 
+    /**
+     * Sets the admission control requests must pass before they are handled.
+     *
+     * @param admissionControl the admission control or null to admit all requests
+     */
+    public void setAdmissionControl(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * Sets the metrics requests are recorded to, once enabled.
+     *
+     * @param routeMetrics the metrics or null to record none
+     */
+    public void setRouteMetrics(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
     @Override
     public void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
             throws IOException, ServletException {
+        RouteMetrics routeMetrics = this.routeMetrics;
+        boolean recording = routeMetrics != null && routeMetrics.isEnabled();
+        long startNanos = recording ? System.nanoTime() : 0;
+
+        AdmissionControl.Permit permit = null;
+
+        AdmissionControl admissionControl = this.admissionControl;
+        if (admissionControl != null) {
+            permit = admissionControl.tryAcquire(request);
+            if (permit == null) {
+                admissionControl.reject(response);
+                baseRequest.setHandled(true);
+                if (recording) {
+                    record(routeMetrics, baseRequest, null, false, startNanos);
+                }
+                return;
+            }
+        }
+
         HttpRequestWrapper wrapper = new HttpRequestWrapper(request);
-        filter.doFilter(wrapper, response, null);
+        boolean completed = false;
+        try {
+            filter.doFilter(wrapper, response, null);
+
+            if (wrapper.notConsumed()) {
+                baseRequest.setHandled(false);
+            } else {
+                baseRequest.setHandled(true);
+            }
+            completed = true;
+        } finally {
+            if (permit != null && isStreaming(request)) {
+                // Streams hold no worker thread once started, and their duration says nothing about the latency
+                permit.releaseWithoutSample();
+            }
+            if (permit != null || recording) {
+                AdmissionControl.Permit acquired = permit;
+                boolean failed = !completed;
 
-        if (wrapper.notConsumed()) {
-            baseRequest.setHandled(false);
-        } else {
-            baseRequest.setHandled(true);
+                onCompletion(request, () -> {
+                    if (acquired != null) {
+                        acquired.release();
+                    }
+                    if (recording && !wrapper.notConsumed()) {
+                        record(routeMetrics, baseRequest, wrapper, failed, startNanos);
+                    }
+                });
+            }
         }
     }
+
+    private static void record(RouteMetrics routeMetrics,
+                               Request baseRequest,
+                               HttpRequestWrapper wrapper,
+                               boolean failed,
+                               long startNanos) {
+        RouteMatch routeMatch = wrapper != null ? wrapper.routeMatch() : null;
+        Response response = baseRequest.getResponse();
+
+        routeMetrics.record(baseRequest.getMethod(),
+                            routeMatch != null ? routeMatch.getMatchUri() : RouteMetrics.UNMATCHED,
+                            response.getStatus(),
+                            response.getHttpOutput().getWritten(),
+                            failed || (wrapper != null && wrapper.failed()),
+                            System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return true if the response continues asynchronously as a stream, e.g. Server-Sent Events
+     */
+    private static boolean isStreaming(HttpServletRequest request) {
+        return request.isAsyncStarted() && request.getAttribute(AdmissionControl.STREAM_ATTRIBUTE) != null;
+    }
+
+    /**
+     * Runs the task now, or when the response is complete if the request continues asynchronously.
+     */
+    private static void onCompletion(HttpServletRequest request, Runnable task) {
+        if (!request.isAsyncStarted()) {
+            task.run();
+            return;
+        }
+
+        // Runs once, errors are followed by completion
+        AtomicBoolean done = new AtomicBoolean();
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                if (done.compareAndSet(false, true)) {
+                    task.run();
+                }
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                // Completed afterwards
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (done.compareAndSet(false, true)) {
+                    task.run();
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                // Not restarted
+            }
+        });
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread pool running every task on a new virtual thread, so a blocking request does not hold a platform thread
+ * and the number of concurrent requests is not bounded by a maximum number of threads.
+ * <p>
+ * Virtual threads are created through reflection, so Spark still runs on Java 11. They are available from Java 21,
+ * use {@link #isSupported()} to check the runtime.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+    private static final String THREAD_NAME_PREFIX = "spark-virtual-";
+
+    // How long running tasks may take to finish when stopping, before they are interrupted
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private static final ThreadFactory THREAD_FACTORY = newThreadFactory();
+
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads.
+     */
+    public VirtualThreadPool() {
+        if (THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by Java "
+                                                            + System.getProperty("java.version"));
+        }
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return THREAD_FACTORY != null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (isStopping() || isStopped()) {
+            throw new RejectedExecutionException("Thread pool is " + getState());
+        }
+
+        Thread thread = THREAD_FACTORY.newThread(() -> {
+            try {
+                task.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * @return the number of running tasks
+     */
+    @Override
+    public int getThreads() {
+        return threads.size();
+    }
+
+    /**
+     * @return always 0, threads are not kept for later tasks
+     */
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        stopped = new CountDownLatch(1);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        for (Thread thread : threads) {
+            LOG.debug("Interrupting {} on stop", thread);
+            thread.interrupt();
+        }
+
+        super.doStop();
+        stopped.countDown();
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        try {
+            // Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = name.invoke(builder, THREAD_NAME_PREFIX, 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before Java 21, or a preview feature that is not enabled
+            LOG.debug("Virtual threads are not supported: {}", e.toString());
+            return null;
+        }
+    }
+
+}
@@ -19,9 +19,6 @@ package spark.http.matching;
 import java.util.List;
 
 import spark.FilterImpl;
-import spark.Request;
-import spark.RequestResponseFactory;
-import spark.route.HttpMethod;
 import spark.routematch.RouteMatch;
 
 /**
@@ -33,25 +30,16 @@ final class AfterAfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.afterafter,
-                                                                               context.uri(),
-                                                                               context.acceptType());
+        List<RouteMatch> matchSet = context.plan().afterAfterFilters();
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
 
             if (filterTarget instanceof FilterImpl) {
-
-                if (context.requestWrapper().getDelegate() == null) {
-                    Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
-                    context.requestWrapper().setDelegate(request);
-                } else {
-                    context.requestWrapper().changeMatch(filterMatch);
-                }
-
-                context.responseWrapper().setDelegate(context.response());
+                context.target(filterMatch);
 
                 FilterImpl filter = (FilterImpl) filterTarget;
+
                 filter.handle(context.requestWrapper(), context.responseWrapper());
 
                 String bodyAfterFilter = context.response().body();
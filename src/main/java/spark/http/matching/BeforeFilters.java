@@ -19,9 +19,6 @@ package spark.http.matching;
 import java.util.List;
 
 import spark.FilterImpl;
-import spark.Request;
-import spark.RequestResponseFactory;
-import spark.route.HttpMethod;
 import spark.routematch.RouteMatch;
 
 /**
@@ -32,19 +29,16 @@ final class BeforeFilters {
     static void execute(RouteContext context) throws Exception {
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.before, context.uri(), context.acceptType());
+        List<RouteMatch> matchSet = context.plan().beforeFilters();
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
 
             if (filterTarget instanceof FilterImpl) {
-                Request request = RequestResponseFactory.create(filterMatch, context.httpRequest());
+                context.target(filterMatch);
 
                 FilterImpl filter = (FilterImpl) filterTarget;
 
-                context.requestWrapper().setDelegate(request);
-                context.responseWrapper().setDelegate(context.response());
-
                 filter.handle(context.requestWrapper(), context.responseWrapper());
 
                 String bodyAfterFilter = context.response().body();
@@ -68,11 +68,16 @@ final class Body {
             // Check if GZIP is wanted/accepted and in that case handle that
             OutputStream responseStream = GzipUtils.checkAndWrap(httpRequest, httpResponse, true);
 
+            boolean async = httpRequest.isAsyncStarted();
+
             // Serialize the body to output stream
             serializerChain.process(responseStream, content);
 
-            responseStream.flush(); // needed for GZIP stream. Not sure where the HTTP response actually gets cleaned up
-            responseStream.close(); // needed for GZIP
+            // Left open if the body went on to be written asynchronously, e.g. Server-Sent Events
+            if (async || !httpRequest.isAsyncStarted()) {
+                responseStream.flush(); // needed for GZIP stream. Not sure where the HTTP response actually gets cleaned up
+                responseStream.close(); // needed for GZIP
+            }
         }
     }
 
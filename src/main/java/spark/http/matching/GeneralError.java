@@ -23,6 +23,7 @@ import spark.CustomErrorPages;
 import spark.ExceptionHandlerImpl;
 import spark.ExceptionMapper;
 import spark.RequestResponseFactory;
+import spark.embeddedserver.jetty.HttpRequestWrapper;
 
 /**
  * Modifies the HTTP response and body based on the provided exception and request/response wrappers.
@@ -42,6 +43,10 @@ final class GeneralError {
                        ExceptionMapper exceptionMapper,
                        Exception e) {
 
+        if (httpRequest instanceof HttpRequestWrapper) {
+            ((HttpRequestWrapper) httpRequest).failed(true);
+        }
+
         ExceptionHandlerImpl handler = exceptionMapper.getHandler(e);
 
         if (handler != null) {
@@ -17,7 +17,17 @@
 package spark.http.matching;
 
 import java.io.IOException;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -31,7 +41,6 @@ import spark.CustomErrorPages;
 import spark.ExceptionMapper;
 import spark.HaltException;
 import spark.RequestResponseFactory;
-import spark.Response;
 import spark.embeddedserver.jetty.HttpRequestWrapper;
 import spark.route.HttpMethod;
 import spark.serialization.SerializerChain;
@@ -49,6 +58,8 @@ public class MatcherFilter implements Filter {
     private static final String ACCEPT_TYPE_REQUEST_MIME_HEADER = "Accept";
     private static final String HTTP_METHOD_OVERRIDE_HEADER = "X-HTTP-Method-Override";
 
+    public static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 30_000;
+
     private final StaticFilesConfiguration staticFiles;
 
     private final spark.route.Routes routeMatcher;
@@ -57,11 +68,31 @@ public class MatcherFilter implements Filter {
 
     private final boolean hasOtherHandlers;
 
+    private volatile long asyncTimeoutMillis = DEFAULT_ASYNC_TIMEOUT_MILLIS;
+
+    /**
+     * Constructor
+     *
+     * @param routeMatcher      The route matcher
+     * @param staticFiles       The static files configuration object
+     * @param externalContainer Tells the filter that Spark is run in an external web container.
+     *                          If true, chain.doFilter will be invoked if request is not consumed by Spark.
+     * @param hasOtherHandlers  If true, do nothing if request is not consumed by Spark in order to let others handlers process the request.
+     */
+    public MatcherFilter(spark.route.Routes routeMatcher,
+                         StaticFilesConfiguration staticFiles,
+                         ExceptionMapper exceptionMapper,
+                         boolean externalContainer,
+                         boolean hasOtherHandlers) {
+        this(routeMatcher, staticFiles, exceptionMapper, new SerializerChain(), externalContainer, hasOtherHandlers);
+    }
+
     /**
      * Constructor
      *
      * @param routeMatcher      The route matcher
      * @param staticFiles       The static files configuration object
+     * @param serializerChain   The serializers of the route results
      * @param externalContainer Tells the filter that Spark is run in an external web container.
      *                          If true, chain.doFilter will be invoked if request is not consumed by Spark.
      * @param hasOtherHandlers  If true, do nothing if request is not consumed by Spark in order to let others handlers process the request.
@@ -69,14 +100,15 @@ public class MatcherFilter implements Filter {
     public MatcherFilter(spark.route.Routes routeMatcher,
                          StaticFilesConfiguration staticFiles,
                          ExceptionMapper exceptionMapper,
+                         SerializerChain serializerChain,
                          boolean externalContainer,
                          boolean hasOtherHandlers) {
 
         this.routeMatcher = routeMatcher;
         this.staticFiles = staticFiles;
         this.exceptionMapper = exceptionMapper;
+        this.serializerChain = serializerChain;
         this.hasOtherHandlers = hasOtherHandlers;
-        this.serializerChain = new SerializerChain();
     }
 
     @Override
@@ -103,52 +135,95 @@ public class MatcherFilter implements Filter {
 
         String httpMethodStr = method.toLowerCase();
         String uri = httpRequest.getRequestURI();
-        String acceptType = httpRequest.getHeader(ACCEPT_TYPE_REQUEST_MIME_HEADER);
-
-        Body body = Body.create();
 
-        RequestWrapper requestWrapper = RequestWrapper.create();
-        ResponseWrapper responseWrapper = ResponseWrapper.create();
+        // Rejected requests are not matched, filters and routes do not see them
+        if (!routeMatcher.rateLimits().tryAcquire(uri, httpRequest, httpResponse)) {
+            return;
+        }
 
-        Response response = RequestResponseFactory.create(httpResponse);
+        String acceptType = httpRequest.getHeader(ACCEPT_TYPE_REQUEST_MIME_HEADER);
 
         HttpMethod httpMethod = HttpMethod.get(httpMethodStr);
 
-        RouteContext context = RouteContext.create()
-                .withMatcher(routeMatcher)
-                .withHttpRequest(httpRequest)
-                .withUri(uri)
-                .withAcceptType(acceptType)
-                .withBody(body)
-                .withRequestWrapper(requestWrapper)
-                .withResponseWrapper(responseWrapper)
-                .withResponse(response)
-                .withHttpMethod(httpMethod);
+        RouteContext context = RouteContext.create(routeMatcher.plan(httpMethod, uri, acceptType),
+                                                   httpRequest,
+                                                   httpResponse,
+                                                   uri,
+                                                   acceptType,
+                                                   httpMethod);
+
+        if (servletRequest instanceof HttpRequestWrapper) {
+            ((HttpRequestWrapper) servletRequest).routeMatch(context.plan().route());
+        }
+
+        Body body = context.body();
+        RequestWrapper requestWrapper = context.requestWrapper();
+        ResponseWrapper responseWrapper = context.responseWrapper();
 
         try {
-            try {
 
-                BeforeFilters.execute(context);
-                Routes.execute(context);
-                AfterFilters.execute(context);
+            BeforeFilters.execute(context);
+            Routes.execute(context);
 
-            } catch (HaltException halt) {
+            if (context.pending() != null) {
+                if (httpRequest.isAsyncSupported()) {
+                    suspend(context, httpRequest, httpResponse);
+                    return;
+                }
+                // Without async support, e.g. in some servlet containers, the thread waits for the route
+                Routes.complete(context, await(context.pending()));
+            }
 
-                Halt.modify(httpResponse, body, halt);
+            AfterFilters.execute(context);
 
-            } catch (Exception generalException) {
+        } catch (HaltException halt) {
 
-                GeneralError.modify(
-                        httpRequest,
-                        httpResponse,
-                        body,
-                        requestWrapper,
-                        responseWrapper,
-                        exceptionMapper,
-                        generalException);
+            Halt.modify(httpResponse, body, halt);
 
-            }
+        } catch (Exception generalException) {
+
+            GeneralError.modify(
+                    httpRequest,
+                    httpResponse,
+                    body,
+                    requestWrapper,
+                    responseWrapper,
+                    exceptionMapper,
+                    generalException);
+
+        }
+
+        finish(context, httpRequest, httpResponse, servletRequest, chain);
+    }
+
+    /**
+     * Sets the time routes returning a completion stage have to complete it. A {@link TimeoutException} is handled
+     * for routes taking longer, it can be mapped to a handler like any other exception.
+     *
+     * @param asyncTimeoutMillis the timeout in milliseconds, 0 for no timeout
+     */
+    public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+        if (asyncTimeoutMillis < 0) {
+            throw new IllegalArgumentException("asyncTimeoutMillis must not be negative");
+        }
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+    }
+
+    /**
+     * Handles the body once the filters and route have run: maps a missing body to 404, runs the after-after
+     * filters and writes the body.
+     */
+    private void finish(RouteContext context,
+                        HttpServletRequest httpRequest,
+                        HttpServletResponse httpResponse,
+                        ServletRequest servletRequest,
+                        FilterChain chain) throws IOException, ServletException {
 
+        Body body = context.body();
+        RequestWrapper requestWrapper = context.requestWrapper();
+        ResponseWrapper responseWrapper = context.responseWrapper();
+
+        try {
             // If redirected and content is null set to empty string to not throw NotConsumedException
             if (body.notSet() && responseWrapper.isRedirected()) {
                 body.set("");
@@ -163,7 +238,7 @@ public class MatcherFilter implements Filter {
 
             if (body.notSet()) {
                 LOG.info("The requested route [{}] has not been mapped in Spark for {}: [{}]",
-                         uri, ACCEPT_TYPE_REQUEST_MIME_HEADER, acceptType);
+                         context.uri(), ACCEPT_TYPE_REQUEST_MIME_HEADER, context.acceptType());
                 httpResponse.setStatus(HttpServletResponse.SC_NOT_FOUND);
 
                 if (CustomErrorPages.existsFor(404)) {
@@ -196,6 +271,122 @@ public class MatcherFilter implements Filter {
         }
     }
 
+    /**
+     * Releases the thread until the completion stage returned by the route has completed, then resumes with the
+     * after filters on a thread of the container.
+     */
+    private void suspend(RouteContext context, HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        AsyncContext asyncContext = httpRequest.startAsync();
+        asyncContext.setTimeout(asyncTimeoutMillis);
+
+        // Resumed once, when completed or timed out
+        AtomicBoolean resumed = new AtomicBoolean();
+
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (resumed.compareAndSet(false, true)) {
+                    resume(context, httpRequest, httpResponse, asyncContext, null, new TimeoutException(
+                            "Route did not complete within " + asyncTimeoutMillis + " ms"));
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (resumed.compareAndSet(false, true)) {
+                    LOG.debug("Async request failed", event.getThrowable());
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                // Nothing to do
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                // Not restarted
+            }
+        });
+
+        context.pending().whenComplete((result, failure) -> {
+            if (resumed.compareAndSet(false, true)) {
+                asyncContext.start(() -> resume(context, httpRequest, httpResponse, asyncContext, result, failure));
+            }
+        });
+    }
+
+    private void resume(RouteContext context,
+                        HttpServletRequest httpRequest,
+                        HttpServletResponse httpResponse,
+                        AsyncContext asyncContext,
+                        Object result,
+                        Throwable failure) {
+
+        Body body = context.body();
+
+        try {
+            try {
+                if (failure != null) {
+                    throw exceptionOf(failure);
+                }
+
+                Routes.complete(context, result);
+                AfterFilters.execute(context);
+
+            } catch (HaltException halt) {
+
+                Halt.modify(httpResponse, body, halt);
+
+            } catch (Exception generalException) {
+
+                GeneralError.modify(
+                        httpRequest,
+                        httpResponse,
+                        body,
+                        context.requestWrapper(),
+                        context.responseWrapper(),
+                        exceptionMapper,
+                        generalException);
+
+            }
+
+            // Other handlers can no longer take over the request
+            finish(context, httpRequest, httpResponse, null, null);
+        } catch (IOException | ServletException | RuntimeException e) {
+            LOG.warn("Error when writing response of async route [{}]", context.uri(), e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    private Object await(CompletionStage<?> stage) throws Exception {
+        CompletableFuture<?> future = stage.toCompletableFuture();
+        try {
+            if (asyncTimeoutMillis > 0) {
+                return future.get(asyncTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return future.get();
+        } catch (ExecutionException e) {
+            throw exceptionOf(e);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("Route did not complete within " + asyncTimeoutMillis + " ms");
+        }
+    }
+
+    /**
+     * @return the exception a completion stage failed with, unwrapped
+     */
+    private static Exception exceptionOf(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : new CompletionException(cause);
+    }
+
     private String getHttpMethodFrom(HttpServletRequest httpRequest) {
         String method = httpRequest.getHeader(HTTP_METHOD_OVERRIDE_HEADER);
 
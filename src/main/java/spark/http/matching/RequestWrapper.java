@@ -125,6 +125,16 @@ final class RequestWrapper extends Request {
         return delegate.params(param);
     }
 
+    @Override
+    public long paramAsLong(String param) {
+        return delegate.paramAsLong(param);
+    }
+
+    @Override
+    public int paramAsInt(String param) {
+        return delegate.paramAsInt(param);
+    }
+
     @Override
     public String[] splat() {
         return delegate.splat();
@@ -16,85 +16,82 @@
  */
 package spark.http.matching;
 
+import java.util.concurrent.CompletionStage;
+
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import spark.RequestResponseFactory;
 import spark.Response;
-import spark.route.*;
-import spark.route.Routes;
+import spark.route.HttpMethod;
+import spark.routematch.DispatchPlan;
+import spark.routematch.RouteMatch;
 
 /**
- * Holds the parameters needed in the Before filters, Routes and After filters execution.
+ * Holds the parameters needed in the Before filters, Routes and After filters execution. There is one context per
+ * request and it owns everything the request needs along the way: the body, the request and response wrappers and
+ * the one {@link spark.Request} that is re-targeted to each matching filter and route.
  */
 final class RouteContext {
 
     /**
      * Creates a RouteContext
      */
-    static RouteContext create() {
-        return new RouteContext();
-    }
-
-    private Routes routeMatcher;
-    private HttpServletRequest httpRequest;
-    private String uri;
-    private String acceptType;
-    private Body body;
-    private RequestWrapper requestWrapper;
-    private ResponseWrapper responseWrapper;
-    private Response response;
-    private HttpMethod httpMethod;
-
-    private RouteContext() {
-        // hidden
-    }
-
-    public Routes routeMatcher() {
-        return routeMatcher;
-    }
-
-    public RouteContext withMatcher(spark.route.Routes routeMatcher) {
-        this.routeMatcher = routeMatcher;
-        return this;
-    }
-
-    public RouteContext withHttpRequest(HttpServletRequest httpRequest) {
+    static RouteContext create(DispatchPlan plan,
+                               HttpServletRequest httpRequest,
+                               HttpServletResponse httpResponse,
+                               String uri,
+                               String acceptType,
+                               HttpMethod httpMethod) {
+        return new RouteContext(plan, httpRequest, httpResponse, uri, acceptType, httpMethod);
+    }
+
+    private final DispatchPlan plan;
+    private final HttpServletRequest httpRequest;
+    private final String uri;
+    private final String acceptType;
+    private final Body body;
+    private final RequestWrapper requestWrapper;
+    private final ResponseWrapper responseWrapper;
+    private final Response response;
+    private final HttpMethod httpMethod;
+
+    private CompletionStage<?> pending;
+
+    private RouteContext(DispatchPlan plan,
+                         HttpServletRequest httpRequest,
+                         HttpServletResponse httpResponse,
+                         String uri,
+                         String acceptType,
+                         HttpMethod httpMethod) {
+        this.plan = plan;
         this.httpRequest = httpRequest;
-        return this;
-    }
-
-    public RouteContext withAcceptType(String acceptType) {
-        this.acceptType = acceptType;
-        return this;
-    }
-
-    public RouteContext withBody(Body body) {
-        this.body = body;
-        return this;
-    }
-
-    public RouteContext withRequestWrapper(RequestWrapper requestWrapper) {
-        this.requestWrapper = requestWrapper;
-        return this;
-    }
-
-    public RouteContext withUri(String uri) {
         this.uri = uri;
-        return this;
+        this.acceptType = acceptType;
+        this.httpMethod = httpMethod;
+        this.body = Body.create();
+        this.requestWrapper = RequestWrapper.create();
+        this.responseWrapper = ResponseWrapper.create();
+        this.response = RequestResponseFactory.create(httpResponse);
     }
 
-    public RouteContext withResponseWrapper(ResponseWrapper responseWrapper) {
-        this.responseWrapper = responseWrapper;
-        return this;
+    /**
+     * Points the wrappers at the given match before a filter or route is invoked. The request is created for the
+     * first match and re-targeted for the following ones.
+     *
+     * @param match the filter or route match about to be invoked
+     */
+    void target(RouteMatch match) {
+        if (requestWrapper.getDelegate() == null) {
+            requestWrapper.setDelegate(RequestResponseFactory.create(match, httpRequest));
+        } else {
+            requestWrapper.changeMatch(match);
+        }
+        responseWrapper.setDelegate(response);
     }
 
-    public RouteContext withResponse(Response response) {
-        this.response = response;
-        return this;
-    }
-
-    public RouteContext withHttpMethod(HttpMethod httpMethod) {
-        this.httpMethod = httpMethod;
-        return this;
+    public DispatchPlan plan() {
+        return plan;
     }
 
     public HttpServletRequest httpRequest() {
@@ -129,4 +126,15 @@ final class RouteContext {
         return httpMethod;
     }
 
+    /**
+     * @return the completion stage the route returned, null if the route completed synchronously
+     */
+    public CompletionStage<?> pending() {
+        return pending;
+    }
+
+    void pending(CompletionStage<?> pending) {
+        this.pending = pending;
+    }
+
 }
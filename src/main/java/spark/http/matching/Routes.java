@@ -16,8 +16,8 @@
  */
 package spark.http.matching;
 
-import spark.Request;
-import spark.RequestResponseFactory;
+import java.util.concurrent.CompletionStage;
+
 import spark.RouteImpl;
 import spark.route.HttpMethod;
 import spark.routematch.RouteMatch;
@@ -31,16 +31,14 @@ final class Routes {
 
         Object content = context.body().get();
 
-        RouteMatch match = context.routeMatcher().find(context.httpMethod(), context.uri(), context.acceptType());
+        RouteMatch match = context.plan().route();
 
         Object target = null;
         if (match != null) {
             target = match.getTarget();
         } else if (context.httpMethod() == HttpMethod.head && context.body().notSet()) {
             // See if get is mapped to provide default head mapping
-            content =
-                    context.routeMatcher().find(HttpMethod.get, context.uri(), context.acceptType())
-                            != null ? "" : null;
+            content = context.plan().headMappedByGet() ? "" : null;
         }
 
         if (target != null) {
@@ -49,35 +47,57 @@ final class Routes {
             if (target instanceof RouteImpl) {
                 RouteImpl route = ((RouteImpl) target);
 
-                if (context.requestWrapper().getDelegate() == null) {
-                    Request request = RequestResponseFactory.create(match, context.httpRequest());
-                    context.requestWrapper().setDelegate(request);
-                } else {
-                    context.requestWrapper().changeMatch(match);
-                }
-
-                context.responseWrapper().setDelegate(context.response());
+                context.target(match);
 
                 Object element = route.handle(context.requestWrapper(), context.responseWrapper());
+                if (element instanceof CompletionStage) {
+                    // Rendered by complete when the stage has completed
+                    context.pending((CompletionStage<?>) element);
+                    return;
+                }
                 if (!context.responseWrapper().isRedirected()) {
                 	result = route.render(element);
                 }
             }
 
-            if (result != null) {
-                content = result;
+            content = contentOf(context, content, result);
+        }
 
-                if (content instanceof String) {
-                    String contentStr = (String) content;
+        context.body().set(content);
+    }
+
+    /**
+     * Renders the result of a route that returned a completion stage, once the stage has completed.
+     *
+     * @param context the context
+     * @param element the result the stage completed with
+     * @throws Exception when render fails
+     */
+    static void complete(RouteContext context, Object element) throws Exception {
+        Object content = context.body().get();
+        Object result = null;
 
-                    if (!contentStr.equals("")) {
-                        context.responseWrapper().body(contentStr);
-                    }
+        RouteImpl route = (RouteImpl) context.plan().route().getTarget();
+        if (!context.responseWrapper().isRedirected()) {
+            result = route.render(element);
+        }
+
+        context.body().set(contentOf(context, content, result));
+    }
+
+    private static Object contentOf(RouteContext context, Object content, Object result) {
+        if (result != null) {
+            content = result;
+
+            if (content instanceof String) {
+                String contentStr = (String) content;
+
+                if (!contentStr.equals("")) {
+                    context.responseWrapper().body(contentStr);
                 }
             }
         }
-
-        context.body().set(content);
+        return content;
     }
 
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.metrics;
+
+/**
+ * Maps latencies to the buckets of a log-linear histogram: every power of two is split into 16 buckets of equal
+ * width, so a bucket is at most 1/16 of its lower bound wide. Latencies are counted in units of 1024 ns, about a
+ * microsecond, from 0 up to about an hour, longer latencies are counted in the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int UNIT_SHIFT = 10;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 32;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private LatencyHistogram() {
+    }
+
+    /**
+     * @param nanos the latency
+     * @return the index of the bucket counting the latency
+     */
+    static int indexOf(long nanos) {
+        long units = Math.max(0, nanos) >>> UNIT_SHIFT;
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((units >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @param index the index of a bucket
+     * @return the lowest latency counted in the bucket, in nanoseconds
+     */
+    static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return (long) index << UNIT_SHIFT;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return ((long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift) << UNIT_SHIFT;
+    }
+
+    /**
+     * @param index the index of a bucket
+     * @return the latency above the ones counted in the bucket, in nanoseconds
+     */
+    static long upperBoundOf(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBoundOf(index + 1);
+    }
+
+}
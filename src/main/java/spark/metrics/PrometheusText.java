@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.metrics;
+
+import java.util.List;
+
+/**
+ * Writes route metrics in the Prometheus text exposition format.
+ */
+final class PrometheusText {
+
+    // Upper bounds of the latency buckets in seconds. Counts are taken from the histogram buckets not exceeding a
+    // bound, so they are low by up to 1/16 of the bound.
+    private static final double[] BUCKET_SECONDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private PrometheusText() {
+    }
+
+    static String of(List<RouteStats> routes) {
+        StringBuilder text = new StringBuilder();
+
+        RouteStats.Snapshot[] snapshots = new RouteStats.Snapshot[routes.size()];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = routes.get(i).snapshot();
+        }
+
+        header(text, "spark_requests_total", "counter", "Requests handled, by route and status class.");
+        for (int i = 0; i < snapshots.length; i++) {
+            for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                long count = snapshots[i].statusClass(statusClass);
+                if (count > 0) {
+                    sample(text, "spark_requests_total", routes.get(i), "status", statusClass + "xx", count);
+                }
+            }
+        }
+
+        header(text, "spark_request_errors_total", "counter", "Requests that failed with an exception.");
+        for (int i = 0; i < snapshots.length; i++) {
+            sample(text, "spark_request_errors_total", routes.get(i), null, null, snapshots[i].errors());
+        }
+
+        header(text, "spark_response_bytes_total", "counter", "Bytes of response bodies written.");
+        for (int i = 0; i < snapshots.length; i++) {
+            sample(text, "spark_response_bytes_total", routes.get(i), null, null, snapshots[i].responseBytes());
+        }
+
+        header(text, "spark_request_duration_seconds", "histogram", "Time taken to handle requests.");
+        for (int i = 0; i < snapshots.length; i++) {
+            RouteStats stats = routes.get(i);
+            RouteStats.Snapshot snapshot = snapshots[i];
+            for (double seconds : BUCKET_SECONDS) {
+                long count = snapshot.countNotExceeding((long) (seconds * 1_000_000_000));
+                sample(text, "spark_request_duration_seconds_bucket", stats, "le", Double.toString(seconds), count);
+            }
+            sample(text, "spark_request_duration_seconds_bucket", stats, "le", "+Inf", snapshot.count());
+            sample(text, "spark_request_duration_seconds_sum", stats, null, null, snapshot.latencyNanos() / 1e9);
+            sample(text, "spark_request_duration_seconds_count", stats, null, null, snapshot.count());
+        }
+
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text,
+                               String name,
+                               RouteStats stats,
+                               String label,
+                               String labelValue,
+                               Object value) {
+        text.append(name).append("{method=\"");
+        escape(text, stats.getMethod());
+        text.append("\",route=\"");
+        escape(text, stats.getRoute());
+        text.append('"');
+        if (label != null) {
+            text.append(',').append(label).append("=\"").append(labelValue).append('"');
+        }
+        text.append("} ").append(value).append('\n');
+    }
+
+    private static void escape(StringBuilder text, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                text.append('\\').append(c);
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of the routes of a service, keyed by HTTP method and route path as mapped, e.g. GET /users/:id, so
+ * requests to different users are counted together. Requests not matched to a route, e.g. for static files or not
+ * found, are counted under {@link #UNMATCHED}. Methods other than the standard ones are counted under
+ * {@link #OTHER}, so clients can not create metrics by sending made up methods.
+ * <p>
+ * Metrics are recorded by the embedded server once enabled, see {@code Service.metrics()}, and can be read through
+ * {@link #routes()}, JMX and in the Prometheus text format.
+ */
+public final class RouteMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouteMetrics.class);
+
+    public static final String UNMATCHED = "unmatched";
+
+    public static final String OTHER = "other";
+
+    public static final String JMX_DOMAIN = "spark";
+
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Tells the MBeans of services in the same JVM apart
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final String instance = Integer.toString(INSTANCES.incrementAndGet());
+
+    // The routes by path, each with the stats of its methods
+    private final Map<String, RouteStats[]> routes = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+    private volatile MBeanServer mBeanServer;
+
+    /**
+     * Starts recording and registers the MBeans of the routes.
+     */
+    public synchronized void enable() {
+        enabled = true;
+        if (mBeanServer == null) {
+            mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            for (RouteStats stats : routes()) {
+                register(stats);
+            }
+        }
+    }
+
+    /**
+     * @return true if metrics are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Unregisters the MBeans of the routes, recorded metrics are kept.
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = mBeanServer;
+        mBeanServer = null;
+        if (server == null) {
+            return;
+        }
+
+        for (RouteStats stats : routes()) {
+            try {
+                server.unregisterMBean(objectNameOf(stats));
+            } catch (JMException e) {
+                LOG.debug("Could not unregister metrics of {} {}", stats.getMethod(), stats.getRoute(), e);
+            }
+        }
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param method       the HTTP method as requested, e.g. GET
+     * @param route        the path of the matched route or {@link #UNMATCHED}
+     * @param status       the status code of the response
+     * @param bytes        the size of the response body, negative if unknown
+     * @param failed       true if handling the request threw an exception
+     * @param latencyNanos how long the request took
+     */
+    public void record(String method, String route, int status, long bytes, boolean failed, long latencyNanos) {
+        statsOf(methodOf(method), route).record(status, bytes, failed, latencyNanos);
+    }
+
+    /**
+     * @return the metrics of the routes requested so far
+     */
+    public List<RouteStats> routes() {
+        List<RouteStats> all = new ArrayList<>();
+        for (RouteStats[] methods : routes.values()) {
+            all.addAll(Arrays.asList(methods));
+        }
+        return all;
+    }
+
+    /**
+     * @return the metrics in the Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        return PrometheusText.of(routes());
+    }
+
+    /**
+     * @return the method if it is one of the methods routes can be mapped to, otherwise {@link #OTHER}
+     */
+    static String methodOf(String method) {
+        if (method == null) {
+            return OTHER;
+        }
+        switch (method) {
+            case "GET":
+            case "POST":
+            case "PUT":
+            case "PATCH":
+            case "DELETE":
+            case "HEAD":
+            case "TRACE":
+            case "CONNECT":
+            case "OPTIONS":
+                return method;
+            default:
+                return OTHER;
+        }
+    }
+
+    private RouteStats statsOf(String method, String route) {
+        RouteStats[] methods = routes.get(route);
+        if (methods != null) {
+            for (RouteStats stats : methods) {
+                if (stats.getMethod().equals(method)) {
+                    return stats;
+                }
+            }
+        }
+        return add(method, route);
+    }
+
+    private synchronized RouteStats add(String method, String route) {
+        RouteStats[] methods = routes.getOrDefault(route, new RouteStats[0]);
+        for (RouteStats stats : methods) {
+            if (stats.getMethod().equals(method)) {
+                return stats;
+            }
+        }
+
+        RouteStats stats = new RouteStats(method, route);
+        RouteStats[] copy = Arrays.copyOf(methods, methods.length + 1);
+        copy[methods.length] = stats;
+        routes.put(route, copy);
+
+        if (mBeanServer != null) {
+            register(stats);
+        }
+        return stats;
+    }
+
+    private void register(RouteStats stats) {
+        try {
+            mBeanServer.registerMBean(stats, objectNameOf(stats));
+        } catch (JMException e) {
+            LOG.warn("Could not register metrics of {} {}", stats.getMethod(), stats.getRoute(), e);
+        }
+    }
+
+    private ObjectName objectNameOf(RouteStats stats) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=RouteMetrics,instance=" + instance
+                                      + ",method=" + ObjectName.quote(stats.getMethod())
+                                      + ",route=" + ObjectName.quote(stats.getRoute()));
+    }
+
+}
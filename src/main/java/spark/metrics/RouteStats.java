@@ -0,0 +1,271 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The metrics of a route: requests by status class, errors, response bytes and a latency histogram.
+ * <p>
+ * Recording takes a few uncontended atomic increments and does not allocate. The counters are spread over
+ * stripes, a thread always records to the same one, and are summed up when read.
+ */
+public final class RouteStats implements RouteStatsMXBean {
+
+    private static final int STRIPES = stripes();
+
+    // Counters following the histogram buckets
+    private static final int STATUS_CLASSES = LatencyHistogram.BUCKETS;
+    private static final int ERRORS = STATUS_CLASSES + 5;
+    private static final int RESPONSE_BYTES = ERRORS + 1;
+    private static final int LATENCY_NANOS = RESPONSE_BYTES + 1;
+    private static final int COUNTERS = LATENCY_NANOS + 1;
+
+    private final String method;
+    private final String route;
+
+    // Created when a thread first records to it
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    RouteStats(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param status       the status code of the response
+     * @param bytes        the size of the response body
+     * @param failed       true if handling the request threw an exception
+     * @param latencyNanos how long the request took
+     */
+    void record(int status, long bytes, boolean failed, long latencyNanos) {
+        AtomicLongArray counters = stripe();
+
+        counters.incrementAndGet(LatencyHistogram.indexOf(latencyNanos));
+        counters.incrementAndGet(STATUS_CLASSES + Math.max(0, Math.min(4, status / 100 - 1)));
+        counters.addAndGet(LATENCY_NANOS, latencyNanos);
+        if (bytes > 0) {
+            counters.addAndGet(RESPONSE_BYTES, bytes);
+        }
+        if (failed) {
+            counters.incrementAndGet(ERRORS);
+        }
+    }
+
+    /**
+     * @return the current values of the counters
+     */
+    public Snapshot snapshot() {
+        long[] values = new long[COUNTERS];
+        for (int i = 0; i < STRIPES; i++) {
+            AtomicLongArray counters = stripes.get(i);
+            if (counters != null) {
+                for (int j = 0; j < COUNTERS; j++) {
+                    values[j] += counters.get(j);
+                }
+            }
+        }
+        return new Snapshot(values);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRoute() {
+        return route;
+    }
+
+    @Override
+    public long getCount() {
+        return snapshot().count();
+    }
+
+    @Override
+    public long getErrors() {
+        return snapshot().errors();
+    }
+
+    @Override
+    public long getInformational() {
+        return snapshot().statusClass(1);
+    }
+
+    @Override
+    public long getSuccessful() {
+        return snapshot().statusClass(2);
+    }
+
+    @Override
+    public long getRedirection() {
+        return snapshot().statusClass(3);
+    }
+
+    @Override
+    public long getClientErrors() {
+        return snapshot().statusClass(4);
+    }
+
+    @Override
+    public long getServerErrors() {
+        return snapshot().statusClass(5);
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return snapshot().responseBytes();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return toMillis(snapshot().meanNanos());
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return toMillis(snapshot().percentileNanos(0.5));
+    }
+
+    @Override
+    public double get99thPercentileMillis() {
+        return toMillis(snapshot().percentileNanos(0.99));
+    }
+
+    @Override
+    public double get999thPercentileMillis() {
+        return toMillis(snapshot().percentileNanos(0.999));
+    }
+
+    private AtomicLongArray stripe() {
+        int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicLongArray counters = stripes.get(index);
+        if (counters == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(COUNTERS));
+            counters = stripes.get(index);
+        }
+        return counters;
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(16, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+    }
+
+    /**
+     * The values of the counters of a route at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long[] values;
+
+        private Snapshot(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @return the number of requests
+         */
+        public long count() {
+            long count = 0;
+            for (int i = 0; i < 5; i++) {
+                count += values[STATUS_CLASSES + i];
+            }
+            return count;
+        }
+
+        /**
+         * @return the number of requests handling threw an exception for
+         */
+        public long errors() {
+            return values[ERRORS];
+        }
+
+        /**
+         * @param statusClass the first digit of the status codes, 1 to 5
+         * @return the number of responses with a status code of the class
+         */
+        public long statusClass(int statusClass) {
+            if (statusClass < 1 || statusClass > 5) {
+                throw new IllegalArgumentException("statusClass must be between 1 and 5");
+            }
+            return values[STATUS_CLASSES + statusClass - 1];
+        }
+
+        /**
+         * @return the total size of the response bodies
+         */
+        public long responseBytes() {
+            return values[RESPONSE_BYTES];
+        }
+
+        /**
+         * @return the total latency of the requests in nanoseconds
+         */
+        public long latencyNanos() {
+            return values[LATENCY_NANOS];
+        }
+
+        /**
+         * @return the mean latency in nanoseconds, 0 if there were no requests
+         */
+        public double meanNanos() {
+            long count = count();
+            return count > 0 ? (double) latencyNanos() / count : 0;
+        }
+
+        /**
+         * @param quantile the quantile, between 0 and 1
+         * @return the latency in nanoseconds the quantile of requests did not exceed, within 1/16, or 0 if there
+         * were no requests
+         */
+        public double percentileNanos(double quantile) {
+            long rank = (long) Math.ceil(quantile * count());
+            long seen = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                seen += values[i];
+                if (seen >= rank && seen > 0) {
+                    long lower = LatencyHistogram.lowerBoundOf(i);
+                    long upper = LatencyHistogram.upperBoundOf(i);
+                    return upper == Long.MAX_VALUE ? lower : lower + (upper - lower) / 2.0;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param nanos a latency
+         * @return the number of requests in buckets not exceeding the latency
+         */
+        long countNotExceeding(long nanos) {
+            long count = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS && LatencyHistogram.upperBoundOf(i) <= nanos; i++) {
+                count += values[i];
+            }
+            return count;
+        }
+    }
+
+}
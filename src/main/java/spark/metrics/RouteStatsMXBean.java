@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.metrics;
+
+/**
+ * The metrics of a route as exposed through JMX.
+ */
+public interface RouteStatsMXBean {
+
+    String getMethod();
+
+    String getRoute();
+
+    long getCount();
+
+    long getErrors();
+
+    long getInformational();
+
+    long getSuccessful();
+
+    long getRedirection();
+
+    long getClientErrors();
+
+    long getServerErrors();
+
+    long getResponseBytes();
+
+    double getMeanMillis();
+
+    double getMedianMillis();
+
+    double get99thPercentileMillis();
+
+    double get999thPercentileMillis();
+
+}
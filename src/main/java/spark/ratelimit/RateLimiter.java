@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Limits the rate of requests per key, e.g. per API key or client address, with a token bucket for each key.
+ * Attached to paths with {@code Service.rateLimit}, requests over the limit are rejected with 429 before they are
+ * matched to a route.
+ * <p>
+ * A bucket holds up to burst tokens and is refilled at a constant rate; every request takes one token. Refilling is
+ * computed when a token is taken, so a bucket is a single number updated with compare-and-set. Buckets are spread
+ * over stripes, each holding a bounded number of keys. Buckets that have refilled completely are dropped when a
+ * stripe is full, as they do not differ from new ones.
+ */
+public final class RateLimiter {
+
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    private static final int STRIPES = 16;
+
+    // Requests without a key share a bucket
+    private static final String NO_KEY = "";
+
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+
+    private final List<Map<String, AtomicLong>> stripes = new ArrayList<>(STRIPES);
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Function<HttpServletRequest, String> keys = remoteAddress();
+    private volatile long burstNanos;
+    private volatile int maxKeysPerStripe = stripeSizeOf(DEFAULT_MAX_KEYS);
+
+    RateLimiter(long permits, Duration period, LongSupplier nanoClock) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        if (period == null || period.toNanos() < permits) {
+            throw new IllegalArgumentException("period must be at least one nanosecond per permit");
+        }
+        this.intervalNanos = period.toNanos() / permits;
+        this.burstNanos = intervalNanos * permits;
+        this.nanoClock = nanoClock;
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Creates a rate limiter allowing a number of requests per period and key. Requests may come in a burst, up to
+     * all permits of a period at once.
+     *
+     * @param permits the number of requests per period
+     * @param period  the period
+     * @return the rate limiter, keyed by the client address
+     */
+    public static RateLimiter create(long permits, Duration period) {
+        return new RateLimiter(permits, period, System::nanoTime);
+    }
+
+    /**
+     * @param keys maps a request to its key, requests without key (null) share a bucket
+     * @return this instance
+     */
+    public RateLimiter keyedBy(Function<HttpServletRequest, String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("keys must not be null");
+        }
+        this.keys = keys;
+        return this;
+    }
+
+    /**
+     * @param burst the number of requests allowed at once
+     * @return this instance
+     */
+    public RateLimiter withBurst(int burst) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+        this.burstNanos = intervalNanos * burst;
+        return this;
+    }
+
+    /**
+     * Bounds the number of keys held. When the limit is reached, keys of full buckets are dropped, and if there
+     * are none, the keys of others, which then start with a full bucket again.
+     *
+     * @param maxKeys the number of keys
+     * @return this instance
+     */
+    public RateLimiter withMaxKeys(int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.maxKeysPerStripe = stripeSizeOf(maxKeys);
+        return this;
+    }
+
+    /**
+     * @param name the name of the header
+     * @return keys requests by the value of a header
+     */
+    public static Function<HttpServletRequest, String> header(String name) {
+        return request -> request.getHeader(name);
+    }
+
+    /**
+     * @param name the name of the cookie
+     * @return keys requests by the value of a cookie
+     */
+    public static Function<HttpServletRequest, String> cookie(String name) {
+        return request -> {
+            Cookie[] cookies = request.getCookies();
+            if (cookies != null) {
+                for (Cookie cookie : cookies) {
+                    if (name.equals(cookie.getName())) {
+                        return cookie.getValue();
+                    }
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * @return keys requests by the address of the client
+     */
+    public static Function<HttpServletRequest, String> remoteAddress() {
+        return HttpServletRequest::getRemoteAddr;
+    }
+
+    /**
+     * Takes a token from the bucket of the request's key.
+     *
+     * @param request the request
+     * @return 0 if the request is allowed, otherwise the nanoseconds until it would be
+     */
+    public long tryAcquire(HttpServletRequest request) {
+        String key = keys.apply(request);
+        return tryAcquire(key != null ? key : NO_KEY);
+    }
+
+    long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = bucketOf(key, now);
+
+        // The bucket holds the time it is empty at, it is full again a burst later
+        while (true) {
+            long emptyAt = bucket.get();
+            long next = (emptyAt - now > 0 ? emptyAt : now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                rejected.increment();
+                return excess;
+            }
+            if (bucket.compareAndSet(emptyAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests rejected so far
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of keys currently held
+     */
+    public int keys() {
+        int keys = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            keys += stripe.size();
+        }
+        return keys;
+    }
+
+    private AtomicLong bucketOf(String key, long now) {
+        int hash = key.hashCode();
+        Map<String, AtomicLong> stripe = stripes.get((hash ^ (hash >>> 16)) & (STRIPES - 1));
+
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        synchronized (stripe) {
+            bucket = stripe.get(key);
+            if (bucket == null) {
+                if (stripe.size() >= maxKeysPerStripe) {
+                    evict(stripe, now);
+                }
+                bucket = new AtomicLong(now);
+                stripe.put(key, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Drops full buckets, or a bucket that is not if there is none.
+     */
+    private static void evict(Map<String, AtomicLong> stripe, long now) {
+        boolean evicted = stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+        if (!evicted) {
+            Iterator<AtomicLong> buckets = stripe.values().iterator();
+            buckets.next();
+            buckets.remove();
+        }
+    }
+
+    private static int stripeSizeOf(int maxKeys) {
+        return Math.max(1, (maxKeys + STRIPES - 1) / STRIPES);
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.ratelimit;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * The rate limiters attached to paths. Immutable, adding a rate limiter returns a new instance.
+ */
+public final class RateLimits {
+
+    public static final RateLimits NONE = new RateLimits(new Entry[0]);
+
+    public static final int REJECTION_STATUS = 429;
+
+    private final Entry[] entries;
+
+    private RateLimits(Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param path        the path, segments starting with ':' match any segment and a trailing '*' matches any
+     *                    remaining segments
+     * @param rateLimiter the rate limiter
+     * @return the rate limits including the new one
+     */
+    public RateLimits with(String path, RateLimiter rateLimiter) {
+        Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+        copy[entries.length] = new Entry(path, rateLimiter);
+        return new RateLimits(copy);
+    }
+
+    /**
+     * Takes a token from each rate limiter attached to the requested path, and writes 429 with Retry-After when
+     * one of them rejects the request.
+     *
+     * @param path     the requested path
+     * @param request  the request
+     * @param response the response
+     * @return true if the request is allowed
+     */
+    public boolean tryAcquire(String path, HttpServletRequest request, HttpServletResponse response) {
+        for (Entry entry : entries) {
+            if (!entry.matches(path)) {
+                continue;
+            }
+
+            long waitNanos = entry.rateLimiter.tryAcquire(request);
+            if (waitNanos > 0) {
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1);
+                response.setStatus(REJECTION_STATUS);
+                response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final String[] segments;
+        private final boolean wildcard;
+        private final RateLimiter rateLimiter;
+
+        private Entry(String path, RateLimiter rateLimiter) {
+            String[] parts = segmentsOf(path);
+            this.wildcard = parts.length > 0 && parts[parts.length - 1].equals("*");
+            this.segments = wildcard ? Arrays.copyOf(parts, parts.length - 1) : parts;
+            this.rateLimiter = rateLimiter;
+        }
+
+        private boolean matches(String path) {
+            int start = 0;
+            int length = path.length();
+
+            for (String segment : segments) {
+                while (start < length && path.charAt(start) == '/') {
+                    start++;
+                }
+                if (start == length) {
+                    return false;
+                }
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = length;
+                }
+                if (!segment.startsWith(":")
+                        && (segment.length() != end - start || !path.startsWith(segment, start))) {
+                    return false;
+                }
+                start = end;
+            }
+
+            if (wildcard) {
+                return true;
+            }
+            while (start < length && path.charAt(start) == '/') {
+                start++;
+            }
+            return start == length;
+        }
+
+        private static String[] segmentsOf(String path) {
+            return Arrays.stream(path.split("/")).filter(segment -> !segment.isEmpty()).toArray(String[]::new);
+        }
+    }
+
+}
@@ -18,6 +18,8 @@
 package spark.resource;
 
 import java.net.MalformedURLException;
+import java.util.Collections;
+import java.util.Set;
 
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.http.HttpServletRequest;
@@ -38,6 +40,17 @@ public abstract class AbstractResourceHandler {
      * @throws java.net.MalformedURLException thrown when malformed URL.
      */
     public AbstractFileResolvingResource getResource(HttpServletRequest request) throws MalformedURLException {
+        return getResource(getPathInContext(request));
+    }
+
+    /**
+     * Gets the path of the requested resource, i.e. the servlet path and path info of the request or of the
+     * included request.
+     *
+     * @param request the servlet request
+     * @return the path
+     */
+    public static String getPathInContext(HttpServletRequest request) {
         String servletPath;
         String pathInfo;
         boolean included = request.getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI) != null;
@@ -55,8 +68,7 @@ public abstract class AbstractResourceHandler {
             pathInfo = request.getPathInfo();
         }
 
-        String pathInContext = addPaths(servletPath, pathInfo);
-        return getResource(pathInContext);
+        return addPaths(servletPath, pathInfo);
     }
 
     /**
@@ -68,6 +80,27 @@ public abstract class AbstractResourceHandler {
      */
     protected abstract AbstractFileResolvingResource getResource(String path) throws MalformedURLException;
 
+    /**
+     * Gets resource from a path relative to the location, e.g. one of {@link #getFilePaths()}
+     *
+     * @param path the path
+     * @return the resource or null if resource doesn't exist
+     * @throws java.net.MalformedURLException thrown when malformed URL.
+     */
+    public final AbstractFileResolvingResource getResourceByPath(String path) throws MalformedURLException {
+        return getResource(path);
+    }
+
+    /**
+     * Gets the paths of the files in the location, as far as they are known without looking up each path.
+     *
+     * @return the paths, relative to the location and starting with '/', or an empty set if the location could not
+     * be listed
+     */
+    public Set<String> getFilePaths() {
+        return Collections.emptySet();
+    }
+
     /**
      * Add two URI path segments.
      * Handles null and empty paths, path and query params (eg ?a=b or
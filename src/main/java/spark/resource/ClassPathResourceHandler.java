@@ -18,12 +18,14 @@
 package spark.resource;
 
 import java.net.MalformedURLException;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import spark.staticfiles.DirectoryTraversal;
 import spark.utils.Assert;
+import spark.utils.ClassUtils;
 
 /**
  * Locates resources in classpath
@@ -34,6 +36,7 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
 
     private final String baseResource;
     private final String welcomeFile;
+    private final ResourceIndex index; // null if the location could not be indexed
 
     /**
      * Constructor
@@ -55,6 +58,7 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
 
         this.baseResource = baseResource;
         this.welcomeFile = welcomeFile;
+        this.index = ResourceIndex.ofClassPath(baseResource, ClassUtils.getDefaultClassLoader());
     }
 
     @Override
@@ -63,6 +67,10 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
             throw new MalformedURLException(path);
         }
 
+        if (index != null && !index.mightExist(path)) {
+            return null;
+        }
+
         try {
             path = UriPath.canonical(path);
 
@@ -96,4 +104,9 @@ public class ClassPathResourceHandler extends AbstractResourceHandler {
         return null;
     }
 
+    @Override
+    public Set<String> getFilePaths() {
+        return index != null ? index.files() : super.getFilePaths();
+    }
+
 }
@@ -17,7 +17,9 @@
 //
 package spark.resource;
 
+import java.io.File;
 import java.net.MalformedURLException;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,7 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
 
     private final String baseResource;
     private final String welcomeFile;
+    private final ResourceIndex index; // null if the location could not be indexed
 
     /**
      * Constructor
@@ -54,6 +57,7 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
         Assert.notNull(baseResource);
         this.baseResource = baseResource;
         this.welcomeFile = welcomeFile;
+        this.index = ResourceIndex.ofDirectory(new File(baseResource));
     }
 
     @Override
@@ -62,6 +66,10 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
             throw new MalformedURLException(path);
         }
 
+        if (index != null && !index.mightExist(path)) {
+            return null;
+        }
+
         try {
             path = UriPath.canonical(path);
 
@@ -95,4 +103,29 @@ public class ExternalResourceHandler extends AbstractResourceHandler {
         return null;
     }
 
+    /**
+     * Updates the handler after a file or directory in the folder was created, modified or deleted.
+     *
+     * @param path the path, relative to the folder and starting with '/'
+     */
+    public void update(String path) {
+        if (index != null) {
+            index.update(path);
+        }
+    }
+
+    /**
+     * Lists the folder again, e.g. when changes may have been missed.
+     */
+    public void reindex() {
+        if (index != null) {
+            index.rescan();
+        }
+    }
+
+    @Override
+    public Set<String> getFilePaths() {
+        return index != null ? index.files() : super.getFilePaths();
+    }
+
 }
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The paths that exist below a static files location, collected when the location is configured. Resource handlers
+ * consult it before touching the class loader or the file system, so requests for paths that cannot be static files
+ * (e.g. API routes) are rejected with a set lookup.
+ * <p>
+ * Paths are relative to the location and start with '/'. Directories are held both with and without trailing slash.
+ * Paths that would need normalizing (dot segments, double slashes, backslashes) are never rejected, the handler
+ * resolves those as before.
+ * <p>
+ * Archives can not change, but files can be added to directories while the server runs. Before rejecting a path the
+ * index therefore compares the modification time of the closest indexed directory with the one seen when indexing,
+ * and indexes the location again if it changed. That check is done at most once per {@link #CHECK_INTERVAL_NANOS}, in
+ * between misses are trusted. Watched directories are also updated path by path through {@link #update(String)}, the
+ * check on a miss still finds files the watcher has not reported yet.
+ *
+ * @author Per Wendel
+ */
+final class ResourceIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceIndex.class);
+
+    private static final int MAX_INDEXED_PATHS = 100_000;
+
+    // Directory modification times are not trusted when they are this close to the time of indexing
+    private static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000;
+
+    // How long a miss is trusted after the directories were last found unchanged
+    static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<Path> directories;
+    private final Set<String> archived;
+
+    private volatile Snapshot snapshot;
+
+    private ResourceIndex(List<Path> directories, Set<String> archived) {
+        this.directories = directories;
+        this.archived = archived;
+    }
+
+    /**
+     * Indexes a class path folder in every directory and archive the class loader finds it in.
+     *
+     * @param folder      the class path folder
+     * @param classLoader the class loader resources are loaded with
+     * @return the index or null if the folder could not be listed, in which case every path must be looked up
+     */
+    static ResourceIndex ofClassPath(String folder, ClassLoader classLoader) {
+        String location = trimSlashes(folder);
+
+        if (location.isEmpty()) {
+            // The class path root can not be listed reliably, archives do not hold an entry for it
+            return null;
+        }
+
+        List<Path> directories = new ArrayList<>();
+        Set<String> archived = new HashSet<>();
+
+        try {
+            Enumeration<URL> urls = classLoader.getResources(location);
+            if (!urls.hasMoreElements()) {
+                return null;
+            }
+
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+
+                if ("file".equals(url.getProtocol())) {
+                    directories.add(Paths.get(url.toURI()));
+                } else if ("jar".equals(url.getProtocol())) {
+                    addArchive(archived, url, location);
+                } else {
+                    LOG.debug("Static files in {} can not be indexed", url);
+                    return null;
+                }
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            LOG.debug("Static files folder {} can not be indexed: {}", folder, e.getMessage());
+            return null;
+        }
+
+        return create(folder, directories, archived);
+    }
+
+    /**
+     * Indexes an external folder.
+     *
+     * @param folder the folder
+     * @return the index or null if the folder could not be listed, in which case every path must be looked up
+     */
+    static ResourceIndex ofDirectory(File folder) {
+        return create(folder.getPath(), Collections.singletonList(folder.toPath()), Collections.emptySet());
+    }
+
+    private static ResourceIndex create(String folder, List<Path> directories, Set<String> archived) {
+        ResourceIndex index = new ResourceIndex(directories, Collections.unmodifiableSet(archived));
+        index.snapshot = index.scan();
+
+        if (index.snapshot == null) {
+            return null;
+        }
+
+        LOG.debug("Indexed {} paths in static files folder {}", index.snapshot.paths.size(), folder);
+        return index;
+    }
+
+    /**
+     * @param path the requested path, relative to the location
+     * @return false if there definitely is no resource for the path
+     */
+    boolean mightExist(String path) {
+        if (path.contains("//") || path.contains("/.") || path.indexOf('\\') >= 0) {
+            return true;
+        }
+
+        Snapshot current = snapshot;
+        if (current == null) {
+            return true;
+        }
+        if (current.paths.contains(path)) {
+            return true;
+        }
+        if (current.isRecentlyChecked() || current.isUpToDate(path)) {
+            return false;
+        }
+
+        current = rescan(current);
+        return current == null || current.paths.contains(path);
+    }
+
+    /**
+     * @return the paths of the files, not of the directories
+     */
+    Set<String> files() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> files = new HashSet<>();
+        for (String path : current.paths) {
+            if (!path.endsWith("/") && !current.paths.contains(path + "/")) {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Updates the index after the file or directory at a path was created, modified or deleted.
+     *
+     * @param path the path, relative to the location
+     */
+    synchronized void update(String path) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+
+        String file = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        current.paths.remove(file);
+        current.paths.removeIf(indexed -> indexed.startsWith(file + "/"));
+
+        try {
+            for (Path root : directories) {
+                Path resolved = root.resolve(file.substring(1));
+                if (Files.isDirectory(resolved)) {
+                    // Files created in a new directory before it was watched are not reported
+                    try (Stream<Path> files = Files.walk(resolved)) {
+                        files.filter(added -> !added.equals(root))
+                                .forEach(added -> add(current.paths, toPath(root, added), Files.isDirectory(added)));
+                    }
+                } else if (Files.exists(resolved)) {
+                    add(current.paths, file, false);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Static files in {} can not be indexed: {}", directories, e.getMessage());
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Indexes the location again, e.g. when changes may have been missed.
+     */
+    synchronized void rescan() {
+        snapshot = scan();
+    }
+
+    private synchronized Snapshot rescan(Snapshot stale) {
+        if (snapshot == stale) {
+            snapshot = scan();
+        }
+        return snapshot;
+    }
+
+    private Snapshot scan() {
+        long checkedAt = System.nanoTime();
+        long scannedAt = System.currentTimeMillis();
+        Set<String> paths = ConcurrentHashMap.newKeySet();
+        paths.addAll(archived);
+        List<Map<String, Long>> modificationTimes = new ArrayList<>();
+
+        try {
+            for (Path directory : directories) {
+                modificationTimes.add(addDirectory(paths, directory));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Static files in {} can not be indexed: {}", directories, e.getMessage());
+            return null;
+        }
+
+        return new Snapshot(paths, modificationTimes, scannedAt, checkedAt);
+    }
+
+    private static Map<String, Long> addDirectory(Set<String> paths, Path root) throws IOException {
+        Map<String, Long> modificationTimes = new HashMap<>();
+        paths.add("/");
+        modificationTimes.put("/", root.toFile().lastModified());
+
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> !file.equals(root)).forEach(file -> {
+                if (paths.size() > MAX_INDEXED_PATHS) {
+                    throw new IllegalStateException("More than " + MAX_INDEXED_PATHS + " paths");
+                }
+                String path = toPath(root, file);
+                boolean directory = Files.isDirectory(file);
+
+                add(paths, path, directory);
+                if (directory) {
+                    modificationTimes.put(path + "/", file.toFile().lastModified());
+                }
+            });
+        }
+        return modificationTimes;
+    }
+
+    private static String toPath(Path root, Path file) {
+        return "/" + root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void addArchive(Set<String> paths, URL url, String location) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            throw new IOException("Not an archive: " + url);
+        }
+
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        jarConnection.setUseCaches(false);
+
+        String prefix = location + "/";
+        paths.add("/");
+
+        try (JarFile jar = jarConnection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                    add(paths, "/" + name.substring(prefix.length()), entry.isDirectory());
+                }
+            }
+        }
+    }
+
+    private static void add(Set<String> paths, String path, boolean directory) {
+        String file = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+
+        paths.add(file);
+        if (directory) {
+            paths.add(file + "/");
+        }
+
+        // Archives do not need to hold entries for the directories
+        for (int slash = file.lastIndexOf('/'); slash > 0; slash = file.lastIndexOf('/', slash - 1)) {
+            String parent = file.substring(0, slash);
+            if (!paths.add(parent + "/")) {
+                break;
+            }
+            paths.add(parent);
+        }
+    }
+
+    private static String trimSlashes(String folder) {
+        int start = 0;
+        int end = folder.length();
+        while (start < end && folder.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && folder.charAt(end - 1) == '/') {
+            end--;
+        }
+        return folder.substring(start, end);
+    }
+
+    private final class Snapshot {
+
+        private final Set<String> paths; // concurrent, updated in place when changes are reported
+        private final List<Map<String, Long>> modificationTimes;
+        private final long scannedAt;
+        private volatile long checkedAt; // System.nanoTime() of the last time the directories were found unchanged
+
+        private Snapshot(Set<String> paths, List<Map<String, Long>> modificationTimes, long scannedAt, long checkedAt) {
+            this.paths = paths;
+            this.modificationTimes = modificationTimes;
+            this.scannedAt = scannedAt;
+            this.checkedAt = checkedAt;
+        }
+
+        private boolean isRecentlyChecked() {
+            return System.nanoTime() - checkedAt < CHECK_INTERVAL_NANOS;
+        }
+
+        /**
+         * A file can only have been added below the closest indexed directory of the path, so this is up to date as
+         * long as that directory has not been modified since it was indexed.
+         */
+        private boolean isUpToDate(String path) {
+            for (int i = 0; i < directories.size(); i++) {
+                Map<String, Long> times = modificationTimes.get(i);
+
+                String directory = "/";
+                for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+                    String parent = path.substring(0, slash + 1);
+                    if (times.containsKey(parent)) {
+                        directory = parent;
+                        break;
+                    }
+                }
+
+                Long indexed = times.get(directory);
+                long modified = directories.get(i).resolve(directory.substring(1)).toFile().lastModified();
+
+                if (indexed == null
+                        || modified != indexed
+                        || modified > scannedAt - MODIFICATION_TIME_GRANULARITY_MILLIS) {
+                    return false;
+                }
+            }
+            checkedAt = System.nanoTime();
+            return true;
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package spark.route;
 
 import java.util.List;
 
+import spark.utils.MimeParse;
 import spark.utils.SparkUtils;
 
 /**
@@ -30,7 +31,9 @@ class RouteEntry {
     HttpMethod httpMethod;
     String path;
     String acceptedType;
+    MimeParse.MediaRange acceptedRange;
     Object target;
+    long order;
 
     RouteEntry() {
     }
@@ -39,7 +42,9 @@ class RouteEntry {
         this.httpMethod = entry.httpMethod;
         this.path = entry.path;
         this.acceptedType = entry.acceptedType;
+        this.acceptedRange = entry.acceptedRange;
         this.target = entry.target;
+        this.order = entry.order;
     }
 
     boolean matches(HttpMethod httpMethod, String path) {
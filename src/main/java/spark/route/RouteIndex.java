@@ -0,0 +1,380 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spark.utils.SparkUtils;
+
+/**
+ * Segment trie over route entries, one tree per HTTP method. Lookups walk the tree one path segment at a time so
+ * matching costs are proportional to the depth of the requested path rather than to the number of mapped routes.
+ * <p>
+ * Each node has static children (keyed by segment), one param child (shared by ':name' and '*' segments since both
+ * match any single segment) and splat entries, i.e. routes ending with '*' which also match whatever remains of the
+ * path. Matching follows {@link RouteEntry#matches(HttpMethod, String)} exactly, including its trailing slash rules.
+ * Results are returned in the order the routes were mapped.
+ * <p>
+ * An index is immutable. {@link #with(RouteEntry)} and {@link #without(RouteEntry)} return a new index that shares
+ * every subtree that was not on the path to the changed node, so an index can be read by any number of threads
+ * without locking while a new one is being built. Copying the path on every change makes building a large index one
+ * entry at a time quadratic, {@link #of(List)} builds one in a single pass from mutable nodes instead.
+ *
+ * @author Per Wendel
+ */
+final class RouteIndex {
+
+    static final RouteIndex EMPTY = new RouteIndex(new EnumMap<>(HttpMethod.class));
+
+    private static final Comparator<RouteEntry> MAPPING_ORDER = Comparator.comparingLong(entry -> entry.order);
+
+    private static final RouteEntry[] NO_ENTRIES = new RouteEntry[0];
+
+    private final EnumMap<HttpMethod, Node> roots;
+
+    private RouteIndex(EnumMap<HttpMethod, Node> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * Builds an index holding all the given entries at once.
+     *
+     * @param entries the entries to add
+     * @return the index
+     */
+    static RouteIndex of(List<RouteEntry> entries) {
+        EnumMap<HttpMethod, Builder> builders = new EnumMap<>(HttpMethod.class);
+        for (RouteEntry entry : entries) {
+            builders.computeIfAbsent(entry.httpMethod, method -> new Builder()).add(segmentsOf(entry), slotOf(entry), entry);
+        }
+
+        EnumMap<HttpMethod, Node> roots = new EnumMap<>(HttpMethod.class);
+        builders.forEach((method, builder) -> roots.put(method, builder.build()));
+        return new RouteIndex(roots);
+    }
+
+    /**
+     * @param entry the entry to add
+     * @return a new index that also holds the entry
+     */
+    RouteIndex with(RouteEntry entry) {
+        Node root = roots.getOrDefault(entry.httpMethod, Node.EMPTY);
+
+        EnumMap<HttpMethod, Node> copy = new EnumMap<>(roots);
+        copy.put(entry.httpMethod, root.with(segmentsOf(entry), 0, slotOf(entry), entry));
+        return new RouteIndex(copy);
+    }
+
+    /**
+     * @param entry the entry to remove
+     * @return a new index without the entry, or this index if the entry is not present
+     */
+    RouteIndex without(RouteEntry entry) {
+        Node root = roots.get(entry.httpMethod);
+
+        if (root == null) {
+            return this;
+        }
+
+        Node updated = root.without(segmentsOf(entry), 0, slotOf(entry), entry);
+        if (updated == root) {
+            return this;
+        }
+
+        EnumMap<HttpMethod, Node> copy = new EnumMap<>(roots);
+        if (updated.isEmpty()) {
+            copy.remove(entry.httpMethod);
+        } else {
+            copy.put(entry.httpMethod, updated);
+        }
+        return new RouteIndex(copy);
+    }
+
+    /**
+     * @return the HTTP methods that have entries in this index
+     */
+    Iterable<HttpMethod> methods() {
+        return roots.keySet();
+    }
+
+    /**
+     * @return all entries in mapping order
+     */
+    List<RouteEntry> all() {
+        List<RouteEntry> entries = new ArrayList<>();
+        for (Node root : roots.values()) {
+            root.collectAll(entries);
+        }
+        entries.sort(MAPPING_ORDER);
+        return entries;
+    }
+
+    /**
+     * Finds all entries matching the requested method and path.
+     *
+     * @param httpMethod the http method
+     * @param path       the requested path
+     * @return the matching entries in mapping order
+     */
+    List<RouteEntry> find(HttpMethod httpMethod, String path) {
+        Node root = roots.get(httpMethod);
+
+        if (root == null) {
+            return Collections.emptyList();
+        }
+
+        List<RouteEntry> matches = new ArrayList<>();
+        addAll(matches, root.entries[Slot.ALL_PATHS.ordinal()]);
+
+        String[] segments = SparkUtils.convertRouteToList(path).toArray(new String[0]);
+        collect(root, segments, 0, path.endsWith("/"), matches);
+
+        if (matches.size() > 1) {
+            matches.sort(MAPPING_ORDER);
+        }
+        return matches;
+    }
+
+    private static void collect(Node node, String[] segments, int depth, boolean trailingSlash, List<RouteEntry> matches) {
+        // A splat route ending here matches however many segments remain
+        addAll(matches, node.entries[Slot.SPLAT.ordinal()]);
+
+        if (depth == segments.length) {
+            addAll(matches, node.entries[(trailingSlash ? Slot.EXACT_WITH_SLASH : Slot.EXACT).ordinal()]);
+
+            if (trailingSlash && node.param != null) {
+                // Wildcard routes also match the path with a trailing slash, e.g. '/test/*' matches '/test/'
+                addAll(matches, node.param.entries[Slot.SPLAT.ordinal()]);
+            }
+            return;
+        }
+
+        Node child = node.statics.get(segments[depth]);
+        if (child != null) {
+            collect(child, segments, depth + 1, trailingSlash, matches);
+        }
+
+        if (node.param != null) {
+            collect(node.param, segments, depth + 1, trailingSlash, matches);
+        }
+    }
+
+    private static Slot slotOf(RouteEntry entry) {
+        if (matchesAllPaths(entry)) {
+            return Slot.ALL_PATHS;
+        } else if (entry.path.endsWith("*")) {
+            return Slot.SPLAT;
+        } else if (entry.path.endsWith("/")) {
+            return Slot.EXACT_WITH_SLASH;
+        }
+        return Slot.EXACT;
+    }
+
+    private static List<String> segmentsOf(RouteEntry entry) {
+        return matchesAllPaths(entry) ? Collections.emptyList() : SparkUtils.convertRouteToList(entry.path);
+    }
+
+    private static boolean matchesAllPaths(RouteEntry entry) {
+        return (entry.httpMethod == HttpMethod.before
+                || entry.httpMethod == HttpMethod.after
+                || entry.httpMethod == HttpMethod.afterafter)
+                && SparkUtils.ALL_PATHS.equals(entry.path);
+    }
+
+    private static boolean matchesAnySegment(String segment) {
+        return SparkUtils.isParam(segment) || SparkUtils.isSplat(segment);
+    }
+
+    private static void addAll(List<RouteEntry> matches, RouteEntry[] entries) {
+        Collections.addAll(matches, entries);
+    }
+
+    /**
+     * Where an entry ends up in the node its path leads to.
+     */
+    private enum Slot {
+        EXACT, EXACT_WITH_SLASH, SPLAT, ALL_PATHS
+    }
+
+    /**
+     * A mutable node, only used while building an index in one pass and frozen into a {@link Node} at the end.
+     */
+    private static final class Builder {
+
+        private final Map<String, Builder> statics = new HashMap<>();
+        private Builder param;
+        private final List<List<RouteEntry>> entries = new ArrayList<>();
+
+        private Builder() {
+            for (int i = 0; i < Slot.values().length; i++) {
+                entries.add(new ArrayList<>());
+            }
+        }
+
+        private void add(List<String> segments, Slot slot, RouteEntry entry) {
+            Builder node = this;
+            for (String segment : segments) {
+                if (matchesAnySegment(segment)) {
+                    if (node.param == null) {
+                        node.param = new Builder();
+                    }
+                    node = node.param;
+                } else {
+                    node = node.statics.computeIfAbsent(segment, key -> new Builder());
+                }
+            }
+            node.entries.get(slot.ordinal()).add(entry);
+        }
+
+        private Node build() {
+            Map<String, Node> children = Collections.emptyMap();
+            if (!statics.isEmpty()) {
+                children = new HashMap<>();
+                for (Map.Entry<String, Builder> child : statics.entrySet()) {
+                    children.put(child.getKey(), child.getValue().build());
+                }
+            }
+
+            RouteEntry[][] slots = Node.emptySlots();
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = entries.get(i).toArray(NO_ENTRIES);
+            }
+            return new Node(children, param != null ? param.build() : null, slots);
+        }
+    }
+
+    private static final class Node {
+
+        private static final Node EMPTY = new Node(Collections.emptyMap(), null, emptySlots());
+
+        private final Map<String, Node> statics;
+        private final Node param;
+        private final RouteEntry[][] entries;
+
+        private Node(Map<String, Node> statics, Node param, RouteEntry[][] entries) {
+            this.statics = statics;
+            this.param = param;
+            this.entries = entries;
+        }
+
+        private Node with(List<String> segments, int depth, Slot slot, RouteEntry entry) {
+            if (depth == segments.size()) {
+                RouteEntry[] current = entries[slot.ordinal()];
+                RouteEntry[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = entry;
+                return withEntries(slot, updated);
+            }
+
+            String segment = segments.get(depth);
+
+            if (matchesAnySegment(segment)) {
+                Node child = param != null ? param : EMPTY;
+                return new Node(statics, child.with(segments, depth + 1, slot, entry), entries);
+            }
+
+            Node child = statics.getOrDefault(segment, EMPTY);
+            Map<String, Node> copy = new HashMap<>(statics);
+            copy.put(segment, child.with(segments, depth + 1, slot, entry));
+            return new Node(copy, param, entries);
+        }
+
+        private Node without(List<String> segments, int depth, Slot slot, RouteEntry entry) {
+            if (depth == segments.size()) {
+                RouteEntry[] current = entries[slot.ordinal()];
+                List<RouteEntry> remaining = new ArrayList<>(Arrays.asList(current));
+                if (!remaining.remove(entry)) {
+                    return this;
+                }
+                return withEntries(slot, remaining.toArray(NO_ENTRIES));
+            }
+
+            String segment = segments.get(depth);
+
+            if (matchesAnySegment(segment)) {
+                if (param == null) {
+                    return this;
+                }
+                Node updated = param.without(segments, depth + 1, slot, entry);
+                if (updated == param) {
+                    return this;
+                }
+                return new Node(statics, updated.isEmpty() ? null : updated, entries);
+            }
+
+            Node child = statics.get(segment);
+            if (child == null) {
+                return this;
+            }
+            Node updated = child.without(segments, depth + 1, slot, entry);
+            if (updated == child) {
+                return this;
+            }
+
+            Map<String, Node> copy = new HashMap<>(statics);
+            if (updated.isEmpty()) {
+                copy.remove(segment);
+            } else {
+                copy.put(segment, updated);
+            }
+            return new Node(copy, param, entries);
+        }
+
+        private Node withEntries(Slot slot, RouteEntry[] slotEntries) {
+            RouteEntry[][] copy = entries.clone();
+            copy[slot.ordinal()] = slotEntries;
+            return new Node(statics, param, copy);
+        }
+
+        private boolean isEmpty() {
+            if (!statics.isEmpty() || param != null) {
+                return false;
+            }
+            for (RouteEntry[] slotEntries : entries) {
+                if (slotEntries.length > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void collectAll(List<RouteEntry> all) {
+            for (RouteEntry[] slotEntries : entries) {
+                addAll(all, slotEntries);
+            }
+            for (Node child : statics.values()) {
+                child.collectAll(all);
+            }
+            if (param != null) {
+                param.collectAll(all);
+            }
+        }
+
+        private static RouteEntry[][] emptySlots() {
+            RouteEntry[][] slots = new RouteEntry[Slot.values().length][];
+            Arrays.fill(slots, NO_ENTRIES);
+            return slots;
+        }
+    }
+
+}
@@ -20,6 +20,9 @@ import java.util.*;
 
 import spark.FilterImpl;
 import spark.RouteImpl;
+import spark.ratelimit.RateLimiter;
+import spark.ratelimit.RateLimits;
+import spark.routematch.DispatchPlan;
 import spark.routematch.RouteMatch;
 import spark.utils.MimeParse;
 import spark.utils.StringUtils;
@@ -27,6 +30,10 @@ import spark.utils.StringUtils;
 /**
  * Holds the routes and performs matching from HTTP requests to routes.
  * Works as Sinatra's, i.e. if there are more than one match the one that was mapped first is chosen.
+ * <p>
+ * The route table is an immutable snapshot published through a volatile field. Matching never locks and always sees
+ * a complete table; changes are serialized and publish a new snapshot, see {@link #replaceWith(Routes)} for swapping
+ * in a whole new set of routes at once.
  *
  * @author Per Wendel
  */
@@ -34,18 +41,36 @@ public class Routes {
 
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Routes.class);
     private static final char SINGLE_QUOTE = '\'';
+    private static final int MAX_CACHED_PLANS = 4096;
 
-    private final List<RouteEntry> routes;
+    private volatile Table table = new Table(RouteIndex.EMPTY, RateLimits.NONE);
+    private final List<RouteEntry> pending;
+    private long order;
 
     public static Routes create() {
         return new Routes();
     }
 
+    /**
+     * Creates routes that collect the added routes and filters and build the route table once, when it is first read
+     * or swapped in, rather than publishing a new table for each one. Meant for assembling a whole set of routes on the
+     * side, see {@link #replaceWith(Routes)}; reading deferred routes takes a lock.
+     *
+     * @return the routes
+     */
+    public static Routes createDeferred() {
+        return new Routes(new ArrayList<>());
+    }
+
     /**
      * Constructor
      */
     protected Routes() {
-        routes = new ArrayList<>();
+        this(null);
+    }
+
+    private Routes(List<RouteEntry> pending) {
+        this.pending = pending;
     }
 
     /**
@@ -68,6 +93,25 @@ public class Routes {
         add(httpMethod, filter.getPath() , filter.getAcceptType(), filter);
     }
 
+    /**
+     * Attaches a rate limiter to a path, requests to the path are limited before they are matched.
+     *
+     * @param path        the path, see {@link RateLimits#with(String, RateLimiter)}
+     * @param rateLimiter the rate limiter
+     */
+    public synchronized void add(String path, RateLimiter rateLimiter) {
+        LOG.debug("Adds rate limit: {}", path);
+        Table current = table();
+        table = new Table(current.index, current.rateLimits.with(path, rateLimiter));
+    }
+
+    /**
+     * @return the rate limiters attached to paths
+     */
+    public RateLimits rateLimits() {
+        return table().rateLimits;
+    }
+
     /**
      * finds target for a requested route
      *
@@ -77,7 +121,11 @@ public class Routes {
      * @return the target
      */
     public RouteMatch find(HttpMethod httpMethod, String path, String acceptType) {
-        List<RouteEntry> routeEntries = this.findTargetsForRequestedRoute(httpMethod, path);
+        return find(table().index, httpMethod, path, acceptType);
+    }
+
+    private RouteMatch find(RouteIndex index, HttpMethod httpMethod, String path, String acceptType) {
+        List<RouteEntry> routeEntries = index.find(httpMethod, path);
         RouteEntry entry = findTargetWithGivenAcceptType(routeEntries, acceptType);
         return entry != null ? new RouteMatch(entry.target, entry.path, path, acceptType, httpMethod) : null;
     }
@@ -91,14 +139,16 @@ public class Routes {
      * @return the targets
      */
     public List<RouteMatch> findMultiple(HttpMethod httpMethod, String path, String acceptType) {
+        return findMultiple(table().index, httpMethod, path, acceptType);
+    }
+
+    private List<RouteMatch> findMultiple(RouteIndex index, HttpMethod httpMethod, String path, String acceptType) {
         List<RouteMatch> matchSet = new ArrayList<>();
-        List<RouteEntry> routeEntries = findTargetsForRequestedRoute(httpMethod, path);
+        List<RouteEntry> routeEntries = index.find(httpMethod, path);
 
         for (RouteEntry routeEntry : routeEntries) {
             if (acceptType != null) {
-                String bestMatch = MimeParse.bestMatch(Collections.singletonList(routeEntry.acceptedType), acceptType);
-
-                if (routeWithGivenAcceptType(bestMatch)) {
+                if (MimeParse.fitnessAndQuality(routeEntry.acceptedRange, acceptType).isAcceptable()) {
                     matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType, httpMethod));
                 }
             } else {
@@ -109,13 +159,50 @@ public class Routes {
         return matchSet;
     }
 
+    /**
+     * Resolves the before filters, target route, after filters and after-after filters for a request in one pass.
+     * Plans for requests that matched a route are cached per requested method, path and accept type until the routes
+     * change, evicting the least recently used ones once {@value #MAX_CACHED_PLANS} are held. Misses are not cached, so
+     * scanning unknown paths cannot push the hot plans out.
+     *
+     * @param httpMethod the http method
+     * @param path       the requested path
+     * @param acceptType the accept type
+     * @return the dispatch plan
+     */
+    public DispatchPlan plan(HttpMethod httpMethod, String path, String acceptType) {
+        Table current = table();
+        PlanCache cache = current.plans;
+        PlanKey key = new PlanKey(httpMethod, path, acceptType);
+
+        DispatchPlan plan = cache.get(key);
+        if (plan == null) {
+            RouteIndex index = current.index;
+            RouteMatch route = find(index, httpMethod, path, acceptType);
+            boolean headMappedByGet = route == null
+                    && httpMethod == HttpMethod.head
+                    && find(index, HttpMethod.get, path, acceptType) != null;
+
+            plan = new DispatchPlan(findMultiple(index, HttpMethod.before, path, acceptType),
+                                    route,
+                                    headMappedByGet,
+                                    findMultiple(index, HttpMethod.after, path, acceptType),
+                                    findMultiple(index, HttpMethod.afterafter, path, acceptType));
+
+            if (route != null || headMappedByGet) {
+                cache.put(key, plan);
+            }
+        }
+        return plan;
+    }
+
     /**
      * @return the targets
      */
     public List<RouteMatch> findAll() {
         List<RouteMatch> matchSet = new ArrayList<>();
 
-        for (RouteEntry routeEntry : routes) {
+        for (RouteEntry routeEntry : table().index.all()) {
             matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, "ALL_ROUTES", routeEntry.acceptedType, routeEntry.httpMethod));
         }
 
@@ -125,8 +212,31 @@ public class Routes {
     /**
      * ¨Clear all routes
      */
-    public void clear() {
-        routes.clear();
+    public synchronized void clear() {
+        if (pending != null) {
+            pending.clear();
+        }
+        table = new Table(RouteIndex.EMPTY, RateLimits.NONE);
+    }
+
+    /**
+     * Atomically replaces all routes with the routes of the given instance. Requests being matched while the swap
+     * happens see either the old or the new routes, never a mix of both.
+     *
+     * @param routes the routes to swap in
+     */
+    public void replaceWith(Routes routes) {
+        long nextOrder;
+        Table replacement;
+        synchronized (routes) {
+            nextOrder = routes.order;
+            Table other = routes.table();
+            replacement = new Table(other.index, other.rateLimits);
+        }
+        synchronized (this) {
+            order = Math.max(order, nextOrder);
+            table = replacement;
+        }
     }
 
     /**
@@ -177,55 +287,54 @@ public class Routes {
     // PRIVATE METHODS
     //////////////////////////////////////////////////
 
-    private void add(HttpMethod method, String url, String acceptedType, Object target) {
+    private synchronized void add(HttpMethod method, String url, String acceptedType, Object target) {
         RouteEntry entry = new RouteEntry();
         entry.httpMethod = method;
         entry.path = url;
         entry.target = target;
         entry.acceptedType = acceptedType;
+        entry.acceptedRange = acceptedType != null ? MimeParse.mediaRange(acceptedType) : null;
+        entry.order = order++;
         LOG.debug("Adds route: " + entry);
         // Adds to end of list
-        routes.add(entry);
-    }
-
-    //can be cached? I don't think so.
-    private Map<String, RouteEntry> getAcceptedMimeTypes(List<RouteEntry> routes) {
-        Map<String, RouteEntry> acceptedTypes = new HashMap<>();
-
-        for (RouteEntry routeEntry : routes) {
-            if (!acceptedTypes.containsKey(routeEntry.acceptedType)) {
-                acceptedTypes.put(routeEntry.acceptedType, routeEntry);
-            }
+        if (pending != null) {
+            pending.add(entry);
+        } else {
+            table = new Table(table.index.with(entry), table.rateLimits);
         }
-
-        return acceptedTypes;
     }
 
-    private boolean routeWithGivenAcceptType(String bestMatch) {
-        return !MimeParse.NO_MIME_TYPE.equals(bestMatch);
-    }
-
-    private List<RouteEntry> findTargetsForRequestedRoute(HttpMethod httpMethod, String path) {
-        List<RouteEntry> matchSet = new ArrayList<>();
-        for (RouteEntry entry : routes) {
-            if (entry.matches(httpMethod, path)) {
-                matchSet.add(entry);
+    private Table table() {
+        if (pending != null) {
+            synchronized (this) {
+                if (!pending.isEmpty()) {
+                    List<RouteEntry> entries = table.index.all();
+                    entries.addAll(pending);
+                    pending.clear();
+                    table = new Table(RouteIndex.of(entries), table.rateLimits);
+                }
             }
         }
-        return matchSet;
+        return table;
     }
 
-    // TODO: I believe this feature has impacted performance. Optimization?
     private RouteEntry findTargetWithGivenAcceptType(List<RouteEntry> routeMatches, String acceptType) {
         if (acceptType != null && routeMatches.size() > 0) {
-            Map<String, RouteEntry> acceptedMimeTypes = getAcceptedMimeTypes(routeMatches);
-            String bestMatch = MimeParse.bestMatch(acceptedMimeTypes.keySet(), acceptType);
+            RouteEntry bestEntry = null;
+            MimeParse.FitnessAndQuality best = null;
 
-            if (routeWithGivenAcceptType(bestMatch)) {
-                return acceptedMimeTypes.get(bestMatch);
-            } else {
-                return null;
+            // Negotiation results are cached per accept header and route type, on ties the first mapped route wins
+            for (RouteEntry routeEntry : routeMatches) {
+                MimeParse.FitnessAndQuality fitnessAndQuality =
+                        MimeParse.fitnessAndQuality(routeEntry.acceptedRange, acceptType);
+
+                if (best == null || fitnessAndQuality.compareTo(best) > 0) {
+                    best = fitnessAndQuality;
+                    bestEntry = routeEntry;
+                }
             }
+
+            return best.isAcceptable() ? bestEntry : null;
         } else {
             if (routeMatches.size() > 0) {
                 return routeMatches.get(0);
@@ -235,25 +344,31 @@ public class Routes {
         return null;
     }
 
-    private boolean removeRoute(HttpMethod httpMethod, String path) {
+    private synchronized boolean removeRoute(HttpMethod httpMethod, String path) {
+        RouteIndex index = table().index;
         List<RouteEntry> forRemoval = new ArrayList<>();
 
-        for (RouteEntry routeEntry : routes) {
-            HttpMethod httpMethodToMatch = httpMethod;
-
-            if (httpMethod == null) {
-                // Use the routeEntry's HTTP method if none was given, so that only path is used to match.
-                httpMethodToMatch = routeEntry.httpMethod;
+        if (httpMethod != null) {
+            forRemoval.addAll(index.find(httpMethod, path));
+        } else {
+            // Use each route's HTTP method if none was given, so that only path is used to match.
+            for (HttpMethod method : index.methods()) {
+                forRemoval.addAll(index.find(method, path));
             }
+        }
 
-            if (routeEntry.matches(httpMethodToMatch, path)) {
-                LOG.debug("Removing path {}{}", path, httpMethod == null ? "" : " with HTTP method " + httpMethod);
+        for (RouteEntry routeEntry : forRemoval) {
+            LOG.debug("Removing path {}{}", path, httpMethod == null ? "" : " with HTTP method " + httpMethod);
 
-                forRemoval.add(routeEntry);
-            }
+            index = index.without(routeEntry);
         }
 
-        return routes.removeAll(forRemoval);
+        if (forRemoval.isEmpty()) {
+            return false;
+        }
+
+        table = new Table(index, table.rateLimits);
+        return true;
     }
 
     /**
@@ -287,4 +402,93 @@ public class Routes {
             LOG.error("The @Route value: " + route + " is not in the correct format", e);
         }
     }
+
+    /**
+     * An immutable route index together with the dispatch plans resolved against it.
+     */
+    private static final class Table {
+
+        private final RouteIndex index;
+        private final RateLimits rateLimits;
+        private final PlanCache plans = new PlanCache();
+
+        private Table(RouteIndex index, RateLimits rateLimits) {
+            this.index = index;
+            this.rateLimits = rateLimits;
+        }
+    }
+
+    /**
+     * A bounded least-recently-used map of dispatch plans, split into stripes so that lookups for different paths
+     * rarely contend on the same lock.
+     */
+    private static final class PlanCache {
+
+        private static final int STRIPES = 16;
+        private static final int MAX_PER_STRIPE = MAX_CACHED_PLANS / STRIPES;
+
+        private final List<Map<PlanKey, DispatchPlan>> stripes = new ArrayList<>(STRIPES);
+
+        private PlanCache() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.add(new LinkedHashMap<PlanKey, DispatchPlan>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<PlanKey, DispatchPlan> eldest) {
+                        return size() > MAX_PER_STRIPE;
+                    }
+                });
+            }
+        }
+
+        private DispatchPlan get(PlanKey key) {
+            Map<PlanKey, DispatchPlan> stripe = stripeOf(key);
+            synchronized (stripe) {
+                return stripe.get(key);
+            }
+        }
+
+        private void put(PlanKey key, DispatchPlan plan) {
+            Map<PlanKey, DispatchPlan> stripe = stripeOf(key);
+            synchronized (stripe) {
+                stripe.put(key, plan);
+            }
+        }
+
+        private Map<PlanKey, DispatchPlan> stripeOf(PlanKey key) {
+            int h = key.hashCode();
+            return stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+        }
+    }
+
+    private static final class PlanKey {
+
+        private final HttpMethod httpMethod;
+        private final String path;
+        private final String acceptType;
+
+        private PlanKey(HttpMethod httpMethod, String path, String acceptType) {
+            this.httpMethod = httpMethod;
+            this.path = path;
+            this.acceptType = acceptType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return httpMethod == other.httpMethod
+                    && path.equals(other.path)
+                    && Objects.equals(acceptType, other.acceptType);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * httpMethod.hashCode() + path.hashCode()) + Objects.hashCode(acceptType);
+        }
+    }
 }
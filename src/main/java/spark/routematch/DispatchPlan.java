@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.routematch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything a request matched, resolved in one pass over the route matcher: the before filters, the target route,
+ * the after filters and the after-after filters. Instances are immutable and can be shared between requests.
+ *
+ * @author Per Wendel
+ */
+public final class DispatchPlan {
+
+    private final List<RouteMatch> beforeFilters;
+    private final RouteMatch route;
+    private final boolean headMappedByGet;
+    private final List<RouteMatch> afterFilters;
+    private final List<RouteMatch> afterAfterFilters;
+
+    public DispatchPlan(List<RouteMatch> beforeFilters,
+                        RouteMatch route,
+                        boolean headMappedByGet,
+                        List<RouteMatch> afterFilters,
+                        List<RouteMatch> afterAfterFilters) {
+        this.beforeFilters = Collections.unmodifiableList(beforeFilters);
+        this.route = route;
+        this.headMappedByGet = headMappedByGet;
+        this.afterFilters = Collections.unmodifiableList(afterFilters);
+        this.afterAfterFilters = Collections.unmodifiableList(afterAfterFilters);
+    }
+
+    /**
+     * @return the matching before filters, in mapping order
+     */
+    public List<RouteMatch> beforeFilters() {
+        return beforeFilters;
+    }
+
+    /**
+     * @return the target route or null if no route matched
+     */
+    public RouteMatch route() {
+        return route;
+    }
+
+    /**
+     * @return true if this is a HEAD request without a HEAD route for which a GET route is mapped
+     */
+    public boolean headMappedByGet() {
+        return headMappedByGet;
+    }
+
+    /**
+     * @return the matching after filters, in mapping order
+     */
+    public List<RouteMatch> afterFilters() {
+        return afterFilters;
+    }
+
+    /**
+     * @return the matching after-after filters, in mapping order
+     */
+    public List<RouteMatch> afterAfterFilters() {
+        return afterAfterFilters;
+    }
+
+}
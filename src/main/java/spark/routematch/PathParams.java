@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.routematch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Positions of the route params and splat params of a match within the requested URI. Values are not extracted,
+ * only the start (inclusive) and end (exclusive) offsets of the URI segments they are taken from, so a request can
+ * decode just the values it actually reads. Instances are immutable.
+ *
+ * @author Per Wendel
+ */
+public final class PathParams {
+
+    /**
+     * No params at all, e.g. for a request that did not match a route
+     */
+    public static final PathParams EMPTY = new PathParams(new String[0], new int[0], new int[0], new int[0]);
+
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] splatOffsets;
+    private final int[] splatSegments;
+
+    private PathParams(String[] names, int[] offsets, int[] splatOffsets, int[] splatSegments) {
+        this.names = names;
+        this.offsets = offsets;
+        this.splatOffsets = splatOffsets;
+        this.splatSegments = splatSegments;
+    }
+
+    /**
+     * Locates the params of a matched route pattern in the requested URI.
+     *
+     * @param matchUri   the matched route pattern, e.g. '/hello/:name/*'
+     * @param requestUri the requested URI
+     * @return the param positions
+     */
+    public static PathParams of(String matchUri, String requestUri) {
+        int[] requestSegments = segments(requestUri);
+        int[] matchSegments = segments(matchUri);
+
+        int requestCount = requestSegments.length / 2;
+        int matchCount = matchSegments.length / 2;
+        boolean sameLength = requestCount == matchCount;
+
+        List<String> names = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        List<Integer> splatOffsets = new ArrayList<>();
+        List<Integer> splatSegments = new ArrayList<>();
+
+        for (int i = 0; i < requestCount && i < matchCount; i++) {
+            int start = matchSegments[2 * i];
+            int end = matchSegments[2 * i + 1];
+
+            if (matchUri.charAt(start) == ':') {
+                names.add(matchUri.substring(start, end).toLowerCase()); // NOSONAR
+                offsets.add(requestSegments[2 * i]);
+                offsets.add(requestSegments[2 * i + 1]);
+            } else if (end - start == 1 && matchUri.charAt(start) == '*') {
+                // A trailing splat swallows the rest of the requested path
+                int last = !sameLength && i == matchCount - 1 ? requestCount - 1 : i;
+                splatOffsets.add(requestSegments[2 * i]);
+                splatOffsets.add(requestSegments[2 * last + 1]);
+                splatSegments.add(last - i + 1);
+            }
+        }
+
+        if (names.isEmpty() && splatSegments.isEmpty()) {
+            return EMPTY;
+        }
+        return new PathParams(names.toArray(new String[0]), toArray(offsets), toArray(splatOffsets),
+                              toArray(splatSegments));
+    }
+
+    /**
+     * @return the number of route params
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param index the param index
+     * @return the lower-cased param name including the leading ':'
+     */
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param index the param index
+     * @return the offset in the requested URI where the param value starts
+     */
+    public int start(int index) {
+        return offsets[2 * index];
+    }
+
+    /**
+     * @param index the param index
+     * @return the offset in the requested URI where the param value ends
+     */
+    public int end(int index) {
+        return offsets[2 * index + 1];
+    }
+
+    /**
+     * Finds a param by name, ignoring case. The name can be given with or without the leading ':'. If the pattern
+     * declares a name twice, the last one is returned.
+     *
+     * @param param the param name
+     * @return the index of the param or -1 if there is no such param
+     */
+    public int indexOf(String param) {
+        int offset = param.startsWith(":") ? 0 : 1;
+        int length = param.length() + offset;
+
+        for (int i = names.length - 1; i >= 0; i--) {
+            String name = names[i];
+            if (name.length() == length && name.regionMatches(true, offset, param, 0, param.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of splat params
+     */
+    public int splatSize() {
+        return splatSegments.length;
+    }
+
+    /**
+     * @param index the splat index
+     * @return the offset in the requested URI where the splat value starts
+     */
+    public int splatStart(int index) {
+        return splatOffsets[2 * index];
+    }
+
+    /**
+     * @param index the splat index
+     * @return the offset in the requested URI where the splat value ends
+     */
+    public int splatEnd(int index) {
+        return splatOffsets[2 * index + 1];
+    }
+
+    /**
+     * @param index the splat index
+     * @return the number of URI segments the splat value spans
+     */
+    public int splatSegments(int index) {
+        return splatSegments[index];
+    }
+
+    /**
+     * Finds the non-empty segments of a path, i.e. what {@link spark.utils.SparkUtils#convertRouteToList(String)}
+     * returns, as start and end offsets.
+     */
+    private static int[] segments(String path) {
+        int count = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+                count++;
+            }
+        }
+
+        int[] segments = new int[2 * count];
+        int segment = 0;
+        int start = -1;
+        for (int i = 0; i <= path.length(); i++) {
+            boolean separator = i == path.length() || path.charAt(i) == '/';
+            if (separator && start >= 0) {
+                segments[segment++] = start;
+                segments[segment++] = i;
+                start = -1;
+            } else if (!separator && start < 0) {
+                start = i;
+            }
+        }
+        return segments;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+}
@@ -29,6 +29,9 @@ public class RouteMatch {
     private final String acceptType;
     private final HttpMethod httpMethod;
 
+    // Computed on first use, matches are shared by all requests with the same dispatch plan
+    private PathParams pathParams;
+
     public RouteMatch(Object target, String matchUri, String requestUri, String acceptType) {
         this(target, matchUri, requestUri, acceptType, null);
      }
@@ -78,5 +81,17 @@ public class RouteMatch {
         return requestURI;
     }
 
+    /**
+     * @return the positions of the route params and splat params in the requestUri
+     */
+    public PathParams getPathParams() {
+        PathParams params = pathParams;
+        if (params == null) {
+            params = PathParams.of(matchUri, requestURI);
+            pathParams = params;
+        }
+        return params;
+    }
+
 
 }
@@ -20,28 +20,60 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
+import org.eclipse.jetty.server.HttpOutput;
+
 /**
  * Bytes serializer.
+ * <p>
+ * Writes byte arrays, and the remaining bytes of byte buffers and arrays of byte buffers. Buffers are written by Jetty
+ * without copying them if the response is not wrapped, e.g. not GZIP encoded, so direct and mapped buffers are not
+ * copied through the heap. The position of the buffers is not changed.
  *
  * @author alex
  */
 class BytesSerializer extends Serializer {
 
+    // Size of the chunks direct buffers are copied in when they can not be written by Jetty
+    private static final int COPY_BUFFER_SIZE = 8192;
+
     @Override
     public boolean canProcess(Object element) {
-        return element instanceof byte[] || element instanceof ByteBuffer;
+        return element instanceof byte[] || element instanceof ByteBuffer || element instanceof ByteBuffer[];
     }
 
     @Override
     public void process(OutputStream outputStream, Object element)
             throws IOException {
-        byte[] bytes = null;
         if (element instanceof byte[]) {
-            bytes = (byte[]) element;
-        } else if (element instanceof ByteBuffer){
-            bytes = ((ByteBuffer) element).array();
+            outputStream.write((byte[]) element);
+        } else if (element instanceof ByteBuffer) {
+            write(outputStream, (ByteBuffer) element);
+        } else if (element instanceof ByteBuffer[]) {
+            for (ByteBuffer buffer : (ByteBuffer[]) element) {
+                write(outputStream, buffer);
+            }
+        }
+    }
+
+    static void write(OutputStream outputStream, ByteBuffer buffer) throws IOException {
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+
+        if (outputStream instanceof HttpOutput) {
+            // Written as it is, the duplicate keeps the position of the buffer
+            ((HttpOutput) outputStream).write(buffer.duplicate());
+        } else if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            ByteBuffer source = buffer.duplicate();
+            byte[] chunk = new byte[Math.min(source.remaining(), COPY_BUFFER_SIZE)];
+            while (source.hasRemaining()) {
+                int length = Math.min(source.remaining(), chunk.length);
+                source.get(chunk, 0, length);
+                outputStream.write(chunk, 0, length);
+            }
         }
-        outputStream.write(bytes);
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Serializer that writes strings, and other char sequences, to output in UTF-8 encoding.
+ * <p>
+ * The characters are encoded chunk by chunk into a buffer that is written and reused, instead of into one array as
+ * large as the whole encoded result. Encoders and buffers are pooled and shared by the requests.
+ */
+class CharSequenceSerializer extends Serializer {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private static final int MAX_POOLED_ENCODERS = 64;
+
+    private final BlockingQueue<Encoder> pool = new ArrayBlockingQueue<>(MAX_POOLED_ENCODERS);
+
+    @Override
+    public boolean canProcess(Object element) {
+        return element instanceof CharSequence;
+    }
+
+    @Override
+    public void process(OutputStream outputStream, Object element) throws IOException {
+        CharSequence chars = (CharSequence) element;
+        if (chars.length() == 0) {
+            return;
+        }
+
+        Encoder encoder = pool.poll();
+        if (encoder == null) {
+            encoder = new Encoder();
+        }
+
+        try {
+            encoder.encode(chars, outputStream);
+        } finally {
+            encoder.reset();
+            pool.offer(encoder);
+        }
+    }
+
+    /**
+     * A UTF-8 encoder and the buffer it encodes into.
+     */
+    private static final class Encoder {
+
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                // Like String.getBytes
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private void encode(CharSequence chars, OutputStream outputStream) throws IOException {
+            // Wraps without copying the characters
+            CharBuffer in = CharBuffer.wrap(chars);
+
+            CoderResult result;
+            do {
+                result = encoder.encode(in, buffer, true);
+                if (result.isOverflow()) {
+                    write(outputStream);
+                }
+            } while (result.isOverflow());
+
+            while (encoder.flush(buffer).isOverflow()) {
+                write(outputStream);
+            }
+            write(outputStream);
+        }
+
+        private void write(OutputStream outputStream) throws IOException {
+            if (buffer.position() > 0) {
+                outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+                buffer.clear();
+            }
+        }
+
+        private void reset() {
+            encoder.reset();
+            buffer.clear();
+        }
+    }
+
+}
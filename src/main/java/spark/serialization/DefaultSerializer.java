@@ -18,8 +18,6 @@ package spark.serialization;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Serializer that writes the result of toString to output in UTF-8 encoding
@@ -28,6 +26,16 @@ import java.nio.charset.StandardCharsets;
  */
 class DefaultSerializer extends Serializer {
 
+    private final CharSequenceSerializer charSequenceSerializer;
+
+    DefaultSerializer() {
+        this(new CharSequenceSerializer());
+    }
+
+    DefaultSerializer(CharSequenceSerializer charSequenceSerializer) {
+        this.charSequenceSerializer = charSequenceSerializer;
+    }
+
     @Override
     public boolean canProcess(Object element) {
         return true;
@@ -35,11 +43,7 @@ class DefaultSerializer extends Serializer {
 
     @Override
     public void process(OutputStream outputStream, Object element) throws IOException {
-        try {
-            outputStream.write(element.toString().getBytes(StandardCharsets.UTF_8));
-        } catch (UnsupportedEncodingException e) {
-            throw new IOException(e);
-        }
+        charSequenceSerializer.process(outputStream, element.toString());
     }
 
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.BaseStream;
+
+/**
+ * Serializer that writes the elements of {@link Iterable}, {@link Iterator} and {@link java.util.stream.Stream}
+ * results one by one as they are produced, instead of the result of toString. Streams are closed when written.
+ * <p>
+ * Each element is written by the element serializer, framed by the format, and the output is flushed every few
+ * elements or bytes so clients receive the first elements before the last ones are produced. Map it for the result
+ * types to stream, e.g. newline delimited JSON:
+ * <pre>
+ * IterableSerializer ndjson = IterableSerializer.newlineDelimited()
+ *         .withElementSerializer((out, element) -&gt; mapper.writeValue(out, element));
+ * serializer(Collection.class, ndjson);
+ * serializer(Stream.class, ndjson);
+ * </pre>
+ * Iterators and streams are written like the toString of a collection by default, with the elements written by the
+ * mapped serializers. Collections are written by their toString unless this serializer is mapped for them.
+ */
+public final class IterableSerializer implements TypedSerializer<Object> {
+
+    public static final int DEFAULT_FLUSH_ELEMENTS = 1000;
+    public static final int DEFAULT_FLUSH_BYTES = 64 * 1024;
+
+    private static final byte[] NONE = new byte[0];
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private static final DefaultSerializer TO_STRING = new DefaultSerializer();
+
+    private final byte[] prefix;
+    private final byte[] separator;
+    private final byte[] terminator;
+    private final byte[] suffix;
+    private final boolean lengthPrefixed;
+
+    private final TypedSerializer<Object> elementSerializer;
+    private final int flushElements;
+    private final long flushBytes;
+
+    private IterableSerializer(byte[] prefix,
+                               byte[] separator,
+                               byte[] terminator,
+                               byte[] suffix,
+                               boolean lengthPrefixed,
+                               TypedSerializer<Object> elementSerializer,
+                               int flushElements,
+                               long flushBytes) {
+        this.prefix = prefix;
+        this.separator = separator;
+        this.terminator = terminator;
+        this.suffix = suffix;
+        this.lengthPrefixed = lengthPrefixed;
+        this.elementSerializer = elementSerializer;
+        this.flushElements = flushElements;
+        this.flushBytes = flushBytes;
+    }
+
+    /**
+     * Elements followed by a line feed each, e.g. for newline delimited JSON.
+     *
+     * @return the serializer, writing the result of toString of the elements
+     */
+    public static IterableSerializer newlineDelimited() {
+        return new IterableSerializer(NONE, NONE, bytes("\n"), NONE, false, IterableSerializer::toString,
+                                      DEFAULT_FLUSH_ELEMENTS, DEFAULT_FLUSH_BYTES);
+    }
+
+    /**
+     * Elements between a prefix and suffix, separated by a separator, e.g. "[", ",", "]" for a JSON array.
+     *
+     * @param prefix    written before the first element
+     * @param separator written between elements
+     * @param suffix    written after the last element
+     * @return the serializer, writing the result of toString of the elements
+     */
+    public static IterableSerializer delimited(String prefix, String separator, String suffix) {
+        return new IterableSerializer(bytes(prefix), bytes(separator), NONE, bytes(suffix), false,
+                                      IterableSerializer::toString, DEFAULT_FLUSH_ELEMENTS, DEFAULT_FLUSH_BYTES);
+    }
+
+    /**
+     * Elements preceded by their length in bytes each, as four byte big-endian integer. Elements are buffered to find
+     * their length.
+     *
+     * @return the serializer, writing the result of toString of the elements
+     */
+    public static IterableSerializer lengthPrefixed() {
+        return new IterableSerializer(NONE, NONE, NONE, NONE, true, IterableSerializer::toString,
+                                      DEFAULT_FLUSH_ELEMENTS, DEFAULT_FLUSH_BYTES);
+    }
+
+    /**
+     * @param elementSerializer writes the elements, null elements included
+     * @return a serializer like this one, writing the elements with the given serializer
+     */
+    public IterableSerializer withElementSerializer(TypedSerializer<Object> elementSerializer) {
+        if (elementSerializer == null) {
+            throw new IllegalArgumentException("elementSerializer must not be null");
+        }
+        return new IterableSerializer(prefix, separator, terminator, suffix, lengthPrefixed, elementSerializer,
+                                      flushElements, flushBytes);
+    }
+
+    /**
+     * @param elements flush after this many elements, 0 to not flush by elements
+     * @param bytes    flush after this many bytes, 0 to not flush by bytes
+     * @return a serializer like this one, flushing as given
+     */
+    public IterableSerializer withFlushEvery(int elements, long bytes) {
+        if (elements < 0 || bytes < 0) {
+            throw new IllegalArgumentException("elements and bytes must not be negative");
+        }
+        return new IterableSerializer(prefix, separator, terminator, suffix, lengthPrefixed, elementSerializer,
+                                      elements, bytes);
+    }
+
+    @Override
+    public void serialize(OutputStream outputStream, Object element) throws IOException {
+        if (element instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>) element) {
+                write(outputStream, stream.iterator());
+            }
+        } else if (element instanceof Iterable) {
+            write(outputStream, ((Iterable<?>) element).iterator());
+        } else if (element instanceof Iterator) {
+            write(outputStream, (Iterator<?>) element);
+        } else {
+            throw new IllegalArgumentException("Can not serialize elements of " + element.getClass());
+        }
+    }
+
+    private void write(OutputStream outputStream, Iterator<?> elements) throws IOException {
+        CountingOutputStream output = new CountingOutputStream(outputStream);
+        ByteArrayOutputStream elementBuffer = lengthPrefixed ? new ByteArrayOutputStream() : null;
+
+        output.write(prefix);
+
+        int elementsSinceFlush = 0;
+        long flushedBytes = 0;
+        boolean first = true;
+
+        while (elements.hasNext()) {
+            Object element = elements.next();
+
+            if (!first) {
+                output.write(separator);
+            }
+            first = false;
+
+            if (elementBuffer != null) {
+                elementBuffer.reset();
+                elementSerializer.serialize(elementBuffer, element);
+                writeLength(output, elementBuffer.size());
+                elementBuffer.writeTo(output);
+            } else {
+                elementSerializer.serialize(output, element);
+            }
+            output.write(terminator);
+
+            elementsSinceFlush++;
+            if ((flushElements > 0 && elementsSinceFlush >= flushElements)
+                    || (flushBytes > 0 && output.count - flushedBytes >= flushBytes)) {
+                output.flush();
+                elementsSinceFlush = 0;
+                flushedBytes = output.count;
+            }
+        }
+
+        output.write(suffix);
+    }
+
+    private static void writeLength(OutputStream outputStream, int length) throws IOException {
+        outputStream.write(length >>> 24);
+        outputStream.write(length >>> 16);
+        outputStream.write(length >>> 8);
+        outputStream.write(length);
+    }
+
+    private static void toString(OutputStream outputStream, Object element) throws IOException {
+        if (element == null) {
+            outputStream.write(NULL);
+        } else {
+            TO_STRING.process(outputStream, element);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts the written bytes. Element serializers closing the stream do not close the response.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream outputStream;
+        private long count;
+
+        private CountingOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() {
+            // The response is closed when the result has been written
+        }
+    }
+
+}
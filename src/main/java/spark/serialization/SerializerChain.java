@@ -17,29 +17,112 @@
 package spark.serialization;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.BaseStream;
+
+import spark.StreamingBody;
 
 /**
  * Chain of serializers for the output.
+ * <p>
+ * Serializers are registered for types. A result is written by the serializer registered for the most specific type
+ * it is an instance of, superclasses are preferred over interfaces. The serializer is looked up once per runtime
+ * class and cached, so serializing does not probe the registered types. Without registrations byte arrays, byte
+ * buffers and arrays of byte buffers are written as they are, input streams are copied, streaming bodies write
+ * themselves, strings and other char sequences are UTF-8 encoded, the elements of iterators and streams are written
+ * one by one, see {@link IterableSerializer}, and everything else, collections included, is written as the UTF-8
+ * encoded result of toString.
  */
 public final class SerializerChain {
 
-    private final Serializer root;
+    /**
+     * Holds a serializer chain instance for use in servlet mode
+     */
+    private static SerializerChain servletInstance;
+
+    /**
+     * Returns serializer chain instance used in servlet mode
+     *
+     * @return servlet instance
+     */
+    public static synchronized SerializerChain getServletInstance() {
+        if (servletInstance == null) {
+            servletInstance = new SerializerChain();
+        }
+        return servletInstance;
+    }
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    // Guarded by this, replaced on registration
+    private Map<Class<?>, TypedSerializer<Object>> registered;
+
+    private volatile ClassValue<TypedSerializer<Object>> serializers;
 
     /**
      * Constructs a serializer chain.
      */
     public SerializerChain() {
+        clear();
+    }
 
-        DefaultSerializer defaultSerializer = new DefaultSerializer();
+    /**
+     * Registers the serializer for results of a type, and its subtypes unless a more specific type is registered. A
+     * serializer registered before for the same type is replaced.
+     *
+     * @param type       the type
+     * @param serializer the serializer
+     * @param <T>        the type
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> void register(Class<T> type, TypedSerializer<? super T> serializer) {
+        if (type == null || serializer == null) {
+            throw new IllegalArgumentException("type and serializer must not be null");
+        }
 
-        InputStreamSerializer inputStreamSerializer = new InputStreamSerializer();
-        inputStreamSerializer.setNext(defaultSerializer);
+        Map<Class<?>, TypedSerializer<Object>> copy = new HashMap<>(registered);
+        // Only used for instances of the type
+        copy.put(type, (TypedSerializer<Object>) serializer);
+        update(copy);
+    }
+
+    /**
+     * Removes all registered serializers, only the default ones are used after this.
+     */
+    public synchronized void clear() {
+        Map<Class<?>, TypedSerializer<Object>> defaults = new HashMap<>();
 
         BytesSerializer bytesSerializer = new BytesSerializer();
-        bytesSerializer.setNext(inputStreamSerializer);
+        defaults.put(byte[].class, bytesSerializer::process);
+        defaults.put(ByteBuffer.class, bytesSerializer::process);
+        defaults.put(ByteBuffer[].class, bytesSerializer::process);
+        defaults.put(InputStream.class, new InputStreamSerializer()::process);
+        defaults.put(StreamingBody.class, new StreamingBodySerializer()::process);
+
+        // Like the toString of a collection, but streamed and with the elements serialized by this chain. Collections
+        // are not streamed, their toString may be overridden, e.g. to write JSON, or differ for their elements.
+        IterableSerializer iterableSerializer = IterableSerializer.delimited("[", ", ", "]")
+                                                                  .withElementSerializer(this::processElement);
+        defaults.put(Iterator.class, iterableSerializer);
+        defaults.put(BaseStream.class, iterableSerializer);
 
-        this.root = bytesSerializer;
+        CharSequenceSerializer charSequenceSerializer = new CharSequenceSerializer();
+        defaults.put(CharSequence.class, charSequenceSerializer::process);
+        defaults.put(Object.class, new DefaultSerializer(charSequenceSerializer)::process);
+
+        update(defaults);
     }
 
     /**
@@ -50,7 +133,67 @@ public final class SerializerChain {
      * @throws IOException in the case of IO error.
      */
     public void process(OutputStream outputStream, Object element) throws IOException {
-        this.root.processElement(outputStream, element);
+        serializers.get(element.getClass()).serialize(outputStream, element);
+    }
+
+    private void processElement(OutputStream outputStream, Object element) throws IOException {
+        if (element == null) {
+            outputStream.write(NULL);
+        } else {
+            process(outputStream, element);
+        }
+    }
+
+    private void update(Map<Class<?>, TypedSerializer<Object>> registered) {
+        Map<Class<?>, TypedSerializer<Object>> snapshot = Collections.unmodifiableMap(registered);
+
+        this.registered = snapshot;
+        this.serializers = new ClassValue<TypedSerializer<Object>>() {
+            @Override
+            protected TypedSerializer<Object> computeValue(Class<?> type) {
+                return lookup(snapshot, type);
+            }
+        };
+    }
+
+    private static TypedSerializer<Object> lookup(Map<Class<?>, TypedSerializer<Object>> registered, Class<?> type) {
+        for (Class<?> superclass = type; superclass != null && superclass != Object.class;
+             superclass = superclass.getSuperclass()) {
+            TypedSerializer<Object> serializer = registered.get(superclass);
+            if (serializer != null) {
+                return serializer;
+            }
+        }
+
+        // Arrays of subclasses, e.g. MappedByteBuffer[] for ByteBuffer[]
+        if (type.isArray() && !type.getComponentType().isPrimitive()) {
+            for (Class<?> component = type.getComponentType().getSuperclass(); component != null;
+                 component = component.getSuperclass()) {
+                TypedSerializer<Object> serializer = registered.get(Array.newInstance(component, 0).getClass());
+                if (serializer != null) {
+                    return serializer;
+                }
+            }
+        }
+
+        // Interfaces closest to the type first
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> superclass = type; superclass != null; superclass = superclass.getSuperclass()) {
+            Collections.addAll(interfaces, superclass.getInterfaces());
+        }
+        Set<Class<?>> visited = new HashSet<>();
+        while (!interfaces.isEmpty()) {
+            Class<?> candidate = interfaces.poll();
+            if (visited.add(candidate)) {
+                TypedSerializer<Object> serializer = registered.get(candidate);
+                if (serializer != null) {
+                    return serializer;
+                }
+                Collections.addAll(interfaces, candidate.getInterfaces());
+            }
+        }
+
+        return registered.get(Object.class);
     }
 
 }
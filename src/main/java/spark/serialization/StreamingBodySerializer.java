@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import spark.StreamingBody;
+
+/**
+ * Streaming body serializer, lets the body write itself to the output.
+ */
+class StreamingBodySerializer extends Serializer {
+
+    @Override
+    public boolean canProcess(Object element) {
+        return element instanceof StreamingBody;
+    }
+
+    @Override
+    public void process(OutputStream outputStream, Object element) throws IOException {
+        StreamingOutput output = new StreamingOutput(outputStream);
+        try {
+            ((StreamingBody) element).writeTo(output);
+            output.flushWriter();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            output.open = false;
+        }
+    }
+
+    private static final class StreamingOutput implements StreamingBody.Output, WritableByteChannel {
+
+        private final OutputStream outputStream;
+
+        private Writer writer;
+        private volatile boolean open = true;
+
+        private StreamingOutput(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public OutputStream outputStream() throws IOException {
+            flushWriter();
+            return outputStream;
+        }
+
+        @Override
+        public Writer writer() {
+            if (writer == null) {
+                writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            }
+            return writer;
+        }
+
+        @Override
+        public WritableByteChannel channel() throws IOException {
+            flushWriter();
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushWriter();
+            outputStream.flush();
+        }
+
+        @Override
+        public int write(ByteBuffer buffer) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int length = buffer.remaining();
+            BytesSerializer.write(outputStream, buffer);
+            buffer.position(buffer.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            // The response is closed when the body has been written
+        }
+
+        private void flushWriter() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+    }
+
+}
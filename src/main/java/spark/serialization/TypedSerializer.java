@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes route results of a type to the response, see {@link SerializerChain#register(Class, TypedSerializer)}.
+ *
+ * @param <T> the type of the results
+ */
+@FunctionalInterface
+public interface TypedSerializer<T> {
+
+    /**
+     * Serializes a result to the response output stream.
+     *
+     * @param outputStream the output stream of the response, may compress the written bytes.
+     * @param element      the result, never null.
+     * @throws IOException in the case of IO error.
+     */
+    void serialize(OutputStream outputStream, T element) throws IOException;
+
+}
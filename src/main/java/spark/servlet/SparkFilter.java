@@ -35,6 +35,7 @@ import spark.ExceptionMapper;
 import spark.globalstate.ServletFlag;
 import spark.http.matching.MatcherFilter;
 import spark.route.ServletRoutes;
+import spark.serialization.SerializerChain;
 import spark.staticfiles.StaticFilesConfiguration;
 import spark.utils.StringUtils;
 
@@ -49,6 +50,7 @@ public class SparkFilter implements Filter {
     private static final Logger LOG = LoggerFactory.getLogger(SparkFilter.class);
 
     public static final String APPLICATION_CLASS_PARAM = "applicationClass";
+    public static final String ASYNC_TIMEOUT_PARAM = "asyncTimeoutMillis";
 
     private String filterPath;
 
@@ -72,7 +74,17 @@ public class SparkFilter implements Filter {
 
         filterPath = FilterTools.getFilterPath(filterConfig);
 
-        matcherFilter = new MatcherFilter(ServletRoutes.get(), StaticFilesConfiguration.servletInstance, ExceptionMapper.getServletInstance(), true, false);
+        matcherFilter = new MatcherFilter(ServletRoutes.get(),
+                                          StaticFilesConfiguration.servletInstance,
+                                          ExceptionMapper.getServletInstance(),
+                                          SerializerChain.getServletInstance(),
+                                          true,
+                                          false);
+
+        String asyncTimeout = filterConfig.getInitParameter(ASYNC_TIMEOUT_PARAM);
+        if (StringUtils.isNotBlank(asyncTimeout)) {
+            matcherFilter.setAsyncTimeoutMillis(Long.parseLong(asyncTimeout.trim()));
+        }
     }
 
     /**
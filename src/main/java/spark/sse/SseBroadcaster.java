@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A group of Server-Sent Events clients that events are sent to together, e.g. the viewers of a dashboard. An event
+ * is encoded once for all clients and queued for each of them, no thread is held per client.
+ * <p>
+ * Clients are removed from the group when they are closed. Clients that are not keeping up are closed after the
+ * events queued for them are sent, they can reconnect and continue from the last event they received.
+ */
+public final class SseBroadcaster {
+
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adds a client to the group.
+     *
+     * @param emitter the emitter of the client
+     */
+    public void add(SseEmitter emitter) {
+        if (emitters.add(emitter)) {
+            emitter.onClose(() -> emitters.remove(emitter));
+        }
+    }
+
+    /**
+     * Removes a client from the group, without closing it.
+     *
+     * @param emitter the emitter of the client
+     */
+    public void remove(SseEmitter emitter) {
+        emitters.remove(emitter);
+    }
+
+    /**
+     * @return the number of clients in the group
+     */
+    public int size() {
+        return emitters.size();
+    }
+
+    /**
+     * Sends an event with the data to all clients in the group.
+     *
+     * @param data the data, may contain line breaks
+     * @return the number of clients the event was queued for
+     */
+    public int broadcast(String data) {
+        return broadcast(SseEvent.of(data));
+    }
+
+    /**
+     * Sends an event to all clients in the group.
+     *
+     * @param event the event
+     * @return the number of clients the event was queued for
+     */
+    public int broadcast(SseEvent event) {
+        byte[] bytes = event.encode();
+
+        int sent = 0;
+        for (SseEmitter emitter : emitters) {
+            if (emitter.enqueue(bytes)) {
+                sent++;
+            } else {
+                // Closed, or not keeping up
+                emitters.remove(emitter);
+                emitter.close();
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Closes all clients in the group after sending the queued events.
+     */
+    public void close() {
+        for (SseEmitter emitter : emitters) {
+            emitters.remove(emitter);
+            emitter.close();
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.admission.AdmissionControl;
+
+/**
+ * Sends events to a client connected to a Server-Sent Events endpoint. Can be used from any thread.
+ * <p>
+ * Events are queued and written with non-blocking IO, so no thread waits for a slow client. If the events queued
+ * for a client exceed a limit the client is not keeping up, further events are not queued until it has caught up.
+ * A comment is sent as heartbeat when no event has been sent for a while, so idle connections are neither closed
+ * by proxies nor kept open after the client is gone.
+ */
+public final class SseEmitter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SseEmitter.class);
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private static final byte[] HEARTBEAT = SseEvent.comment("");
+
+    private static ScheduledExecutorService heartbeats;
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final long heartbeatNanos;
+    private final long maxQueuedBytes;
+
+    // Guarded by this
+    private final Deque<byte[]> queue = new ArrayDeque<>();
+    private final List<Runnable> closeListeners = new ArrayList<>();
+    private long queuedBytes;
+    private ServletOutputStream outputStream;
+    private AsyncContext asyncContext;
+    private ScheduledFuture<?> heartbeat;
+    private boolean flushNeeded;
+    private boolean closing;
+    private boolean closed;
+
+    private volatile long lastWrite;
+
+    SseEmitter(HttpServletRequest request, HttpServletResponse response, long heartbeatMillis, long maxQueuedBytes) {
+        this.request = request;
+        this.response = response;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Sends an event with the data.
+     *
+     * @param data the data, may contain line breaks
+     * @return false if the event was not queued because the emitter is closed or the client is not keeping up
+     */
+    public boolean send(String data) {
+        return send(SseEvent.of(data));
+    }
+
+    /**
+     * Sends an event.
+     *
+     * @param event the event
+     * @return false if the event was not queued because the emitter is closed or the client is not keeping up
+     */
+    public boolean send(SseEvent event) {
+        return enqueue(event.encode());
+    }
+
+    /**
+     * Sends a comment, which clients ignore.
+     *
+     * @param comment the comment
+     * @return false if the comment was not queued because the emitter is closed or the client is not keeping up
+     */
+    public boolean comment(String comment) {
+        return enqueue(SseEvent.comment(comment));
+    }
+
+    /**
+     * @return the id of the last event a reconnecting client received, null if not reconnecting
+     */
+    public String lastEventId() {
+        return request.getHeader(LAST_EVENT_ID);
+    }
+
+    /**
+     * @return false once the emitter is closed, or closing after sending the queued events
+     */
+    public synchronized boolean isOpen() {
+        return !closing && !closed;
+    }
+
+    /**
+     * @return the number of bytes queued and not yet written
+     */
+    public synchronized long queuedBytes() {
+        return queuedBytes;
+    }
+
+    /**
+     * Adds a listener called once the emitter is closed, by the server or because the client is gone. Called right
+     * away if already closed.
+     *
+     * @param listener the listener
+     */
+    public void onClose(Runnable listener) {
+        synchronized (this) {
+            if (!closed) {
+                closeListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Closes the connection after sending the queued events.
+     */
+    public void close() {
+        boolean completed;
+        synchronized (this) {
+            if (closing || closed) {
+                return;
+            }
+            closing = true;
+            completed = outputStream != null && drain();
+        }
+        if (completed) {
+            closed();
+        }
+    }
+
+    /**
+     * Starts sending events, after the response headers are final.
+     */
+    void start() throws IOException {
+        synchronized (this) {
+            asyncContext = request.startAsync();
+            // Open until closed
+            asyncContext.setTimeout(0);
+            request.setAttribute(AdmissionControl.STREAM_ATTRIBUTE, Boolean.TRUE);
+            asyncContext.addListener(new Listener());
+
+            outputStream = response.getOutputStream();
+            // Commits the response, so clients know they are connected
+            flushNeeded = true;
+            lastWrite = System.nanoTime();
+            outputStream.setWriteListener(new WriteListener() {
+                @Override
+                public void onWritePossible() {
+                    write();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    LOG.debug("Server-Sent Events connection failed", t);
+                    abort();
+                }
+            });
+
+            if (heartbeatNanos > 0) {
+                heartbeat = heartbeats().scheduleWithFixedDelay(this::heartbeat,
+                                                                heartbeatNanos,
+                                                                heartbeatNanos,
+                                                                TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    boolean enqueue(byte[] bytes) {
+        boolean completed;
+        synchronized (this) {
+            if (closing || closed) {
+                return false;
+            }
+            if (!queue.isEmpty() && queuedBytes + bytes.length > maxQueuedBytes) {
+                return false;
+            }
+            queue.add(bytes);
+            queuedBytes += bytes.length;
+
+            completed = outputStream != null && drain();
+        }
+        if (completed) {
+            closed();
+        }
+        return true;
+    }
+
+    private void write() {
+        boolean completed;
+        synchronized (this) {
+            completed = drain();
+        }
+        if (completed) {
+            closed();
+        }
+    }
+
+    /**
+     * Writes queued events as long as the output is ready, without blocking.
+     *
+     * @return true if the emitter was closing, and is now closed
+     */
+    private boolean drain() {
+        if (closed) {
+            return false;
+        }
+        try {
+            while (outputStream.isReady()) {
+                byte[] bytes = queue.poll();
+                if (bytes != null) {
+                    queuedBytes -= bytes.length;
+                    outputStream.write(bytes);
+                    flushNeeded = true;
+                    lastWrite = System.nanoTime();
+                } else if (flushNeeded) {
+                    flushNeeded = false;
+                    outputStream.flush();
+                } else {
+                    if (closing) {
+                        complete();
+                        return true;
+                    }
+                    return false;
+                }
+            }
+            return false;
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("Server-Sent Events connection failed", e);
+            complete();
+            return true;
+        }
+    }
+
+    private void heartbeat() {
+        if (System.nanoTime() - lastWrite >= heartbeatNanos) {
+            enqueue(HEARTBEAT);
+        }
+    }
+
+    /**
+     * Closes without sending the queued events, e.g. when the client is gone.
+     */
+    private void abort() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            complete();
+        }
+        closed();
+    }
+
+    private void complete() {
+        closed = true;
+        queue.clear();
+        queuedBytes = 0;
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    private void closed() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(closeListeners);
+            closeListeners.clear();
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Server-Sent Events close listener failed", e);
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService heartbeats() {
+        if (heartbeats == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "spark-sse-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            heartbeats = executor;
+        }
+        return heartbeats;
+    }
+
+    private final class Listener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            LOG.debug("Server-Sent Events connection failed", event.getThrowable());
+            abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+    }
+
+}
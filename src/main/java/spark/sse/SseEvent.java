@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An event sent to Server-Sent Events clients, with its data and optionally an id, a name and a reconnection time.
+ */
+public final class SseEvent {
+
+    private final String data;
+    private final String id;
+    private final String name;
+    private final long retryMillis;
+
+    private SseEvent(String data, String id, String name, long retryMillis) {
+        this.data = data;
+        this.id = id;
+        this.name = name;
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * @param data the data, may contain line breaks
+     * @return an event with the data
+     */
+    public static SseEvent of(String data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return new SseEvent(data, null, null, -1);
+    }
+
+    /**
+     * @param id the id, sent back by reconnecting clients in the Last-Event-ID header
+     * @return an event like this one with the id
+     */
+    public SseEvent withId(String id) {
+        return new SseEvent(data, singleLine(id, "id"), name, retryMillis);
+    }
+
+    /**
+     * @param name the event type, dispatched to the listeners of the type by browsers
+     * @return an event like this one with the name
+     */
+    public SseEvent withName(String name) {
+        return new SseEvent(data, id, singleLine(name, "name"), retryMillis);
+    }
+
+    /**
+     * @param retryMillis the time clients wait before reconnecting after the connection is lost
+     * @return an event like this one with the reconnection time
+     */
+    public SseEvent withRetry(long retryMillis) {
+        if (retryMillis < 0) {
+            throw new IllegalArgumentException("retryMillis must not be negative");
+        }
+        return new SseEvent(data, id, name, retryMillis);
+    }
+
+    public String data() {
+        return data;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the reconnection time, -1 if not set
+     */
+    public long retryMillis() {
+        return retryMillis;
+    }
+
+    /**
+     * @return the event in the event stream format
+     */
+    byte[] encode() {
+        StringBuilder event = new StringBuilder(data.length() + 32);
+        if (id != null) {
+            event.append("id: ").append(id).append('\n');
+        }
+        if (name != null) {
+            event.append("event: ").append(name).append('\n');
+        }
+        if (retryMillis >= 0) {
+            event.append("retry: ").append(retryMillis).append('\n');
+        }
+        appendLines(event, "data: ", data);
+        event.append('\n');
+        return event.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a comment in the event stream format, ignored by clients
+     */
+    static byte[] comment(String comment) {
+        StringBuilder event = new StringBuilder(comment.length() + 8);
+        appendLines(event, ": ", comment);
+        event.append('\n');
+        return event.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendLines(StringBuilder event, String field, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n') {
+                event.append(field).append(value, start, i).append('\n');
+                if (c == '\r' && i + 1 < value.length() && value.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        event.append(field).append(value, start, value.length()).append('\n');
+    }
+
+    private static String singleLine(String value, String field) {
+        if (value != null && (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)) {
+            throw new IllegalArgumentException(field + " must not contain line breaks");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "SseEvent{id=" + id + ", name=" + name + ", data=" + data + "}";
+    }
+
+}
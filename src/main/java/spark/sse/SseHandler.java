@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import spark.Request;
+
+/**
+ * Handles a client connecting to a Server-Sent Events endpoint.
+ */
+@FunctionalInterface
+public interface SseHandler {
+
+    /**
+     * Invoked when a client connects. Events can be sent through the emitter right away or later from any thread,
+     * e.g. after adding it to a {@link SseBroadcaster}. Events sent before this returns are written after the after
+     * filters have run.
+     *
+     * @param request The request object providing information about the HTTP request
+     * @param emitter The emitter sending events to the client
+     * @throws java.lang.Exception implementation can choose to throw exception, the client is not connected then
+     */
+    void handle(Request request, SseEmitter emitter) throws Exception;
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.sse;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import spark.StreamingBody;
+
+/**
+ * Route of a Server-Sent Events endpoint, keeping the response open through servlet async until the emitter is
+ * closed. When Spark runs in a servlet container, the Spark filter must support async.
+ */
+public final class SseRoute implements Route {
+
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 15_000;
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+
+    private static final String EVENT_STREAM = "text/event-stream;charset=utf-8";
+
+    private final SseHandler handler;
+    private final long heartbeatMillis;
+    private final long maxQueuedBytes;
+
+    /**
+     * @param handler the handler of connecting clients
+     */
+    public SseRoute(SseHandler handler) {
+        this(handler, DEFAULT_HEARTBEAT_MILLIS, DEFAULT_MAX_QUEUED_BYTES);
+    }
+
+    /**
+     * @param handler         the handler of connecting clients
+     * @param heartbeatMillis the time without events after which a heartbeat is sent, 0 for no heartbeats. Should be
+     *                        shorter than the idle timeout of the server and proxies.
+     * @param maxQueuedBytes  the bytes of events that may be queued for a client, further events are not queued
+     */
+    public SseRoute(SseHandler handler, long heartbeatMillis, long maxQueuedBytes) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        if (heartbeatMillis < 0 || maxQueuedBytes <= 0) {
+            throw new IllegalArgumentException("heartbeatMillis must not be negative and maxQueuedBytes positive");
+        }
+        this.handler = handler;
+        this.heartbeatMillis = heartbeatMillis;
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        response.type(EVENT_STREAM);
+        response.header("Cache-Control", "no-cache");
+        // Proxies such as nginx should not buffer the events
+        response.header("X-Accel-Buffering", "no");
+
+        SseEmitter emitter = new SseEmitter(request.raw(), response.raw(), heartbeatMillis, maxQueuedBytes);
+        handler.handle(request, emitter);
+
+        // Started when the body is written, after the after filters
+        return (StreamingBody) output -> emitter.start();
+    }
+
+}
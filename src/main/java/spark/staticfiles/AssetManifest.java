@@ -0,0 +1,283 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.AbstractResourceHandler;
+
+/**
+ * Maps the paths of static files to fingerprinted paths holding a hash of the content, e.g. /app.js to
+ * /app.3f9a1c2b.js. A fingerprinted path always refers to the same content, so it can be cached forever.
+ * <p>
+ * Built from the files the resource handlers could list and updated by the watcher of the static files. Without a
+ * watcher, a file is checked for changes at most once per {@link #CHECK_INTERVAL_NANOS} when it is looked up. A
+ * changed file is hashed again, its old fingerprinted path is then no longer served.
+ */
+final class AssetManifest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetManifest.class);
+
+    // Hex digits of the content hash in a fingerprinted path
+    private static final int FINGERPRINT_LENGTH = 8;
+
+    // How long a file is assumed unchanged after it was checked
+    static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EntityTags entityTags;
+
+    // Read without locking, changed only while holding the lock of the manifest
+    private final Map<String, Entry> byPath = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byFingerprintedPath = new ConcurrentHashMap<>();
+
+    private AssetManifest(EntityTags entityTags) {
+        this.entityTags = entityTags;
+    }
+
+    /**
+     * Hashes all files the handlers can list. Files served by an earlier handler hide those of later ones.
+     *
+     * @param handlers   the resource handlers, in the order they are consulted
+     * @param entityTags the entity tags the hashes are taken from
+     * @return the manifest
+     */
+    static AssetManifest build(List<AbstractResourceHandler> handlers, EntityTags entityTags) {
+        AssetManifest manifest = new AssetManifest(entityTags);
+
+        for (AbstractResourceHandler handler : handlers) {
+            for (String path : handler.getFilePaths()) {
+                if (manifest.byPath.containsKey(path)) {
+                    continue;
+                }
+                try {
+                    AbstractFileResolvingResource resource = handler.getResourceByPath(path);
+                    if (resource != null && resource.isReadable()) {
+                        manifest.add(manifest.entryOf(handler, path, resource));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("Static file {} can not be fingerprinted: {}", path, e.getMessage());
+                }
+            }
+        }
+
+        LOG.debug("Fingerprinted {} static files", manifest.byPath.size());
+        return manifest;
+    }
+
+    /**
+     * @param path the path of a static file
+     * @return the fingerprinted path or null if the file is not known
+     */
+    String fingerprintedPath(String path) {
+        Entry entry = current(byPath.get(path));
+        return entry != null ? entry.fingerprintedPath : null;
+    }
+
+    /**
+     * @param fingerprintedPath a requested path
+     * @return the file or null if the path is not the fingerprinted path of the current version of a file
+     */
+    Entry get(String fingerprintedPath) {
+        Entry current = current(byFingerprintedPath.get(fingerprintedPath));
+        return current != null && current.fingerprintedPath.equals(fingerprintedPath) ? current : null;
+    }
+
+    /**
+     * Updates the manifest after a file or directory of a handler was created, modified or deleted.
+     *
+     * @param handler the handler
+     * @param path    the path of the file or directory, relative to the location of the handler
+     */
+    void update(AbstractResourceHandler handler, String path) {
+        String changed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        synchronized (this) {
+            byPath.values().removeIf(entry -> entry.handler == handler
+                    && FilePaths.isSameOrBelow(entry.path, changed, '/'));
+            byFingerprintedPath.values().removeIf(entry -> entry.handler == handler
+                    && FilePaths.isSameOrBelow(entry.path, changed, '/'));
+        }
+
+        for (String file : handler.getFilePaths()) {
+            if (!FilePaths.isSameOrBelow(file, changed, '/')) {
+                continue;
+            }
+            try {
+                AbstractFileResolvingResource resource = handler.getResourceByPath(file);
+                if (resource != null && resource.isReadable()) {
+                    Entry entry = entryOf(handler, file, resource);
+                    synchronized (this) {
+                        // Files served by another handler are not replaced
+                        if (!byPath.containsKey(file)) {
+                            add(entry);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.debug("Static file {} can not be fingerprinted: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hashes a file again if it has changed since it was hashed. Recently checked files are not checked again.
+     */
+    private Entry current(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - entry.checkedAt < CHECK_INTERVAL_NANOS) {
+            return entry;
+        }
+
+        try {
+            long lastModified = lastModifiedOf(entry.resource);
+            if (lastModified == entry.lastModified && entry.resource.contentLength() == entry.length) {
+                entry.checkedAt = now;
+                return entry;
+            }
+            if (!entry.resource.exists()) {
+                remove(entry);
+                return null;
+            }
+
+            Entry changed = entryOf(entry.handler, entry.path, entry.resource);
+            replace(entry, changed);
+            return changed;
+        } catch (IOException e) {
+            LOG.debug("Static file {} can not be fingerprinted: {}", entry.path, e.getMessage());
+            remove(entry);
+            return null;
+        }
+    }
+
+    private Entry entryOf(AbstractResourceHandler handler,
+                          String path,
+                          AbstractFileResolvingResource resource) throws IOException {
+        long lastModified = lastModifiedOf(resource);
+        long length = resource.contentLength();
+        String etag = entityTags.of(resource, lastModified);
+
+        return new Entry(handler, path, etag.substring(1, 1 + FINGERPRINT_LENGTH), resource, lastModified, length);
+    }
+
+    private synchronized void add(Entry entry) {
+        byPath.put(entry.path, entry);
+        byFingerprintedPath.put(entry.fingerprintedPath, entry);
+    }
+
+    private synchronized void replace(Entry stale, Entry entry) {
+        if (byPath.get(stale.path) == stale) {
+            byFingerprintedPath.remove(stale.fingerprintedPath);
+            add(entry);
+        }
+    }
+
+    private synchronized void remove(Entry entry) {
+        byPath.remove(entry.path, entry);
+        byFingerprintedPath.remove(entry.fingerprintedPath, entry);
+    }
+
+    /**
+     * Inserts the fingerprint before the extension of the file name, or appends it if there is none.
+     */
+    static String fingerprint(String path, String fingerprint) {
+        int nameStart = path.lastIndexOf('/') + 1;
+        int extension = path.lastIndexOf('.');
+
+        if (extension <= nameStart) {
+            return path + "." + fingerprint;
+        }
+        return path.substring(0, extension) + "." + fingerprint + path.substring(extension);
+    }
+
+    private static long lastModifiedOf(AbstractFileResolvingResource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Not known, e.g. for resources in an archive
+            return 0;
+        }
+    }
+
+    /**
+     * A fingerprinted static file.
+     */
+    static final class Entry {
+
+        private final AbstractResourceHandler handler;
+        private final String path;
+        private final String fingerprint;
+        private final String fingerprintedPath;
+        private final AbstractFileResolvingResource resource;
+        private final long lastModified;
+        private final long length;
+
+        // When the file was last found unchanged, as System.nanoTime()
+        private volatile long checkedAt = System.nanoTime();
+
+        private Entry(AbstractResourceHandler handler,
+                      String path,
+                      String fingerprint,
+                      AbstractFileResolvingResource resource,
+                      long lastModified,
+                      long length) {
+            this.handler = handler;
+            this.path = path;
+            this.fingerprint = fingerprint;
+            this.fingerprintedPath = fingerprint(path, fingerprint);
+            this.resource = resource;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        AbstractResourceHandler handler() {
+            return handler;
+        }
+
+        /**
+         * @return the path of the file without fingerprint
+         */
+        String path() {
+            return path;
+        }
+
+        AbstractFileResolvingResource resource() {
+            return resource;
+        }
+
+        /**
+         * A file may change before it is checked again, the content sent for a fingerprinted path must still match.
+         *
+         * @param etag the entity tag of the content about to be sent
+         * @return true if the content is the one the fingerprint was taken from
+         */
+        boolean isFingerprintOf(String etag) {
+            return etag.regionMatches(1, fingerprint, 0, FINGERPRINT_LENGTH);
+        }
+    }
+
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import spark.resource.AbstractFileResolvingResource;
+
+/**
+ * Byte range requests (RFC 7233) for static files: parses the Range header, evaluates If-Range and sends the
+ * requested parts as 206 Partial Content, a single part directly and several parts as multipart/byteranges.
+ * <p>
+ * Ranges are always served from the unencoded file.
+ *
+ * @author Per Wendel
+ */
+final class ByteRanges {
+
+    static final String ACCEPT_RANGES = "Accept-Ranges";
+    static final String BYTES = "bytes";
+
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    // More ranges than this are not worth the overhead of the multipart response, the whole file is sent instead
+    private static final int MAX_RANGES = 16;
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    // Hide constructor
+    private ByteRanges() {
+    }
+
+    /**
+     * The source ranges are read from.
+     */
+    interface Content {
+
+        /**
+         * @return the length in bytes
+         */
+        long length();
+
+        /**
+         * Writes a part of the content.
+         *
+         * @param outputStream the stream to write to
+         * @param range        the part to write
+         * @throws IOException in case of IO error.
+         */
+        void write(OutputStream outputStream, Range range) throws IOException;
+    }
+
+    /**
+     * A satisfiable byte range, first and last byte inclusive.
+     */
+    static final class Range {
+
+        final long first;
+        final long last;
+
+        Range(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        long length() {
+            return last - first + 1;
+        }
+
+        String contentRange(long length) {
+            return BYTES + " " + first + "-" + last + "/" + length;
+        }
+
+        @Override
+        public String toString() {
+            return first + "-" + last;
+        }
+    }
+
+    /**
+     * @param httpRequest the HTTP servlet request.
+     * @return true if the request asks for ranges
+     */
+    static boolean isRequested(HttpServletRequest httpRequest) {
+        return httpRequest.getHeader(RANGE) != null && "GET".equals(httpRequest.getMethod());
+    }
+
+    /**
+     * Sends the ranges of the content a request {@link #isRequested(HttpServletRequest) asking for ranges} asks for.
+     *
+     * @param httpRequest  the HTTP servlet request.
+     * @param httpResponse the HTTP servlet response, with Content-Type and custom headers set.
+     * @param content      the content
+     * @param etag         the entity tag of the content
+     * @param lastModified the modification time of the content in milliseconds, 0 if unknown
+     * @return true if a 206 or 416 response was sent, false if the whole content has to be sent
+     * @throws IOException in case of IO error.
+     */
+    static boolean send(HttpServletRequest httpRequest,
+                        HttpServletResponse httpResponse,
+                        Content content,
+                        String etag,
+                        long lastModified) throws IOException {
+
+        if (!isRangeValid(httpRequest, etag, lastModified)) {
+            return false;
+        }
+
+        long length = content.length();
+        List<Range> ranges = parse(httpRequest.getHeader(RANGE), length);
+
+        if (ranges == null) {
+            return false;
+        }
+
+        if (ranges.isEmpty()) {
+            httpResponse.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            httpResponse.setHeader(CONTENT_RANGE, BYTES + " */" + length);
+            httpResponse.setContentLength(0);
+            return true;
+        }
+
+        httpResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            httpResponse.setHeader(CONTENT_RANGE, range.contentRange(length));
+            httpResponse.setContentLengthLong(range.length());
+
+            try (OutputStream outputStream = httpResponse.getOutputStream()) {
+                content.write(outputStream, range);
+            }
+            return true;
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        String contentType = httpResponse.getContentType();
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (Range range : ranges) {
+            StringBuilder partHeader = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                partHeader.append(MimeType.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+            }
+            partHeader.append(CONTENT_RANGE).append(": ").append(range.contentRange(length)).append("\r\n\r\n");
+
+            byte[] bytes = partHeader.toString().getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + range.length();
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += end.length;
+
+        httpResponse.setContentType("multipart/byteranges; boundary=" + boundary);
+        httpResponse.setContentLengthLong(contentLength);
+
+        try (OutputStream outputStream = httpResponse.getOutputStream()) {
+            for (int i = 0; i < ranges.size(); i++) {
+                outputStream.write(partHeaders.get(i));
+                content.write(outputStream, ranges.get(i));
+            }
+            outputStream.write(end);
+        }
+        return true;
+    }
+
+    /**
+     * Parses a Range header. Overlapping and adjacent ranges are merged, and the ranges are sorted.
+     *
+     * @param header the Range header
+     * @param length the length of the content
+     * @return the satisfiable ranges, an empty list if none is satisfiable or null if the header is invalid and must
+     * be ignored
+     */
+    static List<Range> parse(String header, long length) {
+        int unitEnd = BYTES.length();
+        if (!header.regionMatches(true, 0, BYTES, 0, unitEnd)) {
+            return null;
+        }
+        int start = unitEnd;
+        while (start < header.length() && header.charAt(start) == ' ') {
+            start++;
+        }
+        if (start == header.length() || header.charAt(start) != '=') {
+            return null;
+        }
+
+        String[] specs = header.substring(start + 1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<Range> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    long suffix = parseNumber(spec.substring(1));
+                    if (suffix == 0 || length == 0) {
+                        continue;
+                    }
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                } else {
+                    first = parseNumber(spec.substring(0, dash));
+                    last = dash == spec.length() - 1 ? Long.MAX_VALUE : parseNumber(spec.substring(dash + 1));
+                    if (last < first) {
+                        return null;
+                    }
+                    if (first >= length) {
+                        continue;
+                    }
+                    last = Math.min(last, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            ranges.add(new Range(first, last));
+        }
+
+        return merge(ranges);
+    }
+
+    private static long parseNumber(String value) {
+        if (value.isEmpty() || value.charAt(0) == '+' || value.charAt(0) == '-') {
+            throw new NumberFormatException(value);
+        }
+        return Long.parseLong(value);
+    }
+
+    private static List<Range> merge(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(range -> range.first));
+
+        List<Range> merged = new ArrayList<>(ranges.size());
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range next = ranges.get(i);
+            if (next.first <= current.last + 1) {
+                current = new Range(current.first, Math.max(current.last, next.last));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * A range is only sent if the content still has the entity tag, or has not changed since the date, in If-Range.
+     */
+    private static boolean isRangeValid(HttpServletRequest httpRequest, String etag, long lastModified) {
+        String ifRange = httpRequest.getHeader(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison, weak tags never match
+            return ifRange.equals(etag);
+        }
+        if (lastModified <= 0) {
+            return false;
+        }
+
+        try {
+            // HTTP dates have a resolution of seconds
+            return httpRequest.getDateHeader(IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param content the content
+     * @return the content for sending ranges of it
+     */
+    static Content of(byte[] content) {
+        return new Content() {
+            @Override
+            public long length() {
+                return content.length;
+            }
+
+            @Override
+            public void write(OutputStream outputStream, Range range) throws IOException {
+                outputStream.write(content, (int) range.first, (int) range.length());
+            }
+        };
+    }
+
+    /**
+     * Ranges of files are read at their position. Resources that are not on the file system (e.g. in an archive) can
+     * only be read from the start.
+     *
+     * @param resource the resource
+     * @return the resource for sending ranges of it
+     * @throws IOException in case of IO error.
+     */
+    static Content of(AbstractFileResolvingResource resource) throws IOException {
+        File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system, e.g. in an archive
+            return new StreamContent(resource, resource.contentLength());
+        }
+        return new FileContent(file);
+    }
+
+    private static final class FileContent implements Content {
+
+        private final File file;
+        private final long length;
+
+        private FileContent(File file) {
+            this.file = file;
+            this.length = file.length();
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void write(OutputStream outputStream, Range range) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, range.length()));
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long position = range.first;
+                long remaining = range.length();
+
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("File " + file + " is shorter than " + (range.last + 1) + " bytes");
+                    }
+                    outputStream.write(buffer.array(), 0, read);
+                    position += read;
+                    remaining -= read;
+                }
+            }
+        }
+    }
+
+    private static final class StreamContent implements Content {
+
+        private final AbstractFileResolvingResource resource;
+        private final long length;
+
+        private StreamContent(AbstractFileResolvingResource resource, long length) {
+            this.resource = resource;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void write(OutputStream outputStream, Range range) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, range.length())];
+
+            try (InputStream inputStream = resource.getInputStream()) {
+                long skip = range.first;
+                while (skip > 0) {
+                    long skipped = inputStream.skip(skip);
+                    if (skipped <= 0) {
+                        if (inputStream.read() < 0) {
+                            throw new EOFException(resource + " is shorter than " + range.first + " bytes");
+                        }
+                        skipped = 1;
+                    }
+                    skip -= skipped;
+                }
+
+                long remaining = range.length();
+                while (remaining > 0) {
+                    int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException(resource + " is shorter than " + (range.last + 1) + " bytes");
+                    }
+                    outputStream.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+    }
+
+}
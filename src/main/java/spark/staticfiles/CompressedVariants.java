@@ -0,0 +1,365 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ClassPathResource;
+import spark.resource.ExternalResource;
+import spark.resource.Resource;
+import spark.utils.IOUtils;
+
+/**
+ * Compressed variants of static files. A file.ext.br or file.ext.gz next to a file is sent to clients accepting that
+ * encoding. Files without a gzip sibling are compressed once and the result is kept in memory, up to a configured
+ * number of bytes.
+ * <p>
+ * Variants are validated against the modification time and length of the file, so a changed file is compressed again.
+ */
+final class CompressedVariants {
+
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    static final String VARY = "Vary";
+
+    static final String BROTLI = "br";
+    static final String GZIP = "gzip";
+
+    // In order of preference
+    private static final String[] ENCODINGS = {BROTLI, GZIP};
+
+    // Files without variants take no bytes, but are remembered as well
+    private static final int MAX_VARIANTS = 4096;
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final LinkedHashMap<Key, Variant> variants = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param maxBytes the maximum number of compressed bytes to hold, files larger than a quarter of it are compressed
+     *                 while they are sent
+     */
+    CompressedVariants(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = maxBytes / 4;
+    }
+
+    /**
+     * @param httpRequest the HTTP servlet request.
+     * @return the encodings of which the client accepts variants, in order of preference
+     */
+    static List<String> accepted(HttpServletRequest httpRequest) {
+        Enumeration<String> headers = httpRequest.getHeaders(ACCEPT_ENCODING);
+        if (headers == null || !headers.hasMoreElements()) {
+            return Collections.emptyList();
+        }
+
+        boolean[] accepted = new boolean[ENCODINGS.length];
+        while (headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                int parameters = coding.indexOf(';');
+                String name = (parameters < 0 ? coding : coding.substring(0, parameters)).trim();
+                boolean rejected = parameters >= 0 && isZeroQuality(coding.substring(parameters + 1));
+
+                for (int i = 0; i < ENCODINGS.length; i++) {
+                    if (ENCODINGS[i].equalsIgnoreCase(name) && !rejected) {
+                        accepted[i] = true;
+                    }
+                }
+            }
+        }
+
+        List<String> encodings = new ArrayList<>(ENCODINGS.length);
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            if (accepted[i]) {
+                encodings.add(ENCODINGS[i]);
+            }
+        }
+        return encodings;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        String quality = parameters.trim().toLowerCase(Locale.ROOT);
+        if (!quality.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(quality.substring(2).trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the variant of a file in an encoding: a sibling file with the extension of the encoding or, for gzip,
+     * the file compressed in memory.
+     *
+     * @param resource     the file
+     * @param lastModified the modification time of the file in milliseconds, 0 if unknown
+     * @param content      the content of the file if it is in memory, otherwise null
+     * @param encoding     the encoding
+     * @return the variant or null if there is none and the file is sent unencoded or compressed while it is sent
+     * @throws IOException in case of IO error.
+     */
+    Variant get(AbstractFileResolvingResource resource,
+                long lastModified,
+                byte[] content,
+                String encoding) throws IOException {
+        long length = content != null ? content.length : resource.contentLength();
+        Key key = new Key(resource.getURL().toString(), encoding);
+
+        Variant variant;
+        synchronized (this) {
+            variant = variants.get(key);
+        }
+        if (variant != null && variant.lastModified == lastModified && variant.length == length) {
+            return variant.isPresent() ? variant : null;
+        }
+
+        variant = create(resource, lastModified, length, content, encoding);
+        if (variant.sibling != null) {
+            // Too large to hold, looked up again for every request
+            return variant;
+        }
+        put(key, variant);
+        return variant.isPresent() ? variant : null;
+    }
+
+    private Variant create(AbstractFileResolvingResource resource,
+                           long lastModified,
+                           long length,
+                           byte[] content,
+                           String encoding) throws IOException {
+
+        AbstractFileResolvingResource sibling = siblingOf(resource, "." + (GZIP.equals(encoding) ? "gz" : encoding));
+
+        if (sibling != null && isUpToDate(sibling, lastModified)) {
+            long siblingLength = sibling.contentLength();
+            if (siblingLength < 0 || siblingLength > maxFileBytes) {
+                return new Variant(encoding, null, sibling, lastModified, length);
+            }
+            try (InputStream inputStream = sibling.getInputStream()) {
+                return new Variant(encoding, IOUtils.toByteArray(inputStream), null, lastModified, length);
+            }
+        }
+
+        if (!GZIP.equals(encoding) || length < 0 || length > maxFileBytes) {
+            return new Variant(encoding, null, null, lastModified, length);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) Math.max(32, length / 2));
+        try (OutputStream outputStream = new BestCompressionOutputStream(compressed)) {
+            if (content != null) {
+                outputStream.write(content);
+            } else {
+                try (InputStream inputStream = resource.getInputStream()) {
+                    IOUtils.copy(inputStream, outputStream);
+                }
+            }
+        }
+        return new Variant(encoding, compressed.toByteArray(), null, lastModified, length);
+    }
+
+    private synchronized void put(Key key, Variant variant) {
+        Variant previous = variants.put(key, variant);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += variant.size();
+
+        Iterator<Variant> leastRecentlyUsed = variants.values().iterator();
+        while ((bytes > maxBytes || variants.size() > MAX_VARIANTS) && leastRecentlyUsed.hasNext()) {
+            bytes -= leastRecentlyUsed.next().size();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * @return the number of compressed bytes held
+     */
+    synchronized long size() {
+        return bytes;
+    }
+
+    synchronized void clear() {
+        variants.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Removes the variants of the file, or the files in the directory, at a URL. A changed sibling removes the
+     * variants of the file it belongs to.
+     *
+     * @param url the URL of the file or directory
+     */
+    synchronized void invalidate(String url) {
+        String file = url;
+        if (file.endsWith(".gz") || file.endsWith(".br")) {
+            file = file.substring(0, file.length() - 3);
+        }
+
+        Iterator<Map.Entry<Key, Variant>> entries = variants.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Variant> entry = entries.next();
+            if (FilePaths.isSameOrBelow(entry.getKey().url, file, '/')) {
+                bytes -= entry.getValue().size();
+                entries.remove();
+            }
+        }
+    }
+
+    private static AbstractFileResolvingResource siblingOf(AbstractFileResolvingResource resource,
+                                                           String extension) throws IOException {
+        File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system, e.g. in an archive
+            if (resource instanceof ClassPathResource) {
+                Resource sibling = resource.createRelative(resource.getFilename() + extension);
+                return sibling.exists() ? (AbstractFileResolvingResource) sibling : null;
+            }
+            return null;
+        }
+
+        File sibling = new File(file.getPath() + extension);
+        return sibling.isFile() ? new ExternalResource(sibling.getPath()) : null;
+    }
+
+    /**
+     * A variant older than the file it belongs to has not been generated from the current version of the file.
+     */
+    private static boolean isUpToDate(AbstractFileResolvingResource sibling, long lastModified) {
+        if (lastModified <= 0) {
+            return true;
+        }
+        try {
+            return sibling.lastModified() >= lastModified;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * A compressed variant of a file, held in memory or sent from a sibling file.
+     */
+    static final class Variant {
+
+        private final String encoding;
+        private final byte[] content;
+        private final AbstractFileResolvingResource sibling;
+        private final long lastModified;
+        private final long length;
+
+        private Variant(String encoding,
+                        byte[] content,
+                        AbstractFileResolvingResource sibling,
+                        long lastModified,
+                        long length) {
+            this.encoding = encoding;
+            this.content = content;
+            this.sibling = sibling;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        String encoding() {
+            return encoding;
+        }
+
+        /**
+         * @return the compressed content or null if the variant is sent from its file
+         */
+        byte[] content() {
+            return content;
+        }
+
+        /**
+         * @return the file the variant is sent from if it is not held in memory
+         */
+        AbstractFileResolvingResource sibling() {
+            return sibling;
+        }
+
+        private boolean isPresent() {
+            return content != null || sibling != null;
+        }
+
+        private long size() {
+            return content != null ? content.length : 0;
+        }
+    }
+
+    private static final class Key {
+
+        private final String url;
+        private final String encoding;
+
+        private Key(String url, String encoding) {
+            this.url = url;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return url.equals(other.url) && encoding.equals(other.encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * url.hashCode() + encoding.hashCode();
+        }
+    }
+
+    /**
+     * Files are compressed only once, so the best compression is worth its cost.
+     */
+    private static final class BestCompressionOutputStream extends GZIPOutputStream {
+
+        private BestCompressionOutputStream(OutputStream outputStream) throws IOException {
+            super(outputStream);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional requests (RFC 7232) for static files: sets ETag and Last-Modified and evaluates If-None-Match and
+ * If-Modified-Since.
+ * <p>
+ * Encoded responses carry the tag of the file with the encoding appended, e.g. "3f2a...-gzip". If-None-Match matches
+ * a tag regardless of the encoding appended to it.
+ *
+ * @author Per Wendel
+ */
+final class ConditionalRequests {
+
+    static final String ETAG = "ETag";
+
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    // IMF-fixdate, as sent by HttpServletResponse.setDateHeader
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    // Hide constructor
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Sets the ETag and, if known, the Last-Modified header.
+     *
+     * @param httpResponse the HTTP servlet response.
+     * @param etag         the entity tag of the file
+     * @param lastModified the modification time of the file in milliseconds, 0 if unknown
+     */
+    static void setValidators(HttpServletResponse httpResponse, String etag, long lastModified) {
+        httpResponse.setHeader(ETAG, etag);
+        if (lastModified > 0) {
+            httpResponse.setDateHeader(LAST_MODIFIED, lastModified);
+        }
+    }
+
+    /**
+     * Sets the ETag and, if known, the Last-Modified header from a date formatted up front by {@link #httpDate(long)}.
+     *
+     * @param httpResponse the HTTP servlet response.
+     * @param etag         the entity tag of the file
+     * @param lastModified the formatted modification time of the file, null if unknown
+     */
+    static void setValidators(HttpServletResponse httpResponse, String etag, String lastModified) {
+        httpResponse.setHeader(ETAG, etag);
+        if (lastModified != null) {
+            httpResponse.setHeader(LAST_MODIFIED, lastModified);
+        }
+    }
+
+    /**
+     * @param millis the time in milliseconds
+     * @return the time formatted as an HTTP date
+     */
+    static String httpDate(long millis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * @param httpRequest  the HTTP servlet request.
+     * @param etag         the entity tag of the file
+     * @param lastModified the modification time of the file in milliseconds, 0 if unknown
+     * @return true if the client has the current version of the file and a 304 Not Modified must be sent
+     */
+    static boolean isNotModified(HttpServletRequest httpRequest, String etag, long lastModified) {
+        String method = httpRequest.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+
+        String ifNoneMatch = httpRequest.getHeader(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when If-None-Match is sent
+            return matchesAny(ifNoneMatch, etag);
+        }
+
+        if (lastModified > 0 && httpRequest.getHeader(IF_MODIFIED_SINCE) != null) {
+            try {
+                // HTTP dates have a resolution of seconds
+                return lastModified / 1000 <= httpRequest.getDateHeader(IF_MODIFIED_SINCE) / 1000;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param etag     the entity tag of the file
+     * @param encoding the content coding, e.g. gzip
+     * @return the entity tag of the encoded file
+     */
+    static String encoded(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * Weak comparison of a list of entity tags with the tag of the file.
+     */
+    private static boolean matchesAny(String header, String etag) {
+        int length = header.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = header.charAt(i);
+            if (c == ' ' || c == ',' || c == '\t') {
+                i++;
+            } else if (c == '*') {
+                return true;
+            } else {
+                if (header.startsWith("W/", i)) {
+                    i += 2;
+                }
+                int end = header.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                if (matches(header.substring(i, end).trim(), etag)) {
+                    return true;
+                }
+                i = end;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String candidate, String etag) {
+        if (candidate.equals(etag)) {
+            return true;
+        }
+        // A tag of an encoded response
+        int hashEnd = etag.length() - 1;
+        return candidate.length() > etag.length()
+                && candidate.charAt(hashEnd) == '-'
+                && candidate.regionMatches(0, etag, 0, hashEnd)
+                && candidate.endsWith("\"");
+    }
+
+}
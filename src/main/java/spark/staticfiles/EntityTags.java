@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import spark.resource.AbstractFileResolvingResource;
+
+/**
+ * Strong entity tags of static files, derived from a hash of the content. Hashing a file means reading all of it, so
+ * the tags are cached by resource and computed again only when the modification time or length changes. Concurrent
+ * requests for a file that is not tagged yet wait for one hash instead of each reading the file, and the least
+ * recently used tags are evicted first.
+ */
+final class EntityTags {
+
+    private static final int MAX_CACHED_TAGS = 1024;
+
+    // Hex digits of the hash used in a tag
+    private static final int TAG_LENGTH = 32;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Tag> tags = new LinkedHashMap<String, Tag>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Tag> eldest) {
+            return size() > MAX_CACHED_TAGS;
+        }
+    };
+
+    /**
+     * @param resource     the resource
+     * @param lastModified the modification time of the resource in milliseconds, 0 if unknown
+     * @return the entity tag of the resource, quoted
+     * @throws IOException in case of IO error.
+     */
+    String of(AbstractFileResolvingResource resource, long lastModified) throws IOException {
+        long length = resource.contentLength();
+        String key = resource.getURL().toString();
+        Tag tag;
+        boolean computing = false;
+
+        synchronized (tags) {
+            tag = tags.get(key);
+            if (tag == null || tag.lastModified != lastModified || tag.length != length) {
+                tag = new Tag(lastModified, length);
+                tags.put(key, tag);
+                computing = true;
+            }
+        }
+
+        if (computing) {
+            try {
+                tag.value.complete(hash(resource));
+            } catch (Throwable e) {
+                synchronized (tags) {
+                    tags.remove(key, tag);
+                }
+                tag.value.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return tag.await();
+    }
+
+    void clear() {
+        synchronized (tags) {
+            tags.clear();
+        }
+    }
+
+    /**
+     * Removes the tags of the resource, or the resources in the directory, at a URL.
+     *
+     * @param url the URL of the resource or directory
+     */
+    void invalidate(String url) {
+        synchronized (tags) {
+            tags.keySet().removeIf(key -> FilePaths.isSameOrBelow(key, url, '/'));
+        }
+    }
+
+    /**
+     * @param content the content
+     * @return the entity tag of the content, quoted
+     */
+    static String of(byte[] content) {
+        return toTag(newDigest().digest(content));
+    }
+
+    private static String hash(AbstractFileResolvingResource resource) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream inputStream = resource.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toTag(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toTag(byte[] hash) {
+        char[] tag = new char[TAG_LENGTH + 2];
+        tag[0] = '"';
+        for (int i = 0; i < TAG_LENGTH / 2; i++) {
+            tag[1 + 2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            tag[2 + 2 * i] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        tag[TAG_LENGTH + 1] = '"';
+        return new String(tag);
+    }
+
+    private static final class Tag {
+
+        private final CompletableFuture<String> value = new CompletableFuture<>();
+        private final long lastModified;
+        private final long length;
+
+        private Tag(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private String await() throws IOException {
+            try {
+                return value.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the entity tag", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+}
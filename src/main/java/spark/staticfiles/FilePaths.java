@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+/**
+ * Matching of files against a changed file or directory.
+ *
+ * @author Per Wendel
+ */
+final class FilePaths {
+
+    // Hide constructor
+    private FilePaths() {
+    }
+
+    /**
+     * @param candidate the path or URL of a file
+     * @param changed   the path or URL of the changed file or directory, without trailing separator
+     * @param separator the separator of the path or URL
+     * @return true if the candidate is the changed file or is in the changed directory
+     */
+    static boolean isSameOrBelow(String candidate, String changed, char separator) {
+        return candidate.startsWith(changed)
+                && (candidate.length() == changed.length() || candidate.charAt(changed.length()) == separator);
+    }
+
+}
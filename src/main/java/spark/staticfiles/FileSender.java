@@ -0,0 +1,236 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.HttpOutput;
+
+import spark.resource.AbstractFileResolvingResource;
+
+/**
+ * Sends files on the file system through Jetty without copying them through the heap. Files are sent from their
+ * {@link FileChannel}, and frequently requested small files from a memory mapping that is kept between requests.
+ * <p>
+ * Only files of at most {@value #MAX_MAPPED_FILE_BYTES} bytes are mapped, and at most {@value #MAX_MAPPED_BYTES} bytes
+ * in total, dropping the least recently requested mappings first. Every request checks the length and modification
+ * time of the file before using its mapping, a mapping of a file that was changed is dropped.
+ * <p>
+ * Only works when the response is written by Jetty and not wrapped, e.g. not when it is GZIP encoded.
+ */
+final class FileSender {
+
+    // Number of requests after which a file is mapped into memory
+    private static final int MAPPING_THRESHOLD = 2;
+
+    private static final int MAX_TRACKED_FILES = 256;
+
+    static final long MAX_MAPPED_FILE_BYTES = 4 * 1024 * 1024;
+    static final long MAX_MAPPED_BYTES = 64 * 1024 * 1024;
+
+    private final long maxMappedFileBytes;
+    private final long maxMappedBytes;
+    private long mappedBytes;
+
+    private final Map<File, Mapping> mappings = new LinkedHashMap<File, Mapping>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Mapping> eldest) {
+            if (size() > MAX_TRACKED_FILES) {
+                unmap(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    FileSender() {
+        this(MAX_MAPPED_FILE_BYTES, MAX_MAPPED_BYTES);
+    }
+
+    FileSender(long maxMappedFileBytes, long maxMappedBytes) {
+        this.maxMappedFileBytes = maxMappedFileBytes;
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+    /**
+     * Sends a resource, if it is a file and the response is written by Jetty.
+     *
+     * @param resource     the resource
+     * @param httpResponse the HTTP servlet response.
+     * @return true if the resource was sent, false if it has to be copied to the response
+     * @throws IOException in case of IO error.
+     */
+    boolean send(AbstractFileResolvingResource resource, HttpServletResponse httpResponse) throws IOException {
+        ServletOutputStream outputStream = httpResponse.getOutputStream();
+        if (!(outputStream instanceof HttpOutput)) {
+            return false;
+        }
+
+        File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system, e.g. in an archive
+            return false;
+        }
+
+        HttpOutput httpOutput = (HttpOutput) outputStream;
+        ByteBuffer mapped = mapped(file);
+
+        if (mapped != null) {
+            httpResponse.setContentLengthLong(mapped.remaining());
+            httpOutput.sendContent(mapped);
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                httpResponse.setContentLengthLong(channel.size());
+                httpOutput.sendContent(channel);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the request and returns the memory mapped content if the file is small and requested frequently.
+     *
+     * @return the content or null if the file has to be sent from its channel
+     */
+    ByteBuffer mapped(File file) throws IOException {
+        long length = file.length();
+        if (length == 0 || length > maxMappedFileBytes) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+
+        Mapping mapping;
+        synchronized (mappings) {
+            mapping = mappings.get(file);
+            if (mapping == null || mapping.lastModified != lastModified || mapping.length != length) {
+                if (mapping != null) {
+                    unmap(mapping);
+                }
+                mapping = new Mapping(lastModified, length);
+                mappings.put(file, mapping);
+            }
+            if (mapping.buffer == null && ++mapping.requests < MAPPING_THRESHOLD) {
+                return null;
+            }
+        }
+
+        MappedByteBuffer buffer = mapping.buffer;
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() != length) {
+                    return null;
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+            synchronized (mappings) {
+                if (mappings.get(file) != mapping) {
+                    // Changed or evicted meanwhile, send this one mapping without keeping it
+                    return buffer;
+                }
+                if (mapping.buffer == null) {
+                    mapping.buffer = buffer;
+                    mappedBytes += length;
+                    evictOverBudget(mapping);
+                }
+                buffer = mapping.buffer;
+            }
+        }
+        // Each request reads through its own view of the shared mapping
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return the number of bytes currently mapped
+     */
+    long mappedBytes() {
+        synchronized (mappings) {
+            return mappedBytes;
+        }
+    }
+
+    // Callers hold the lock on mappings
+    private void evictOverBudget(Mapping keep) {
+        Iterator<Mapping> leastRecentlyUsed = mappings.values().iterator();
+        while (mappedBytes > maxMappedBytes && leastRecentlyUsed.hasNext()) {
+            Mapping mapping = leastRecentlyUsed.next();
+            if (mapping != keep && mapping.buffer != null) {
+                unmap(mapping);
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    // Callers hold the lock on mappings
+    private void unmap(Mapping mapping) {
+        if (mapping.buffer != null) {
+            mappedBytes -= mapping.length;
+            mapping.buffer = null;
+        }
+    }
+
+    void clear() {
+        synchronized (mappings) {
+            mappings.clear();
+            mappedBytes = 0;
+        }
+    }
+
+    /**
+     * Drops the mappings of the file, or the files in the directory, at a path.
+     *
+     * @param path the absolute path of the file or directory
+     */
+    void invalidate(String path) {
+        synchronized (mappings) {
+            Iterator<Map.Entry<File, Mapping>> entries = mappings.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<File, Mapping> entry = entries.next();
+                if (FilePaths.isSameOrBelow(entry.getKey().getAbsolutePath(), path, File.separatorChar)) {
+                    unmap(entry.getValue());
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Mapping {
+
+        private final long lastModified;
+        private final long length;
+        private int requests;
+        private volatile MappedByteBuffer buffer;
+
+        private Mapping(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a folder and its subfolders for files being created, modified or deleted, and reports the changes from a
+ * daemon thread.
+ */
+final class FolderWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FolderWatcher.class);
+
+    /**
+     * Receives the changes in a watched folder.
+     */
+    interface Listener {
+
+        /**
+         * A file or directory was created, modified or deleted.
+         *
+         * @param path the path, relative to the folder and starting with '/'
+         */
+        void changed(String path);
+
+        /**
+         * Changes were lost, e.g. because too many happened at once, so anything in the folder may have changed.
+         */
+        void overflowed();
+    }
+
+    private final Path root;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    private FolderWatcher(Path root, Listener listener, WatchService watchService) {
+        this.root = root;
+        this.listener = listener;
+        this.watchService = watchService;
+        this.thread = new Thread(this::run, "spark-static-files-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching a folder.
+     *
+     * @param folder   the folder
+     * @param listener the listener to report changes to
+     * @return the watcher or null if the folder can not be watched
+     */
+    static FolderWatcher start(File folder, Listener listener) {
+        WatchService watchService = null;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            FolderWatcher watcher = new FolderWatcher(folder.toPath(), listener, watchService);
+            watcher.register(watcher.root);
+            watcher.thread.start();
+            return watcher;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Static files folder {} can not be watched, changes are noticed when files are requested: {}",
+                     folder, e.getMessage());
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ignored) {
+                    // Nothing to do
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stops watching, no changes are reported after this returns.
+     */
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.debug("Error when closing watch service", e);
+        }
+        thread.interrupt();
+    }
+
+    private void register(Path directory) throws IOException {
+        try (Stream<Path> subdirectories = Files.walk(directory)) {
+            subdirectories.filter(Files::isDirectory).forEach(subdirectory -> {
+                try {
+                    WatchKey key = subdirectory.register(watchService,
+                                                         StandardWatchEventKinds.ENTRY_CREATE,
+                                                         StandardWatchEventKinds.ENTRY_MODIFY,
+                                                         StandardWatchEventKinds.ENTRY_DELETE);
+                    directories.put(key, subdirectory);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Can not watch " + subdirectory, e);
+                }
+            });
+        }
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                        listener.overflowed();
+                        continue;
+                    }
+
+                    Path changed = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        register(changed);
+                    }
+                    listener.changed("/" + root.relativize(changed).toString().replace(File.separatorChar, '/'));
+                } catch (ClosedWatchServiceException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Error when handling change in static files folder {}", root, e);
+                    listener.overflowed();
+                }
+            }
+
+            if (!key.reset()) {
+                directories.remove(key);
+            }
+        }
+    }
+
+}
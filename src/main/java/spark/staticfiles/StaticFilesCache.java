@@ -0,0 +1,275 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.AbstractResourceHandler;
+import spark.utils.IOUtils;
+
+/**
+ * In-memory cache of static files: the content, the guessed content type, the entity tag and, for files on the file
+ * system, the modification time used to notice changes. Header values are formatted once when a file is cached. Holds
+ * at most a configured number of bytes and evicts the least recently served files first.
+ */
+final class StaticFilesCache {
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final LinkedHashMap<Key, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param maxBytes the maximum number of bytes to hold, files larger than a quarter of it are not cached
+     */
+    StaticFilesCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = maxBytes / 4;
+    }
+
+    /**
+     * @param handler the handler the file is served by
+     * @param path    the requested path
+     * @return the cached file or null if it is not cached or has changed on disk since it was cached
+     */
+    Asset get(AbstractResourceHandler handler, String path) {
+        Key key = new Key(handler, path);
+        Asset asset;
+
+        synchronized (this) {
+            asset = assets.get(key);
+        }
+
+        if (asset != null && !asset.isUnchanged()) {
+            remove(key, asset);
+            return null;
+        }
+        return asset;
+    }
+
+    /**
+     * Reads a resource into the cache, unless it is too large.
+     *
+     * @param handler  the handler the file is served by
+     * @param path     the requested path
+     * @param resource the resolved resource
+     * @return the cached file or null if it is too large to be cached
+     * @throws IOException in case of IO error
+     */
+    Asset put(AbstractResourceHandler handler, String path, AbstractFileResolvingResource resource) throws IOException {
+        long length = resource.contentLength();
+        if (length < 0 || length > maxFileBytes) {
+            return null;
+        }
+
+        File file = fileOf(resource);
+        long lastModified = file != null ? file.lastModified() : 0;
+
+        byte[] content;
+        try (InputStream inputStream = resource.getInputStream()) {
+            content = IOUtils.toByteArray(inputStream);
+        }
+        if (content.length > maxFileBytes) {
+            return null;
+        }
+
+        Asset asset = new Asset(resource, content, MimeType.fromResource(resource), file, lastModified);
+        Key key = new Key(handler, path);
+
+        synchronized (this) {
+            Asset previous = assets.put(key, asset);
+            if (previous != null) {
+                bytes -= previous.content.length;
+            }
+            bytes += content.length;
+
+            Iterator<Asset> leastRecentlyUsed = assets.values().iterator();
+            while (bytes > maxBytes && leastRecentlyUsed.hasNext()) {
+                bytes -= leastRecentlyUsed.next().content.length;
+                leastRecentlyUsed.remove();
+            }
+        }
+        return asset;
+    }
+
+    /**
+     * @return the number of bytes held
+     */
+    synchronized long size() {
+        return bytes;
+    }
+
+    synchronized void clear() {
+        assets.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Removes the file, or the files in the directory, at a path on the file system.
+     *
+     * @param path the absolute path of the file or directory
+     */
+    synchronized void invalidate(String path) {
+        Iterator<Asset> cached = assets.values().iterator();
+        while (cached.hasNext()) {
+            Asset asset = cached.next();
+            if (asset.file != null && FilePaths.isSameOrBelow(asset.file.getAbsolutePath(), path, File.separatorChar)) {
+                bytes -= asset.content.length;
+                cached.remove();
+            }
+        }
+    }
+
+    private synchronized void remove(Key key, Asset asset) {
+        if (assets.remove(key, asset)) {
+            bytes -= asset.content.length;
+        }
+    }
+
+    private static File fileOf(AbstractFileResolvingResource resource) {
+        try {
+            return resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system, e.g. in an archive
+            return null;
+        }
+    }
+
+    /**
+     * A cached static file
+     */
+    static final class Asset {
+
+        private final AbstractFileResolvingResource resource;
+        private final byte[] content;
+        private final String contentType;
+        private final String etag;
+        private final String gzipEtag;
+        private final File file;
+        private final Path filePath;
+        private final long lastModified;
+        private final String lastModifiedHeader;
+
+        private Asset(AbstractFileResolvingResource resource,
+                      byte[] content,
+                      String contentType,
+                      File file,
+                      long lastModified) {
+            this.resource = resource;
+            this.content = content;
+            this.contentType = contentType;
+            this.etag = EntityTags.of(content);
+            this.gzipEtag = ConditionalRequests.encoded(etag, CompressedVariants.GZIP);
+            this.file = file;
+            this.filePath = file != null ? file.toPath() : null;
+            this.lastModified = lastModified;
+            this.lastModifiedHeader = lastModified > 0 ? ConditionalRequests.httpDate(lastModified) : null;
+        }
+
+        AbstractFileResolvingResource resource() {
+            return resource;
+        }
+
+        byte[] content() {
+            return content;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        /**
+         * @return the entity tag of the content, quoted
+         */
+        String etag() {
+            return etag;
+        }
+
+        /**
+         * @return the entity tag of the gzip encoded content, quoted
+         */
+        String gzipEtag() {
+            return gzipEtag;
+        }
+
+        /**
+         * @return the modification time of the file in milliseconds, 0 if not on the file system
+         */
+        long lastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the modification time of the file formatted for the Last-Modified header, null if not on the file
+         * system
+         */
+        String lastModifiedHeader() {
+            return lastModifiedHeader;
+        }
+
+        private boolean isUnchanged() {
+            if (filePath == null) {
+                return true;
+            }
+            try {
+                // One stat for both the modification time and the length
+                BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+                return attributes.lastModifiedTime().toMillis() == lastModified && attributes.size() == content.length;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final AbstractResourceHandler handler;
+        private final String path;
+
+        private Key(AbstractResourceHandler handler, String path) {
+            this.handler = handler;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return handler == other.handler && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(handler) + path.hashCode();
+        }
+    }
+
+}
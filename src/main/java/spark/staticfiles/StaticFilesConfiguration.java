@@ -16,11 +16,11 @@
  */
 package spark.staticfiles;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,11 +42,19 @@ import spark.utils.IOUtils;
 
 /**
  * Holds the static file configuration.
- * TODO: ETAG ?
  */
 public class StaticFilesConfiguration {
     private final Logger LOG = LoggerFactory.getLogger(StaticFilesConfiguration.class);
 
+    private static final String EXPIRES = "Expires";
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    private static final long IMMUTABLE_MAX_AGE_SECONDS = 365 * 24 * 60 * 60;
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=" + IMMUTABLE_MAX_AGE_SECONDS + ", immutable";
+
+    // Compressed copies of static files held in memory unless configured otherwise
+    private static final long DEFAULT_COMPRESSED_CACHE_SIZE = 32 * 1024 * 1024;
+
     private List<AbstractResourceHandler> staticResourceHandlers = null;
 
     private boolean staticResourcesSet = false;
@@ -56,6 +64,21 @@ public class StaticFilesConfiguration {
 
     private final Map<String, String> customHeaders = new HashMap<>();
 
+    private long expireTimeSeconds = -1;
+
+    private volatile StaticFilesCache cache = null;
+
+    private boolean fingerprinting = false;
+    private volatile AssetManifest manifest = null;
+
+    private final FileSender fileSender = new FileSender();
+
+    private final EntityTags entityTags = new EntityTags();
+
+    private volatile CompressedVariants compressedVariants = new CompressedVariants(DEFAULT_COMPRESSED_CACHE_SIZE);
+
+    private final List<FolderWatcher> watchers = new ArrayList<>();
+
     /**
      * Attempt consuming using either static resource handlers or jar resource handlers
      *
@@ -85,35 +108,229 @@ public class StaticFilesConfiguration {
     private boolean consumeWithFileResourceHandlers(HttpServletRequest httpRequest,
                                                     HttpServletResponse httpResponse) throws IOException {
         if (staticResourceHandlers != null) {
+            StaticFilesCache cache = this.cache;
+            AssetManifest manifest = this.manifest;
+            String path = cache != null || manifest != null ? AbstractResourceHandler.getPathInContext(httpRequest) : null;
+
+            if (manifest != null) {
+                AssetManifest.Entry entry = manifest.get(path);
+                if (entry != null) {
+                    StaticFilesCache.Asset asset = cache != null ? cache.get(entry.handler(), entry.path()) : null;
+                    String etag = asset != null
+                            ? asset.etag() : entityTags.of(entry.resource(), lastModifiedOf(entry.resource()));
+
+                    if (entry.isFingerprintOf(etag)) {
+                        if (asset != null) {
+                            serve(asset, true, httpRequest, httpResponse);
+                        } else {
+                            serve(entry.handler(), entry.path(), entry.resource(), cache, true, httpRequest,
+                                  httpResponse);
+                        }
+                        return true;
+                    }
+                    // Changed since it was last checked, the old fingerprinted path is not served any more
+                    manifest.update(entry.handler(), entry.path());
+                }
+            }
 
             for (AbstractResourceHandler staticResourceHandler : staticResourceHandlers) {
 
+                if (cache != null) {
+                    StaticFilesCache.Asset asset = cache.get(staticResourceHandler, path);
+                    if (asset != null) {
+                        serve(asset, false, httpRequest, httpResponse);
+                        return true;
+                    }
+                }
+
                 AbstractFileResolvingResource resource = staticResourceHandler.getResource(httpRequest);
 
                 if (resource != null && resource.isReadable()) {
+                    serve(staticResourceHandler, path, resource, cache, false, httpRequest, httpResponse);
+                    return true;
+                }
+            }
 
-                    if (MimeType.shouldGuess()) {
-                        httpResponse.setHeader(MimeType.CONTENT_TYPE, MimeType.fromResource(resource));
-                    }
-                    customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
+        }
+        return false;
+    }
 
-                    try (InputStream inputStream = resource.getInputStream();
-                         OutputStream wrappedOutputStream = GzipUtils.checkAndWrap(httpRequest, httpResponse, false)) {
-                        IOUtils.copy(inputStream, wrappedOutputStream);
-                    }
+    private void serve(AbstractResourceHandler handler,
+                       String path,
+                       AbstractFileResolvingResource resource,
+                       StaticFilesCache cache,
+                       boolean immutable,
+                       HttpServletRequest httpRequest,
+                       HttpServletResponse httpResponse) throws IOException {
+        if (cache != null) {
+            StaticFilesCache.Asset asset = cache.put(handler, path, resource);
+            if (asset != null) {
+                serve(asset, immutable, httpRequest, httpResponse);
+                return;
+            }
+        }
+        serve(resource, immutable, httpRequest, httpResponse);
+    }
 
-                    return true;
+    private void serve(StaticFilesCache.Asset asset,
+                       boolean immutable,
+                       HttpServletRequest httpRequest,
+                       HttpServletResponse httpResponse) throws IOException {
+        String etag = asset.etag();
+        if (setHeaders(httpRequest, httpResponse, asset.contentType(), etag, asset.lastModified(),
+                       asset.lastModifiedHeader(), immutable)) {
+            return;
+        }
+
+        if (ByteRanges.isRequested(httpRequest)
+                && ByteRanges.send(httpRequest, httpResponse, ByteRanges.of(asset.content()), etag, asset.lastModified())) {
+            return;
+        }
+
+        if (sendVariant(asset.resource(), asset.lastModified(), asset.content(), etag, httpRequest, httpResponse)) {
+            return;
+        }
+
+        if (GzipUtils.acceptsGzip(httpRequest)) {
+            httpResponse.setHeader(ConditionalRequests.ETAG, asset.gzipEtag());
+        }
+
+        OutputStream responseStream = httpResponse.getOutputStream();
+        try (OutputStream wrappedOutputStream = GzipUtils.checkAndWrap(httpRequest, httpResponse, false)) {
+            if (wrappedOutputStream == responseStream) {
+                httpResponse.setContentLength(asset.content().length);
+            }
+            wrappedOutputStream.write(asset.content());
+        }
+    }
+
+    private void serve(AbstractFileResolvingResource resource,
+                       boolean immutable,
+                       HttpServletRequest httpRequest,
+                       HttpServletResponse httpResponse) throws IOException {
+        long lastModified = lastModifiedOf(resource);
+        String etag = entityTags.of(resource, lastModified);
+        if (setHeaders(httpRequest, httpResponse, MimeType.fromResource(resource), etag, lastModified, null, immutable)) {
+            return;
+        }
+
+        if (ByteRanges.isRequested(httpRequest)
+                && ByteRanges.send(httpRequest, httpResponse, ByteRanges.of(resource), etag, lastModified)) {
+            return;
+        }
+
+        if (sendVariant(resource, lastModified, null, etag, httpRequest, httpResponse)) {
+            return;
+        }
+
+        // Files too large to keep compressed are compressed while sending, the rest is sent by Jetty from the file
+        if (!GzipUtils.acceptsGzip(httpRequest)) {
+            if (fileSender.send(resource, httpResponse)) {
+                return;
+            }
+        } else {
+            httpResponse.setHeader(ConditionalRequests.ETAG, ConditionalRequests.encoded(etag, CompressedVariants.GZIP));
+        }
+
+        try (InputStream inputStream = resource.getInputStream();
+             OutputStream wrappedOutputStream = GzipUtils.checkAndWrap(httpRequest, httpResponse, false)) {
+            IOUtils.copy(inputStream, wrappedOutputStream);
+        }
+    }
+
+    /**
+     * Sends a precompressed or cached compressed variant of the file in the encoding the client prefers.
+     *
+     * @return true if a variant was sent
+     */
+    private boolean sendVariant(AbstractFileResolvingResource resource,
+                                long lastModified,
+                                byte[] content,
+                                String etag,
+                                HttpServletRequest httpRequest,
+                                HttpServletResponse httpResponse) throws IOException {
+
+        CompressedVariants compressedVariants = this.compressedVariants;
+        for (String encoding : CompressedVariants.accepted(httpRequest)) {
+            CompressedVariants.Variant variant = compressedVariants.get(resource, lastModified, content, encoding);
+            if (variant == null) {
+                continue;
+            }
+
+            httpResponse.setHeader(CompressedVariants.CONTENT_ENCODING, encoding);
+            httpResponse.setHeader(ConditionalRequests.ETAG, ConditionalRequests.encoded(etag, encoding));
+
+            if (variant.content() != null) {
+                httpResponse.setContentLength(variant.content().length);
+                try (OutputStream outputStream = httpResponse.getOutputStream()) {
+                    outputStream.write(variant.content());
+                }
+            } else if (!fileSender.send(variant.sibling(), httpResponse)) {
+                try (InputStream inputStream = variant.sibling().getInputStream();
+                     OutputStream outputStream = httpResponse.getOutputStream()) {
+                    IOUtils.copy(inputStream, outputStream);
                 }
             }
+            return true;
+        }
+        return false;
+    }
 
+    /**
+     * Sets the headers of a static file response and sends 304 Not Modified if the client has the current version.
+     * Fingerprinted files never change, so they are cached for a year.
+     *
+     * @param lastModifiedHeader the formatted modification time if known up front, null to format lastModified
+     * @return true if the response is complete
+     */
+    private boolean setHeaders(HttpServletRequest httpRequest,
+                               HttpServletResponse httpResponse,
+                               String contentType,
+                               String etag,
+                               long lastModified,
+                               String lastModifiedHeader,
+                               boolean immutable) {
+        if (MimeType.shouldGuess()) {
+            httpResponse.setHeader(MimeType.CONTENT_TYPE, contentType);
+        }
+        customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
+
+        long maxAgeSeconds = expireTimeSeconds;
+        if (immutable) {
+            maxAgeSeconds = IMMUTABLE_MAX_AGE_SECONDS;
+            httpResponse.setHeader(CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        }
+        if (maxAgeSeconds >= 0) {
+            httpResponse.setDateHeader(EXPIRES, System.currentTimeMillis() + maxAgeSeconds * 1000);
+        }
+        httpResponse.setHeader(ByteRanges.ACCEPT_RANGES, ByteRanges.BYTES);
+        httpResponse.addHeader(CompressedVariants.VARY, CompressedVariants.ACCEPT_ENCODING);
+        if (lastModifiedHeader != null) {
+            ConditionalRequests.setValidators(httpResponse, etag, lastModifiedHeader);
+        } else {
+            ConditionalRequests.setValidators(httpResponse, etag, lastModified);
+        }
+
+        if (ConditionalRequests.isNotModified(httpRequest, etag, lastModified)) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
         }
         return false;
     }
 
+    private static long lastModifiedOf(AbstractFileResolvingResource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Not known, e.g. for resources in an archive
+            return 0;
+        }
+    }
+
     /**
      * Clears all static file configuration
      */
-    public void clear() {
+    public synchronized void clear() {
 
         if (staticResourceHandlers != null) {
             staticResourceHandlers.clear();
@@ -122,6 +339,14 @@ public class StaticFilesConfiguration {
 
         staticResourcesSet = false;
         externalStaticResourcesSet = false;
+        watchers.forEach(FolderWatcher::stop);
+        watchers.clear();
+        cache = null;
+        fingerprinting = false;
+        manifest = null;
+        fileSender.clear();
+        entityTags.clear();
+        compressedVariants.clear();
     }
     
     public boolean isStaticResourcesSet() {
@@ -149,6 +374,10 @@ public class StaticFilesConfiguration {
             staticResourceHandlers.add(new ClassPathResourceHandler(folder, "index.html"));
             LOG.info("StaticResourceHandler configured with folder = " + folder);
             staticResourcesSet = true;
+
+            if (fingerprinting) {
+                manifest = AssetManifest.build(staticResourceHandlers, entityTags);
+            }
         }
     }
 
@@ -171,8 +400,15 @@ public class StaticFilesConfiguration {
                 if (staticResourceHandlers == null) {
                     staticResourceHandlers = new ArrayList<>();
                 }
-                staticResourceHandlers.add(new ExternalResourceHandler(folder, "index.html"));
+                ExternalResourceHandler handler = new ExternalResourceHandler(folder, "index.html");
+                staticResourceHandlers.add(handler);
                 LOG.info("External StaticResourceHandler configured with folder = " + folder);
+
+                watch(handler, resource.getFile());
+
+                if (fingerprinting) {
+                    manifest = AssetManifest.build(staticResourceHandlers, entityTags);
+                }
             } catch (IOException e) {
                 LOG.error("Error when creating external StaticResourceHandler", e);
             }
@@ -181,13 +417,108 @@ public class StaticFilesConfiguration {
         }
     }
 
+    /**
+     * Keeps the index of the handler, the cached files, entity tags, compressed variants and fingerprints up to date
+     * with the files in the folder.
+     */
+    private void watch(ExternalResourceHandler handler, File folder) {
+        FolderWatcher watcher = FolderWatcher.start(folder, new FolderWatcher.Listener() {
+            @Override
+            public void changed(String path) {
+                handler.update(path);
+
+                File file = new File(folder, path.substring(1));
+                invalidate(file.getAbsolutePath(), file.getAbsoluteFile().toURI().toString());
+
+                AssetManifest manifest = StaticFilesConfiguration.this.manifest;
+                if (manifest != null) {
+                    manifest.update(handler, path);
+                }
+            }
+
+            @Override
+            public void overflowed() {
+                handler.reindex();
+                invalidate(folder.getAbsolutePath(), folder.getAbsoluteFile().toURI().toString());
+
+                synchronized (StaticFilesConfiguration.this) {
+                    if (fingerprinting && staticResourceHandlers != null) {
+                        manifest = AssetManifest.build(staticResourceHandlers, entityTags);
+                    }
+                }
+            }
+        });
+
+        if (watcher != null) {
+            watchers.add(watcher);
+        }
+    }
+
+    private void invalidate(String path, String url) {
+        // Directories are invalidated with everything in them, and a URL of an existing directory ends with '/'
+        String prefix = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+
+        StaticFilesCache cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(path);
+        }
+        fileSender.invalidate(path);
+        entityTags.invalidate(prefix);
+        compressedVariants.invalidate(prefix);
+    }
+
     public static StaticFilesConfiguration create() {
         return new StaticFilesConfiguration();
     }
 
     public void setExpireTimeSeconds(long expireTimeSeconds) {
-        customHeaders.put("Cache-Control", "private, max-age=" + expireTimeSeconds);
-        customHeaders.put("Expires", new Date(System.currentTimeMillis() + (expireTimeSeconds * 1000)).toString());
+        customHeaders.put(CACHE_CONTROL, "private, max-age=" + expireTimeSeconds);
+        // Expires is computed for each response
+        this.expireTimeSeconds = expireTimeSeconds;
+    }
+
+    /**
+     * Enables caching static files in memory, or disables it if the size is 0.
+     *
+     * @param maxBytes the maximum number of bytes to cache, files larger than a quarter of it are not cached
+     */
+    public void setCacheSize(long maxBytes) {
+        Assert.isTrue(maxBytes >= 0, "'maxBytes' must not be negative");
+        cache = maxBytes > 0 ? new StaticFilesCache(maxBytes) : null;
+    }
+
+    /**
+     * Sets how many bytes of gzip compressed copies of static files are held in memory, 32 MB unless set. Files without
+     * a .gz sibling and up to a quarter of this size are compressed once; larger files are compressed while they are
+     * sent, on every request. Precompressed .br and .gz siblings are sent whatever the size.
+     *
+     * @param maxBytes the maximum number of compressed bytes to hold, 0 to compress every file while it is sent
+     */
+    public void setCompressedCacheSize(long maxBytes) {
+        Assert.isTrue(maxBytes >= 0, "'maxBytes' must not be negative");
+        compressedVariants = new CompressedVariants(maxBytes);
+    }
+
+    /**
+     * Serves the static files of all configured locations also under fingerprinted paths holding a hash of their
+     * content, e.g. /app.js as /app.3f9a1c2b.js, with headers letting clients cache them for a year. The files are
+     * hashed now, and when another location is configured.
+     */
+    public synchronized void enableFingerprinting() {
+        fingerprinting = true;
+        manifest = staticResourceHandlers != null ? AssetManifest.build(staticResourceHandlers, entityTags) : null;
+    }
+
+    /**
+     * Gets the fingerprinted path of a static file, to refer to the current version of the file in pages.
+     *
+     * @param path the path of the file, e.g. /app.js
+     * @return the fingerprinted path, e.g. /app.3f9a1c2b.js, or the path itself if the file is not fingerprinted
+     */
+    public String getFingerprintedPath(String path) {
+        AssetManifest manifest = this.manifest;
+        String fingerprintedPath = manifest != null ? manifest.fingerprintedPath(path) : null;
+        return fingerprintedPath != null ? fingerprintedPath : path;
     }
 
     public void putCustomHeaders(Map<String, String> headers) {
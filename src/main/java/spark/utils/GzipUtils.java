@@ -63,7 +63,7 @@ public class GzipUtils {
         OutputStream responseStream = httpResponse.getOutputStream();
 
         // GZIP Support handled here. First we must ensure that we want to use gzip, and that the client supports gzip
-        boolean acceptsGzip = Collections.list(httpRequest.getHeaders(ACCEPT_ENCODING)).stream().anyMatch(STRING_MATCH);
+        boolean acceptsGzip = acceptsGzip(httpRequest);
         boolean wantGzip = httpResponse.getHeaders(CONTENT_ENCODING).contains(GZIP);
 
         if (acceptsGzip) {
@@ -76,6 +76,16 @@ public class GzipUtils {
         return responseStream;
     }
 
+    /**
+     * Checks if the client accepts GZIP encoded responses.
+     *
+     * @param httpRequest the HTTP servlet request.
+     * @return true if the Accept-Encoding header contains gzip.
+     */
+    public static boolean acceptsGzip(HttpServletRequest httpRequest) {
+        return Collections.list(httpRequest.getHeaders(ACCEPT_ENCODING)).stream().anyMatch(STRING_MATCH);
+    }
+
     private static void addContentEncodingHeaderIfMissing(HttpServletResponse response, boolean wantsGzip) {
         if (!wantsGzip) {
             response.setHeader(CONTENT_ENCODING, GZIP);
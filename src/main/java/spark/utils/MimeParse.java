@@ -3,12 +3,15 @@ package spark.utils;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MIME-Type Parser
+ * <p>
+ * Parsed media ranges and Accept headers are cached, as are the negotiation results per Accept header, so that
+ * negotiating against the small set of Accept headers sent by browsers and clients does not allocate per request.
+ * The caches are bounded and simply start over when full.
  */
 public class MimeParse {
 
@@ -17,16 +20,52 @@ public class MimeParse {
      */
     public static final String NO_MIME_TYPE = "";
 
+    private static final int MAX_CACHED_ENTRIES = 1024;
+
+    private static final Map<String, MediaRange> MEDIA_RANGES = new ConcurrentHashMap<>();
+
+    private static final Map<String, AcceptHeader> ACCEPT_HEADERS = new ConcurrentHashMap<>();
+
     /**
-     * Parse results container
+     * A parsed, immutable media range, e.g. a route's accepted type or one of the ranges of an Accept header.
      */
-    private static class ParseResults {
-        String type;
+    public static final class MediaRange {
 
-        String subType;
+        private final String mimeType;
+
+        private final String type;
+
+        private final String subType;
 
         // !a dictionary of all the parameters for the media range
-        Map<String, String> params;
+        private final Map<String, String> params;
+
+        private final float quality;
+
+        private MediaRange(String mimeType, String type, String subType, Map<String, String> params, float quality) {
+            this.mimeType = mimeType;
+            this.type = type;
+            this.subType = subType;
+            this.params = params;
+            this.quality = quality;
+        }
+
+        /**
+         * @return the mime type this range was parsed from
+         */
+        public String mimeType() {
+            return mimeType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof MediaRange && mimeType.equals(((MediaRange) o).mimeType));
+        }
+
+        @Override
+        public int hashCode() {
+            return mimeType.hashCode();
+        }
 
         @Override
         public String toString() {
@@ -39,21 +78,23 @@ public class MimeParse {
     }
 
     /**
-     * Carves up a mime-type and returns a ParseResults object
+     * Carves up a mime-type into type, sub type and parameters.
      * For example, the media range 'application/xhtml;q=0.5' would get parsed
      * into:
      * ('application', 'xhtml', {'q', '0.5'})
+     * In addition this function also guarantees that there is a value for 'q'
+     * in the params dictionary, filling it in with a proper default if
+     * necessary.
      */
-    private static ParseResults parseMimeType(String mimeType) {
+    private static MediaRange parse(String mimeType) {
         String[] parts = mimeType.split(";");
-        ParseResults results = new ParseResults();
-        results.params = new HashMap<>();
+        Map<String, String> params = new HashMap<>();
 
         for (int i = 1; i < parts.length; ++i) {
             String p = parts[i];
             String[] subParts = p.split("=");
             if (subParts.length == 2) {
-                results.params.put(subParts[0].trim(), subParts[1].trim());
+                params.put(subParts[0].trim(), subParts[1].trim());
             }
         }
         String fullType = parts[0].trim();
@@ -64,54 +105,70 @@ public class MimeParse {
             fullType = "*/*";
         }
 
+        String type;
+        String subType;
         int slashIndex = fullType.indexOf('/');
         if (slashIndex != -1) {
-            results.type = fullType.substring(0, slashIndex);
-            results.subType = fullType.substring(slashIndex + 1);
+            type = fullType.substring(0, slashIndex);
+            subType = fullType.substring(slashIndex + 1);
         } else {
             //If the type is invalid, attempt to turn into a wildcard
-            results.type = fullType;
-            results.subType = "*";
+            type = fullType;
+            subType = "*";
         }
 
-        return results;
+        String q = params.get("q");
+        float f = toFloat(q, 1);
+        if (isBlank(q) || f < 0 || f > 1) {
+            params.put("q", "1");
+        }
+
+        return new MediaRange(mimeType, type, subType, Collections.unmodifiableMap(params),
+                              toFloat(params.get("q"), 0));
     }
 
     /**
-     * Carves up a media range and returns a ParseResults.
-     * For example, the media range 'application/*;q=0.5' would get parsed into:
-     * ('application', '*', {'q', '0.5'})
-     * In addition this function also guarantees that there is a value for 'q'
-     * in the params dictionary, filling it in with a proper default if
-     * necessary.
+     * Returns the parsed media range for a mime type, e.g. a route's accepted type. Parsing happens once per
+     * distinct mime type.
      *
-     * @param range
+     * @param mimeType the mime type
+     * @return the parsed media range
      */
-    private static ParseResults parseMediaRange(String range) {
-        ParseResults results = parseMimeType(range);
-        String q = results.params.get("q");
-        float f = toFloat(q, 1);
-        if (isBlank(q) || f < 0 || f > 1) {
-            results.params.put("q", "1");
+    public static MediaRange mediaRange(String mimeType) {
+        MediaRange range = MEDIA_RANGES.get(mimeType);
+        if (range == null) {
+            range = parse(mimeType);
+            if (MEDIA_RANGES.size() >= MAX_CACHED_ENTRIES) {
+                MEDIA_RANGES.clear();
+            }
+            MEDIA_RANGES.put(mimeType, range);
         }
-        return results;
+        return range;
     }
 
     /**
      * Structure for holding a fitness/quality combo
      */
-    private static class FitnessAndQuality implements Comparable<FitnessAndQuality> {
-        int fitness;
+    public static final class FitnessAndQuality implements Comparable<FitnessAndQuality> {
 
-        float quality;
+        private static final FitnessAndQuality NO_MATCH = new FitnessAndQuality(-1, 0);
 
-        String mimeType; // optionally used
+        private final int fitness;
+
+        private final float quality;
 
         private FitnessAndQuality(int fitness, float quality) {
             this.fitness = fitness;
             this.quality = quality;
         }
 
+        /**
+         * @return true if the quality of the match is not zero, i.e. the client accepts the mime type
+         */
+        public boolean isAcceptable() {
+            return Float.compare(quality, 0) != 0;
+        }
+
         @Override
         public int compareTo(FitnessAndQuality o) {
             if (fitness == o.fitness) {
@@ -127,21 +184,61 @@ public class MimeParse {
     }
 
     /**
-     * Find the best match for a given mimeType against a list of media_ranges
-     * that have already been parsed by MimeParse.parseMediaRange(). Returns a
-     * tuple of the fitness value and the value of the 'q' quality parameter of
-     * the best match, or (-1, 0) if no match was found. Just as for
-     * quality_parsed(), 'parsed_ranges' must be a list of parsed media ranges.
+     * A parsed Accept header and the results of the negotiations done against it so far.
+     */
+    private static final class AcceptHeader {
+
+        private final MediaRange[] ranges;
+
+        private final Map<MediaRange, FitnessAndQuality> results = new ConcurrentHashMap<>();
+
+        private AcceptHeader(String header) {
+            String[] parts = header.split(",");
+            ranges = new MediaRange[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                ranges[i] = parse(parts[i]);
+            }
+        }
+
+        private FitnessAndQuality fitnessAndQuality(MediaRange target) {
+            FitnessAndQuality result = results.get(target);
+            if (result == null) {
+                result = fitnessAndQualityParsed(target, ranges);
+                if (results.size() >= MAX_CACHED_ENTRIES) {
+                    results.clear();
+                }
+                results.put(target, result);
+            }
+            return result;
+        }
+    }
+
+    private static AcceptHeader acceptHeader(String header) {
+        AcceptHeader acceptHeader = ACCEPT_HEADERS.get(header);
+        if (acceptHeader == null) {
+            acceptHeader = new AcceptHeader(header);
+            if (ACCEPT_HEADERS.size() >= MAX_CACHED_ENTRIES) {
+                ACCEPT_HEADERS.clear();
+            }
+            ACCEPT_HEADERS.put(header, acceptHeader);
+        }
+        return acceptHeader;
+    }
+
+    /**
+     * Find the best match for a given media range against a list of media_ranges
+     * that have already been parsed. Returns a tuple of the fitness value and the
+     * value of the 'q' quality parameter of the best match, or (-1, 0) if no
+     * match was found.
      *
-     * @param mimeType
+     * @param target
      * @param parsedRanges
      */
-    private static FitnessAndQuality fitnessAndQualityParsed(String mimeType, Collection<ParseResults> parsedRanges) {
+    private static FitnessAndQuality fitnessAndQualityParsed(MediaRange target, MediaRange[] parsedRanges) {
         int bestFitness = -1;
         float bestFitQ = 0;
-        ParseResults target = parseMediaRange(mimeType);
 
-        for (ParseResults range : parsedRanges) {
+        for (MediaRange range : parsedRanges) {
             if ((target.type.equals(range.type) || range.type.equals("*") || target.type.equals("*"))
                     && (target.subType.equals(range.subType) || range.subType.equals("*")
                     || target.subType.equals("*"))) {
@@ -156,12 +253,24 @@ public class MimeParse {
                     fitness += paramMatches;
                     if (fitness > bestFitness) {
                         bestFitness = fitness;
-                        bestFitQ = toFloat(range.params.get("q"), 0);
+                        bestFitQ = range.quality;
                     }
                 }
             }
         }
-        return new FitnessAndQuality(bestFitness, bestFitQ);
+        return bestFitness == -1 ? FitnessAndQuality.NO_MATCH : new FitnessAndQuality(bestFitness, bestFitQ);
+    }
+
+    /**
+     * Negotiates a supported media range against an Accept header. The header is parsed once and the result is
+     * remembered, so repeated negotiations with the same header and range do not allocate.
+     *
+     * @param supported the supported media range
+     * @param header    the header
+     * @return how well the supported media range matches the header
+     */
+    public static FitnessAndQuality fitnessAndQuality(MediaRange supported, String header) {
+        return acceptHeader(header).fitnessAndQuality(supported);
     }
 
     /**
@@ -172,21 +281,23 @@ public class MimeParse {
      * @return the best match
      */
     public static String bestMatch(Collection<String> supported, String header) {
-        List<ParseResults> parseResults = new LinkedList<>();
-        List<FitnessAndQuality> weightedMatches = new LinkedList<>();
-        for (String r : header.split(",")) {
-            parseResults.add(parseMediaRange(r));
-        }
+        AcceptHeader acceptHeader = acceptHeader(header);
+        String bestMimeType = null;
+        FitnessAndQuality best = null;
 
         for (String s : supported) {
-            FitnessAndQuality fitnessAndQuality = fitnessAndQualityParsed(s, parseResults);
-            fitnessAndQuality.mimeType = s;
-            weightedMatches.add(fitnessAndQuality);
+            FitnessAndQuality fitnessAndQuality = acceptHeader.fitnessAndQuality(mediaRange(s));
+            // On ties the type listed last wins
+            if (best == null || fitnessAndQuality.compareTo(best) >= 0) {
+                best = fitnessAndQuality;
+                bestMimeType = s;
+            }
         }
-        Collections.sort(weightedMatches);
 
-        FitnessAndQuality lastOne = weightedMatches.get(weightedMatches.size() - 1);
-        return Float.compare(lastOne.quality, 0) != 0 ? lastOne.mimeType : NO_MIME_TYPE;
+        if (best == null) {
+            throw new IllegalArgumentException("supported types cannot be empty");
+        }
+        return best.isAcceptable() ? bestMimeType : NO_MIME_TYPE;
     }
 
     private static boolean isBlank(String s) {
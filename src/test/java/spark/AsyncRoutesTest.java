@@ -0,0 +1,176 @@
+package spark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.util.SparkTestUtil;
+
+public class AsyncRoutesTest {
+
+    private static final String ASYNC_JETTY = "asyncJetty";
+
+    // More concurrent requests than server threads
+    private static final int MAX_THREADS = 16;
+    private static final int CONCURRENT_REQUESTS = 40;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool();
+    private static final CountDownLatch allWaiting = new CountDownLatch(CONCURRENT_REQUESTS);
+
+    private static Service http;
+    private static SparkTestUtil client;
+
+    @BeforeAll
+    public static void setup() {
+        EmbeddedServers.add(ASYNC_JETTY, new EmbeddedJettyFactory().withAsyncTimeout(500));
+
+        http = Service.ignite().port(0).threadPool(MAX_THREADS);
+        http.embeddedServerIdentifier(ASYNC_JETTY);
+
+        http.exception(IllegalStateException.class, (exception, request, response) -> {
+            response.status(418);
+            response.body("mapped: " + exception.getMessage());
+        });
+        http.exception(TimeoutException.class, (exception, request, response) -> {
+            response.status(503);
+            response.body("timed out");
+        });
+
+        http.get("/later", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            response.header("X-Route", "completed");
+            return "Hello " + request.queryParams("name");
+        }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS, executor)));
+
+        http.after("/later", (request, response) -> response.header("X-After", response.body()));
+        http.afterAfter("/later", (request, response) -> response.header("X-After-After", "yes"));
+
+        http.get("/waiting", (request, response) -> {
+            allWaiting.countDown();
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    allWaiting.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "released";
+            }, executor);
+        });
+
+        http.get("/failing", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("downstream");
+        }, executor));
+
+        http.get("/unmapped", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            throw new UnsupportedOperationException();
+        }, executor));
+
+        http.get("/halting", (request, response) -> CompletableFuture.supplyAsync(() -> {
+            throw Spark.halt(401, "go away");
+        }, executor));
+
+        http.get("/never", (request, response) -> new CompletableFuture<String>());
+
+        http.get("/transformed", (request, response) -> CompletableFuture.completedFuture(42),
+                 model -> "<" + model + ">");
+
+        http.awaitInitialization();
+        client = new SparkTestUtil(http.port());
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        http.stop();
+        http.awaitStop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCompleted() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/later?name=async");
+        assertEquals(200, response.status);
+        assertEquals("Hello async", response.body);
+        assertEquals("completed", response.headers.get("X-Route"));
+        assertEquals("Hello async", response.headers.get("X-After"), "After filters should see the result");
+        assertEquals("yes", response.headers.get("X-After-After"));
+    }
+
+    @Test
+    public void testThreadsAreReleased() throws Exception {
+        List<Future<String>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(executor.submit(() -> get("/waiting")));
+        }
+
+        for (Future<String> response : responses) {
+            assertEquals("released", response.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testFailed_whenMapped() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/failing");
+        assertEquals(418, response.status);
+        assertEquals("mapped: downstream", response.body);
+    }
+
+    @Test
+    public void testFailed_whenNotMapped() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/unmapped");
+        assertEquals(500, response.status);
+    }
+
+    @Test
+    public void testHalted() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/halting");
+        assertEquals(401, response.status);
+        assertEquals("go away", response.body);
+    }
+
+    @Test
+    public void testTimedOut() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/never");
+        assertEquals(503, response.status);
+        assertEquals("timed out", response.body);
+    }
+
+    @Test
+    public void testTransformed() throws Exception {
+        SparkTestUtil.UrlResponse response = client.get("/transformed");
+        assertEquals(200, response.status);
+        assertEquals("<42>", response.body);
+    }
+
+    private static String get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + http.port() + path)
+                .openConnection();
+        connection.setReadTimeout(30_000);
+        try (InputStream inputStream = connection.getInputStream()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            inputStream.transferTo(output);
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+}
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -139,6 +140,54 @@ public class RequestTest {
         }
     }
 
+    @Test
+    public void testParams() {
+        Request request = new Request(new RouteMatch(null, "/users/:UserName/:id", "/users/bob%20b/42", "text/html", null),
+                                      servletRequest);
+
+        assertEquals("bob b", request.params("username"), "Param should be decoded and looked up ignoring case");
+        assertEquals("bob b", request.params(":USERNAME"));
+        assertEquals("42", request.params("id"));
+        assertNull(request.params("missing"));
+        assertEquals(2, request.params().size());
+        assertEquals("bob b", request.params().get(":username"));
+    }
+
+    @Test
+    public void testParamAsLongAndInt() {
+        Request request = new Request(new RouteMatch(null, "/books/:id/:page/:name/:neg/:big/:enc",
+                                                     "/books/9223372036854775807/12/x1/-7/2147483648/%31%32",
+                                                     "text/html", null), servletRequest);
+
+        assertEquals(Long.MAX_VALUE, request.paramAsLong("id"));
+        assertEquals(12, request.paramAsInt("page"));
+        assertEquals(-7, request.paramAsInt("neg"));
+        assertEquals(2147483648L, request.paramAsLong("big"));
+        assertEquals(12, request.paramAsInt("enc"), "Encoded params should be decoded before parsing");
+        assertThrows(NumberFormatException.class, () -> request.paramAsInt("big"));
+        assertThrows(NumberFormatException.class, () -> request.paramAsLong("name"));
+        assertThrows(NumberFormatException.class, () -> request.paramAsLong("missing"));
+    }
+
+    @Test
+    public void testSplat() {
+        Request request = new Request(new RouteMatch(null, "/files/*/to/*", "/files/a%20b/to/c//d/e", "text/html", null),
+                                      servletRequest);
+
+        assertArrayEquals(new String[] {"a b", "c/d/e"}, request.splat());
+    }
+
+    @Test
+    public void testChangeMatch_replacesParams() {
+        Request request = new Request(matchWithParams, servletRequest);
+        assertEquals("bob", request.params("username"));
+
+        request.changeMatch(new RouteMatch(null, "/users/:name", "/users/alice", "text/html", null));
+
+        assertNull(request.params("username"));
+        assertEquals("alice", request.params("name"));
+    }
+
     public void shouldBeAbleToGetTheMatchedPathInBeforeFilter(Request q) {
         assertEquals(BEFORE_MATCHED_ROUTE, q.matchedPath(), "Should have returned the matched route from the before filter");
     }
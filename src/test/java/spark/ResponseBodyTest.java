@@ -17,12 +17,24 @@
 package spark;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import spark.util.SparkTestUtil;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static spark.Spark.after;
 import static spark.Spark.get;
 
@@ -35,6 +47,12 @@ public class ResponseBodyTest {
     public static final String SPECIAL = "/special";
     public static final String PORAKATIKAOKAO = "/porakatikaokao";
     public static final String MAXIME = "/maxime";
+    public static final String POINT = "/point";
+    public static final String BUFFER = "/buffer";
+    public static final String BUFFERS = "/buffers";
+    public static final String STREAMING = "/streaming";
+    public static final String FLUSHING = "/flushing";
+    public static final String COLLECTION = "/collection";
 
     public static final String HELLO_WORLD = "Hello World!";
     public static final String XIDXUS = "xidxus";
@@ -43,6 +61,8 @@ public class ResponseBodyTest {
 
     private static SparkTestUtil http;
 
+    private static final CountDownLatch firstLineRead = new CountDownLatch(1);
+
     @AfterAll
     public static void tearDown() {
         Spark.stop();
@@ -89,6 +109,51 @@ public class ResponseBodyTest {
             assertEquals($11AB, body);
         });
 
+        Spark.serializer(Point.class, (outputStream, point) -> {
+            outputStream.write(("{\"x\":" + point.x + ",\"y\":" + point.y + "}").getBytes(StandardCharsets.UTF_8));
+        });
+
+        get(POINT, (q, a) -> new Point(1, 2));
+
+        // Shared between requests, it must not be consumed
+        ByteBuffer direct = ByteBuffer.allocateDirect(32);
+        direct.put("--Hello direct buffer--".getBytes(StandardCharsets.UTF_8));
+        direct.position(2).limit(21);
+        ByteBuffer slice = direct.slice();
+
+        get(BUFFER, (q, a) -> slice);
+
+        get(BUFFERS, (q, a) -> new ByteBuffer[] {
+                ByteBuffer.wrap("xxHello ".getBytes(StandardCharsets.UTF_8), 2, 6).slice(),
+                ByteBuffer.allocate(0),
+                slice
+        });
+
+        get(STREAMING, (q, a) -> {
+            a.type("text/csv");
+            return (StreamingBody) output -> {
+                Writer writer = output.writer();
+                for (int i = 0; i < 10_000; i++) {
+                    writer.write(i + ",row\n");
+                }
+            };
+        });
+
+        after(STREAMING, (q, a) -> {
+            a.status(201);
+            a.header("X-After", "streamed");
+        });
+
+        get(FLUSHING, (q, a) -> (StreamingBody) output -> {
+            output.writer().write("first\n");
+            output.flush();
+            // Only written once the client has read the first line
+            assertTrue(firstLineRead.await(30, TimeUnit.SECONDS));
+            output.writer().write("second\n");
+        });
+
+        get(COLLECTION, (q, a) -> new JsonArray(Arrays.asList("a", "b")));
+
         Spark.awaitInitialization();
     }
 
@@ -136,4 +201,108 @@ public class ResponseBodyTest {
         }
     }
 
+    @Test
+    public void testPOINT_whenSerializerMapped() throws Exception {
+        SparkTestUtil.UrlResponse response = http.get(POINT);
+        assertEquals(200, response.status);
+        assertEquals("{\"x\":1,\"y\":2}", response.body);
+    }
+
+    @Test
+    public void testBUFFER_whenDirect() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            SparkTestUtil.UrlResponse response = http.get(BUFFER);
+            assertEquals(200, response.status);
+            assertEquals("Hello direct buffer", response.body);
+        }
+    }
+
+    @Test
+    public void testBUFFERS() throws Exception {
+        SparkTestUtil.UrlResponse response = http.get(BUFFERS);
+        assertEquals(200, response.status);
+        assertEquals("Hello Hello direct buffer", response.body);
+    }
+
+    @Test
+    public void testSTREAMING() throws Exception {
+        SparkTestUtil.UrlResponse response = http.get(STREAMING);
+        assertEquals(201, response.status, "After filters should run before the body is written");
+        assertEquals("streamed", response.headers.get("X-After"));
+        assertEquals("text/csv", response.headers.get("Content-Type"));
+
+        String[] lines = response.body.split("\n");
+        assertEquals(10_000, lines.length);
+        assertEquals("9999,row", lines[9_999]);
+    }
+
+    @Test
+    public void testFLUSHING() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:4567" + FLUSHING).openConnection();
+        try (InputStream inputStream = connection.getInputStream()) {
+            assertEquals("first\n", readLine(inputStream));
+            firstLineRead.countDown();
+            assertEquals("second\n", readLine(inputStream));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testCOLLECTION_writtenByToString() throws Exception {
+        SparkTestUtil.UrlResponse response = http.get(COLLECTION);
+        assertEquals(200, response.status);
+        assertEquals("[\"a\",\"b\"]", response.body);
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = inputStream.read()) != -1) {
+            line.append((char) c);
+            if (c == '\n') {
+                break;
+            }
+        }
+        return line.toString();
+    }
+
+    private static final class Point {
+
+        private final int x;
+        private final int y;
+
+        private Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public String toString() {
+            return "Point(" + x + ", " + y + ")";
+        }
+    }
+
+    /**
+     * Writes itself as JSON, like JSONArray of org.json.
+     */
+    private static final class JsonArray extends ArrayList<Object> {
+
+        private JsonArray(Collection<?> elements) {
+            super(elements);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder json = new StringBuilder("[");
+            for (Object element : this) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(element).append('"');
+            }
+            return json.append(']').toString();
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashMap;
+import org.apache.http.client.utils.DateUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -159,6 +160,10 @@ public class StaticFilesMemberTest {
         SparkTestUtil.UrlResponse response = testUtil.doMethod("GET", "/pages/index.html", null);
         assertEquals("private, max-age=600", response.headers.get("Cache-Control"));
 
+        long expires = DateUtils.parseDate(response.headers.get("Expires")).getTime();
+        long expected = System.currentTimeMillis() + 600_000;
+        assertTrue(Math.abs(expires - expected) < 5_000, "Expires should be relative to the response");
+
         testGet();
     }
 
@@ -0,0 +1,100 @@
+package spark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import spark.embeddedserver.jetty.VirtualThreadPool;
+import spark.util.SparkTestUtil;
+
+public class VirtualThreadsTest {
+
+    private static final int CONCURRENT_REQUESTS = 10_000;
+
+    @Test
+    public void testBlockingRequests() throws Exception {
+        assumeTrue(VirtualThreadPool.isSupported(), "Virtual threads require Java 21 or later");
+
+        CountDownLatch allBlocked = new CountDownLatch(CONCURRENT_REQUESTS);
+        AtomicInteger platformThreads = new AtomicInteger();
+
+        Service http = Service.ignite().port(0).virtualThreads();
+        http.get("/blocking", (request, response) -> {
+            if (!(boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())) {
+                platformThreads.incrementAndGet();
+            }
+            // Stands in for a blocking JDBC call, released once all requests are handled at the same time
+            allBlocked.countDown();
+            allBlocked.await(60, TimeUnit.SECONDS);
+            return "done";
+        });
+        http.awaitInitialization();
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                                          .version(HttpClient.Version.HTTP_1_1)
+                                          .executor(clientExecutor)
+                                          .build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + http.port() + "/blocking"))
+                                             .build();
+
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+
+            assertTrue(allBlocked.await(60, TimeUnit.SECONDS), "All requests should block at the same time");
+            assertTrue(ManagementFactory.getThreadMXBean().getThreadCount() < CONCURRENT_REQUESTS / 10,
+                       "Blocked requests should not hold platform threads");
+
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals("done", response.get(60, TimeUnit.SECONDS).body());
+            }
+            assertEquals(0, platformThreads.get());
+        } finally {
+            clientExecutor.shutdownNow();
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+    @Test
+    public void testFallsBackToThreadPool() throws Exception {
+        assumeFalse(VirtualThreadPool.isSupported(), "Runtime supports virtual threads");
+
+        assertThrows(UnsupportedOperationException.class, VirtualThreadPool::new);
+
+        Service http = Service.ignite().port(0).threadPool(8).virtualThreads();
+        http.get("/thread", (request, response) -> Thread.currentThread().getName());
+        http.awaitInitialization();
+
+        try {
+            SparkTestUtil.UrlResponse response = new SparkTestUtil(http.port()).get("/thread");
+            assertEquals(200, response.status);
+            assertTrue(response.body.startsWith("qtp"), "Request should be handled by the thread pool");
+        } finally {
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+}
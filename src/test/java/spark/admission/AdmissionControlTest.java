@@ -0,0 +1,226 @@
+package spark.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import spark.Service;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.sse.SseBroadcaster;
+import spark.util.SparkTestUtil;
+
+public class AdmissionControlTest {
+
+    private static final String NO_ASYNC_TIMEOUT_JETTY = "noAsyncTimeoutJetty";
+
+    @Test
+    public void testFixedLimit() {
+        AdmissionControl admissionControl = AdmissionControl.fixed(2);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        AdmissionControl.Permit first = admissionControl.tryAcquire(request);
+        AdmissionControl.Permit second = admissionControl.tryAcquire(request);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(admissionControl.tryAcquire(request));
+        assertEquals(2, admissionControl.inFlight());
+        assertEquals(1, admissionControl.rejected());
+
+        first.release();
+        first.release();
+        assertEquals(1, admissionControl.inFlight(), "Releasing twice should have no effect");
+        assertNotNull(admissionControl.tryAcquire(request));
+        assertEquals(2, admissionControl.limit());
+    }
+
+    @Test
+    public void testPriorities() {
+        HttpServletRequest health = mock(HttpServletRequest.class);
+        when(health.getRequestURI()).thenReturn("/health");
+        HttpServletRequest report = mock(HttpServletRequest.class);
+        when(report.getRequestURI()).thenReturn("/report");
+        HttpServletRequest other = mock(HttpServletRequest.class);
+        when(other.getRequestURI()).thenReturn("/other");
+
+        AdmissionControl admissionControl = AdmissionControl.fixed(4).withPriorities(request -> {
+            switch (request.getRequestURI()) {
+                case "/health":
+                    return AdmissionControl.Priority.CRITICAL;
+                case "/report":
+                    return AdmissionControl.Priority.LOW;
+                default:
+                    return AdmissionControl.Priority.NORMAL;
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(admissionControl.tryAcquire(other));
+        }
+        assertNull(admissionControl.tryAcquire(report), "Low priority requests should be rejected first");
+        assertNotNull(admissionControl.tryAcquire(other));
+        assertNull(admissionControl.tryAcquire(other));
+
+        AdmissionControl.Permit permit = admissionControl.tryAcquire(health);
+        assertNotNull(permit, "Critical requests should never be rejected");
+        permit.release();
+        assertEquals(4, admissionControl.inFlight());
+        assertEquals(2, admissionControl.rejected());
+    }
+
+    @Test
+    public void testRejection() {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        AdmissionControl.fixed(1).withRejection(429, 5).reject(response);
+
+        verify(response).setStatus(429);
+        verify(response).setHeader("Retry-After", "5");
+    }
+
+    @Test
+    public void testEmbeddedServer() throws Exception {
+        AdmissionControl admissionControl = AdmissionControl.fixed(1)
+                .withPriorities(request -> request.getRequestURI().equals("/health")
+                        ? AdmissionControl.Priority.CRITICAL
+                        : AdmissionControl.Priority.NORMAL);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Service http = Service.ignite().port(0).admissionControl(admissionControl);
+        http.get("/blocking", (request, response) -> {
+            blocked.countDown();
+            release.await(30, TimeUnit.SECONDS);
+            return "done";
+        });
+        http.get("/async", (request, response) -> CompletableFuture.supplyAsync(() -> "async"));
+        http.get("/health", (request, response) -> "ok");
+        http.awaitInitialization();
+
+        SparkTestUtil client = new SparkTestUtil(http.port());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // A client of its own, the connection of the other one is not shared
+            SparkTestUtil blockingClient = new SparkTestUtil(http.port());
+            Future<SparkTestUtil.UrlResponse> blocking = executor.submit(() -> blockingClient.get("/blocking"));
+            blocked.await(30, TimeUnit.SECONDS);
+
+            SparkTestUtil.UrlResponse rejected = client.get("/async");
+            assertEquals(503, rejected.status);
+            assertEquals("1", rejected.headers.get("Retry-After"));
+
+            SparkTestUtil.UrlResponse health = client.get("/health");
+            assertEquals(200, health.status);
+            assertEquals("ok", health.body);
+
+            release.countDown();
+            assertEquals("done", blocking.get(30, TimeUnit.SECONDS).body);
+            awaitReleased(admissionControl);
+
+            assertEquals("async", client.get("/async").body);
+            assertEquals(1, admissionControl.rejected());
+            awaitReleased(admissionControl);
+            assertEquals(0, admissionControl.inFlight(), "Async requests should release their permit");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+    @Test
+    public void testEmbeddedServer_streamsReleaseTheirPermit() throws Exception {
+        AdmissionControl admissionControl = AdmissionControl.fixed(1);
+        SseBroadcaster broadcaster = new SseBroadcaster();
+
+        Service http = Service.ignite().port(0).admissionControl(admissionControl);
+        http.sse("/events", (request, emitter) -> broadcaster.add(emitter));
+        http.get("/hello", (request, response) -> "hello");
+        http.awaitInitialization();
+
+        HttpURLConnection events = (HttpURLConnection) new URL("http://localhost:" + http.port() + "/events")
+                .openConnection();
+        try {
+            events.setRequestProperty("Accept", "text/event-stream");
+            events.setReadTimeout(30_000);
+            assertEquals(200, events.getResponseCode());
+            awaitReleased(admissionControl);
+
+            assertEquals(0, admissionControl.inFlight(), "Open streams should not hold a permit");
+            assertEquals("hello", new SparkTestUtil(http.port()).get("/hello").body);
+        } finally {
+            events.disconnect();
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+    @Test
+    public void testEmbeddedServer_asyncRoutesWithoutTimeoutHoldTheirPermit() throws Exception {
+        EmbeddedServers.add(NO_ASYNC_TIMEOUT_JETTY, new EmbeddedJettyFactory().withAsyncTimeout(0));
+        AdmissionControl admissionControl = AdmissionControl.fixed(1);
+        CompletableFuture<String> never = new CompletableFuture<>();
+
+        Service http = Service.ignite().port(0).admissionControl(admissionControl);
+        http.embeddedServerIdentifier(NO_ASYNC_TIMEOUT_JETTY);
+        http.get("/never", (request, response) -> never);
+        http.get("/hello", (request, response) -> "hello");
+        http.awaitInitialization();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SparkTestUtil pendingClient = new SparkTestUtil(http.port());
+            Future<SparkTestUtil.UrlResponse> pending = executor.submit(() -> pendingClient.get("/never"));
+            awaitInFlight(admissionControl, 1);
+            // Long enough for the route to have returned its CompletionStage
+            Thread.sleep(200);
+
+            assertEquals(1, admissionControl.inFlight(), "Pending async routes should hold their permit");
+            assertEquals(503, new SparkTestUtil(http.port()).get("/hello").status);
+
+            never.complete("done");
+            assertEquals("done", pending.get(30, TimeUnit.SECONDS).body);
+        } finally {
+            never.complete("done");
+            executor.shutdownNow();
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+    private static void awaitInFlight(AdmissionControl admissionControl, int inFlight) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (admissionControl.inFlight() < inFlight && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Permits are released after the response is sent.
+     */
+    private static void awaitReleased(AdmissionControl admissionControl) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (admissionControl.inFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+}
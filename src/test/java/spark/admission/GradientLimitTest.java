@@ -0,0 +1,44 @@
+package spark.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class GradientLimitTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void testGrowsWhileLatencyIsSteady() {
+        GradientLimit limit = new GradientLimit(20, 10, 100);
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(LATENCY, limit.get());
+        }
+        assertEquals(100, limit.get());
+    }
+
+    @Test
+    public void testShrinksWhenLatencyRises() {
+        GradientLimit limit = new GradientLimit(50, 10, 100);
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(LATENCY, 10);
+        }
+        assertEquals(50, limit.get(), "Limit should not change while it is not used");
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(LATENCY * 5, limit.get());
+        }
+        assertTrue(limit.get() < 50, "Limit should shrink, was " + limit.get());
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(LATENCY * 5, limit.get());
+        }
+        assertEquals(10, limit.get());
+    }
+
+}
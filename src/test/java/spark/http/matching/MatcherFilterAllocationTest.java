@@ -0,0 +1,148 @@
+package spark.http.matching;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import spark.ExceptionMapper;
+import spark.FilterImpl;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.staticfiles.StaticFilesConfiguration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Keeps track of the bytes allocated by the matcher pipeline per request.
+ */
+public class MatcherFilterAllocationTest {
+
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+
+    private static final int FILTERS = 32;
+
+    // Allocation counts vary with the JIT and the JVM, so matching many filters is only compared with matching none
+    private static final double MAX_RATIO = 1.5;
+
+    @Test
+    public void testAllocatedBytesPerRequest() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                   "Allocation counters not available");
+
+        long withoutFilters = allocatedBytesPerRequest(0);
+        long withFilters = allocatedBytesPerRequest(FILTERS);
+
+        assertTrue(withFilters < withoutFilters * MAX_RATIO,
+                   "Matching filters should not allocate per request, allocated " + withFilters + " bytes with "
+                           + FILTERS + " before filters and " + withoutFilters + " bytes without");
+    }
+
+    private static long allocatedBytesPerRequest(int beforeFilters) throws Exception {
+        spark.route.Routes routes = spark.route.Routes.create();
+        for (int i = 0; i < beforeFilters; i++) {
+            routes.add(HttpMethod.before, new FilterImpl("/hello/:name", "*/*") {
+                @Override
+                public void handle(spark.Request request, spark.Response response) {
+                }
+            });
+        }
+        routes.add(HttpMethod.get, RouteImpl.create("/hello/:name", (request, response) -> "hello"));
+
+        MatcherFilter filter = new MatcherFilter(routes, new StaticFilesConfiguration(), new ExceptionMapper(),
+                                                 false, false);
+        HttpServletRequest request = request();
+        HttpServletResponse response = response();
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            filter.doFilter(request, response, null);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            filter.doFilter(request, response, null);
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_REQUESTS;
+    }
+
+    private static HttpServletRequest request() {
+        Enumeration<String> noHeaders = Collections.emptyEnumeration();
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                MatcherFilterAllocationTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                            return "/hello/bob";
+                        case "getHeaders":
+                            return noHeaders;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static HttpServletResponse response() {
+        Collection<String> noHeaders = Collections.emptyList();
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                MatcherFilterAllocationTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return out;
+                        case "getHeaders":
+                            return noHeaders;
+                        case "getContentType":
+                            return "text/plain";
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,35 @@
+package spark.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(0, LatencyHistogram.indexOf(-1));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long lower = LatencyHistogram.lowerBoundOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(lower));
+            if (i < LatencyHistogram.BUCKETS - 1) {
+                long upper = LatencyHistogram.upperBoundOf(i);
+                assertEquals(i, LatencyHistogram.indexOf(upper - 1));
+                assertTrue(upper - lower <= Math.max(1024, lower / 16), "Bucket " + i + " is too wide");
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        assertTrue(LatencyHistogram.lowerBoundOf(LatencyHistogram.BUCKETS - 1) > TimeUnit.HOURS.toNanos(1),
+                   "Latencies up to an hour should be told apart");
+    }
+
+}
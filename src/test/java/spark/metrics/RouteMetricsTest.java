@@ -0,0 +1,112 @@
+package spark.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import spark.Service;
+import spark.util.SparkTestUtil;
+
+public class RouteMetricsTest {
+
+    @Test
+    public void testUnknownMethodsAreCountedTogether() {
+        RouteMetrics metrics = new RouteMetrics();
+
+        metrics.record("GET", RouteMetrics.UNMATCHED, 404, 0, false, 1000);
+        for (int i = 0; i < 100; i++) {
+            metrics.record("MADEUP" + i, RouteMetrics.UNMATCHED, 404, 0, false, 1000);
+        }
+        metrics.record("get", RouteMetrics.UNMATCHED, 404, 0, false, 1000);
+
+        assertEquals(2, metrics.routes().size());
+        for (RouteStats stats : metrics.routes()) {
+            assertEquals("GET".equals(stats.getMethod()) ? 1 : 101, stats.getCount());
+        }
+    }
+
+    @Test
+    public void testEmbeddedServer() throws Exception {
+        Service http = Service.ignite().port(0);
+        http.metricsRoute("/metrics");
+        http.get("/users/:id", (request, response) -> "user " + request.params("id"));
+        http.post("/users/:id", (request, response) -> {
+            throw new IllegalStateException("failed");
+        });
+        http.awaitInitialization();
+
+        try {
+            SparkTestUtil client = new SparkTestUtil(http.port());
+            client.get("/users/1");
+            client.get("/users/22");
+            client.doMethod("POST", "/users/1", "");
+            client.get("/missing");
+
+            RouteStats.Snapshot users = awaitCount(http.metrics(), "GET", "/users/:id", 2);
+            assertEquals(2, users.statusClass(2));
+            assertEquals("user 1".length() + "user 22".length(), users.responseBytes());
+            assertEquals(0, users.errors());
+
+            RouteStats.Snapshot failed = awaitCount(http.metrics(), "POST", "/users/:id", 1);
+            assertEquals(1, failed.statusClass(5));
+            assertEquals(1, failed.errors());
+
+            assertEquals(1, awaitCount(http.metrics(), "GET", RouteMetrics.UNMATCHED, 1).statusClass(4));
+
+            SparkTestUtil.UrlResponse response = client.get("/metrics");
+            assertEquals(200, response.status);
+            assertEquals(RouteMetrics.PROMETHEUS_CONTENT_TYPE, response.headers.get("Content-Type"));
+            assertTrue(response.body.contains("# TYPE spark_requests_total counter\n"));
+            assertTrue(response.body.contains(
+                    "spark_requests_total{method=\"GET\",route=\"/users/:id\",status=\"2xx\"} 2\n"), response.body);
+            assertTrue(response.body.contains(
+                    "spark_request_errors_total{method=\"POST\",route=\"/users/:id\"} 1\n"), response.body);
+            assertTrue(response.body.contains(
+                    "spark_request_duration_seconds_bucket{method=\"GET\",route=\"/users/:id\",le=\"+Inf\"} 2\n"),
+                       response.body);
+
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = mBeanServer.queryNames(
+                    new ObjectName("spark:type=RouteMetrics,method=\"GET\",route=\"/users/:id\",*"), null);
+            assertEquals(1, names.size());
+            assertEquals(2L, mBeanServer.getAttribute(names.iterator().next(), "Count"));
+        } finally {
+            http.stop();
+            http.awaitStop();
+        }
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer()
+                           .queryNames(new ObjectName("spark:type=RouteMetrics,route=\"/users/:id\",*"), null)
+                           .isEmpty(), "MBeans should be unregistered on stop");
+    }
+
+    /**
+     * Requests are recorded after the response is sent.
+     */
+    private static RouteStats.Snapshot awaitCount(RouteMetrics metrics, String method, String route, long count)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            for (RouteStats stats : metrics.routes()) {
+                if (stats.getMethod().equals(method) && stats.getRoute().equals(route)) {
+                    RouteStats.Snapshot snapshot = stats.snapshot();
+                    if (snapshot.count() >= count || System.currentTimeMillis() > deadline) {
+                        return snapshot;
+                    }
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("No metrics for " + method + " " + route);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
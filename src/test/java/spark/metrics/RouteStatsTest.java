@@ -0,0 +1,87 @@
+package spark.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class RouteStatsTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int RECORDS_PER_ROUND = 200_000;
+
+    @Test
+    public void testRecord() {
+        RouteStats stats = new RouteStats("GET", "/users/:id");
+
+        for (int i = 1; i <= 100; i++) {
+            stats.record(200, 10, false, i * MILLI);
+        }
+        stats.record(404, 5, false, MILLI);
+        stats.record(500, -1, true, 1000 * MILLI);
+
+        RouteStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(102, snapshot.count());
+        assertEquals(100, snapshot.statusClass(2));
+        assertEquals(1, snapshot.statusClass(4));
+        assertEquals(1, snapshot.statusClass(5));
+        assertEquals(1, snapshot.errors());
+        assertEquals(1005, snapshot.responseBytes());
+        assertEquals((5050 + 1 + 1000) * MILLI, snapshot.latencyNanos());
+
+        assertEquals(50, snapshot.percentileNanos(0.5) / MILLI, 50 / 16.0);
+        assertEquals(99, snapshot.percentileNanos(0.98) / MILLI, 99 / 16.0);
+        assertEquals(1000, snapshot.percentileNanos(1) / MILLI, 1000 / 16.0);
+
+        assertEquals(102, stats.getCount());
+        assertEquals(1, stats.getServerErrors());
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                   "Allocation counters not available");
+
+        RouteMetrics metrics = new RouteMetrics();
+        for (int i = 0; i < 20_000; i++) {
+            metrics.record("GET", "/users/:id", 200, 100, false, i * 1000L);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record("GET", "/users/:id", 200, 100, false, i * 1000L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Reading the allocation counter may allocate itself
+        assertTrue(allocated < 1024, "Recording should not allocate, allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void testRecordingTakesLessThan100Nanoseconds() {
+        RouteMetrics metrics = new RouteMetrics();
+        String[] routes = {"/users/:id", "/users", "/orders/:id", "/health"};
+        int[] statuses = {200, 200, 404, 500};
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < RECORDS_PER_ROUND; i++) {
+                metrics.record("GET", routes[i & 3], statuses[i & 3], 100, false, i * 1000L);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / RECORDS_PER_ROUND);
+        }
+
+        // Best of the rounds, the first ones also warm up the code
+        assertTrue(best < 100, "Recording took " + best + " ns");
+    }
+
+}
@@ -0,0 +1,125 @@
+package spark.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(-5 * SECOND);
+
+    @Test
+    public void testBurstAndRefill() {
+        RateLimiter rateLimiter = new RateLimiter(10, Duration.ofSeconds(1), clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("key"));
+        }
+        assertEquals(SECOND / 10, rateLimiter.tryAcquire("key"), "Next token should be due in 100 ms");
+
+        clock.addAndGet(SECOND / 10);
+        assertEquals(0, rateLimiter.tryAcquire("key"));
+        assertTrue(rateLimiter.tryAcquire("key") > 0);
+
+        clock.addAndGet(10 * SECOND);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("key"));
+        }
+        assertTrue(rateLimiter.tryAcquire("key") > 0, "Bucket should not fill beyond the burst");
+        assertEquals(3, rateLimiter.rejected());
+    }
+
+    @Test
+    public void testBurst() {
+        RateLimiter rateLimiter = new RateLimiter(10, Duration.ofSeconds(1), clock::get).withBurst(2);
+
+        assertEquals(0, rateLimiter.tryAcquire("key"));
+        assertEquals(0, rateLimiter.tryAcquire("key"));
+        assertTrue(rateLimiter.tryAcquire("key") > 0);
+    }
+
+    @Test
+    public void testKeys() {
+        HttpServletRequest first = mock(HttpServletRequest.class);
+        when(first.getHeader("X-API-Key")).thenReturn("first");
+        HttpServletRequest second = mock(HttpServletRequest.class);
+        when(second.getHeader("X-API-Key")).thenReturn("second");
+        HttpServletRequest anonymous = mock(HttpServletRequest.class);
+
+        RateLimiter rateLimiter = new RateLimiter(1, Duration.ofMinutes(1), clock::get)
+                .keyedBy(RateLimiter.header("X-API-Key"));
+
+        assertEquals(0, rateLimiter.tryAcquire(first));
+        assertTrue(rateLimiter.tryAcquire(first) > 0);
+        assertEquals(0, rateLimiter.tryAcquire(second), "Keys should have buckets of their own");
+        assertEquals(0, rateLimiter.tryAcquire(anonymous));
+        assertTrue(rateLimiter.tryAcquire(anonymous) > 0, "Requests without key should share a bucket");
+        assertEquals(3, rateLimiter.keys());
+    }
+
+    @Test
+    public void testEvictsFullBuckets() {
+        RateLimiter rateLimiter = new RateLimiter(1, Duration.ofSeconds(1), clock::get).withMaxKeys(16);
+
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire("key" + i);
+        }
+        assertTrue(rateLimiter.keys() <= 16, "Keys should be bounded, were " + rateLimiter.keys());
+
+        // Keys are only dropped once their bucket is full again
+        rateLimiter = new RateLimiter(1, Duration.ofSeconds(1), clock::get).withMaxKeys(100_000);
+        assertEquals(0, rateLimiter.tryAcquire("active"));
+        clock.addAndGet(2 * SECOND);
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire("key" + i);
+        }
+        assertEquals(1001, rateLimiter.keys());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        RateLimiter rateLimiter = RateLimiter.create(1000, Duration.ofHours(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(() -> {
+                    int allowed = 0;
+                    for (int j = 0; j < 500; j++) {
+                        if (rateLimiter.tryAcquire("shared") == 0) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                });
+            }
+
+            int allowed = 0;
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                allowed += result.get();
+            }
+            assertEquals(1000, allowed, "Every token should be taken exactly once");
+            assertEquals(3000, rateLimiter.rejected());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
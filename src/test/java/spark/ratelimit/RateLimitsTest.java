@@ -0,0 +1,79 @@
+package spark.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import spark.Service;
+import spark.util.SparkTestUtil;
+
+public class RateLimitsTest {
+
+    @Test
+    public void testPaths() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        RateLimits rateLimits = RateLimits.NONE
+                .with("/api/*", RateLimiter.create(1, Duration.ofMinutes(1)))
+                .with("/users/:id", RateLimiter.create(1, Duration.ofMinutes(1)));
+
+        assertTrue(rateLimits.tryAcquire("/other", request, response));
+        assertTrue(rateLimits.tryAcquire("/other", request, response), "Other paths should not be limited");
+        assertTrue(rateLimits.tryAcquire("/apis", request, response));
+
+        assertTrue(rateLimits.tryAcquire("/api/emails", request, response));
+        assertFalse(rateLimits.tryAcquire("/api", request, response));
+        assertFalse(rateLimits.tryAcquire("/api/emails/1/", request, response));
+
+        assertTrue(rateLimits.tryAcquire("/users/1", request, response));
+        assertFalse(rateLimits.tryAcquire("/users/2/", request, response));
+        assertTrue(rateLimits.tryAcquire("/users", request, response));
+        assertTrue(rateLimits.tryAcquire("/users/1/emails", request, response));
+
+        verify(response, times(3)).setStatus(429);
+        verify(response, times(3)).setHeader("Retry-After", "60");
+    }
+
+    @Test
+    public void testPathGroup() throws Exception {
+        AtomicInteger filtered = new AtomicInteger();
+
+        Service http = Service.ignite().port(0);
+        http.before((request, response) -> filtered.incrementAndGet());
+        http.path("/api", () -> {
+            http.rateLimit(RateLimiter.create(2, Duration.ofMinutes(1)).keyedBy(RateLimiter.header("X-API-Key")));
+            http.get("/emails", (request, response) -> "emails");
+        });
+        http.get("/health", (request, response) -> "ok");
+        http.awaitInitialization();
+
+        try {
+            SparkTestUtil client = new SparkTestUtil(http.port());
+            assertEquals(200, client.get("/api/emails").status);
+            assertEquals(200, client.get("/api/emails").status);
+
+            SparkTestUtil.UrlResponse rejected = client.get("/api/emails");
+            assertEquals(429, rejected.status);
+            assertEquals("30", rejected.headers.get("Retry-After"));
+            assertEquals(2, filtered.get(), "Rejected requests should not reach filters");
+
+            assertEquals(200, client.get("/health").status);
+        } finally {
+            http.stop();
+            http.awaitStop();
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package spark.resource;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResourceIndexTest {
+
+    @Test
+    public void testClassPath() {
+        ResourceIndex index = ResourceIndex.ofClassPath("/public", getClass().getClassLoader());
+
+        assertNotNull(index);
+        assertTrue(index.mightExist("/page.html"));
+        assertTrue(index.mightExist("/css/style.css"));
+        assertTrue(index.mightExist("/css"));
+        assertTrue(index.mightExist("/css/"));
+        assertTrue(index.mightExist("/"));
+        assertFalse(index.mightExist("/api/users/1"), "Paths that are not in the folder should be rejected");
+        assertFalse(index.mightExist("/css/missing.css"));
+        assertTrue(index.mightExist("/css/../page.html"), "Paths that need normalizing should not be rejected");
+    }
+
+    @Test
+    public void testClassPath_whenFolderCanNotBeListed() {
+        assertNull(ResourceIndex.ofClassPath("/", getClass().getClassLoader()));
+        assertNull(ResourceIndex.ofClassPath("/does-not-exist", getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testDirectory_seesFilesAddedLater(@TempDir File folder) throws Exception {
+        File sub = new File(folder, "sub");
+        assertTrue(sub.mkdir());
+        Files.write(new File(sub, "a.txt").toPath(), new byte[] {1});
+
+        long longAgo = System.currentTimeMillis() - 60_000;
+        assertTrue(sub.setLastModified(longAgo));
+        assertTrue(folder.setLastModified(longAgo));
+
+        ResourceIndex index = ResourceIndex.ofDirectory(folder);
+
+        assertNotNull(index);
+        assertTrue(index.mightExist("/sub/a.txt"));
+        assertFalse(index.mightExist("/sub/b.txt"));
+        assertFalse(index.mightExist("/other/b.txt"));
+
+        Files.write(new File(sub, "b.txt").toPath(), new byte[] {1});
+        assertFalse(index.mightExist("/sub/b.txt"), "Misses should be trusted until the directories are checked again");
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(ResourceIndex.CHECK_INTERVAL_NANOS) + 100);
+        assertTrue(index.mightExist("/sub/b.txt"), "A file added to an indexed directory should be found");
+    }
+
+    @Test
+    public void testDirectory_withReportedChanges(@TempDir File folder) throws Exception {
+        ResourceIndex index = ResourceIndex.ofDirectory(folder);
+        assertNotNull(index);
+
+        File sub = new File(folder, "sub");
+        assertTrue(sub.mkdir());
+        Files.write(new File(sub, "a.txt").toPath(), new byte[] {1});
+
+        index.update("/sub");
+        assertTrue(index.mightExist("/sub/a.txt"), "Files in a reported directory should be indexed");
+        assertTrue(index.files().contains("/sub/a.txt"));
+
+        assertTrue(new File(sub, "a.txt").delete());
+        index.update("/sub/a.txt");
+        assertFalse(index.mightExist("/sub/a.txt"));
+        assertTrue(index.mightExist("/sub"));
+
+        Files.write(new File(sub, "b.txt").toPath(), new byte[] {1});
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(ResourceIndex.CHECK_INTERVAL_NANOS) + 100);
+        assertTrue(index.mightExist("/sub/b.txt"), "Files not reported yet should be found on a miss");
+    }
+
+}
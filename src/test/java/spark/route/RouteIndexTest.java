@@ -0,0 +1,121 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import spark.utils.SparkUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteIndexTest {
+
+    private static final List<String> ROUTE_PATHS = Arrays.asList(
+            "/", "", "/hello", "/hello/", "/hello/:name", "/hello/:name/", "/hello/*", "/hello/*/world",
+            "/:a/:b", "/:a/*", "*", "/*", "/files/*.txt", "/a/b*", "/a/:b*", "/a//b", "/users/:id/posts/:post",
+            "/users/me/posts/:post", "/users/:id/*", SparkUtils.ALL_PATHS);
+
+    private static final List<String> REQUEST_PATHS = Arrays.asList(
+            "/", "//", "/hello", "/hello/", "/hello/bob", "/hello/bob/", "/hello/bob/world", "/hello/bob/world/",
+            "/a", "/a/", "/a/b", "/a/b*", "/a/b*/c", "/a/x/y/z", "/a//b", "/users/1/posts/2", "/users/me/posts/2",
+            "/users/1/", "/users/1", "/files/readme.txt", "/files/*.txt", "/x/y/", SparkUtils.ALL_PATHS);
+
+    @Test
+    public void testFind_sameResultAsLinearMatching() {
+        for (HttpMethod method : Arrays.asList(HttpMethod.get, HttpMethod.before)) {
+            RouteIndex index = RouteIndex.EMPTY;
+            List<RouteEntry> entries = new ArrayList<>();
+
+            for (String path : ROUTE_PATHS) {
+                RouteEntry entry = entry(method, path, entries.size());
+                entries.add(entry);
+                index = index.with(entry);
+            }
+
+            for (String path : REQUEST_PATHS) {
+                List<RouteEntry> expected = new ArrayList<>();
+                for (RouteEntry entry : entries) {
+                    if (entry.matches(method, path)) {
+                        expected.add(entry);
+                    }
+                }
+                assertEquals(expected, index.find(method, path), "Wrong matches for " + method + " " + path);
+            }
+        }
+    }
+
+    @Test
+    public void testOf_sameResultAsAddingOneByOne() {
+        RouteIndex index = RouteIndex.EMPTY;
+        List<RouteEntry> entries = new ArrayList<>();
+
+        for (HttpMethod method : Arrays.asList(HttpMethod.get, HttpMethod.before)) {
+            for (String path : ROUTE_PATHS) {
+                RouteEntry entry = entry(method, path, entries.size());
+                entries.add(entry);
+                index = index.with(entry);
+            }
+        }
+
+        RouteIndex built = RouteIndex.of(entries);
+
+        assertEquals(index.all(), built.all());
+        for (HttpMethod method : Arrays.asList(HttpMethod.get, HttpMethod.before, HttpMethod.post)) {
+            for (String path : REQUEST_PATHS) {
+                assertEquals(index.find(method, path), built.find(method, path), "Wrong matches for " + method + " " + path);
+            }
+        }
+    }
+
+    @Test
+    public void testFind_returnsEntriesInMappingOrder() {
+        RouteIndex index = RouteIndex.EMPTY;
+        RouteEntry wildcard = entry(HttpMethod.get, "/*", 0);
+        RouteEntry param = entry(HttpMethod.get, "/:name", 1);
+        RouteEntry exact = entry(HttpMethod.get, "/hello", 2);
+
+        index = index.with(exact).with(param).with(wildcard);
+
+        assertEquals(Arrays.asList(wildcard, param, exact), index.find(HttpMethod.get, "/hello"));
+    }
+
+    @Test
+    public void testFind_otherHttpMethodDoesNotMatch() {
+        RouteIndex index = RouteIndex.EMPTY;
+        index = index.with(entry(HttpMethod.post, "/hello", 0));
+
+        assertTrue(index.find(HttpMethod.get, "/hello").isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        RouteIndex index = RouteIndex.EMPTY;
+        RouteEntry first = entry(HttpMethod.get, "/hello/:name", 0);
+        RouteEntry second = entry(HttpMethod.get, "/hello/:other", 1);
+
+        index = index.with(first).with(second);
+
+        RouteIndex removed = index.without(first);
+
+        assertSame(removed, removed.without(first));
+        assertEquals(Arrays.asList(second), removed.find(HttpMethod.get, "/hello/bob"));
+        assertEquals(Arrays.asList(first, second), index.find(HttpMethod.get, "/hello/bob"), "Original index changed");
+        assertTrue(removed.without(second).find(HttpMethod.get, "/hello/bob").isEmpty());
+        assertFalse(removed.without(second).methods().iterator().hasNext(), "Empty tree not pruned");
+    }
+
+    private static RouteEntry entry(HttpMethod method, String path, long order) {
+        RouteEntry entry = new RouteEntry();
+        entry.httpMethod = method;
+        entry.path = path;
+        entry.acceptedType = "*/*";
+        entry.target = path;
+        entry.order = order;
+        return entry;
+    }
+}
@@ -0,0 +1,159 @@
+package spark.route;
+
+import org.junit.jupiter.api.Test;
+
+import spark.FilterImpl;
+import spark.RouteImpl;
+import spark.routematch.DispatchPlan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RoutesTest {
+
+    @Test
+    public void testPlan_resolvesFiltersAndRouteInOnePass() {
+        Routes routes = Routes.create();
+        FilterImpl before = filter("/hello/*");
+        RouteImpl route = route("/hello/:name");
+        FilterImpl after = filter("/hello/:name");
+        FilterImpl afterAfter = filter("/*");
+
+        routes.add(HttpMethod.before, before);
+        routes.add(HttpMethod.get, route);
+        routes.add(HttpMethod.after, after);
+        routes.add(HttpMethod.afterafter, afterAfter);
+
+        DispatchPlan plan = routes.plan(HttpMethod.get, "/hello/bob", null);
+
+        assertEquals(1, plan.beforeFilters().size());
+        assertSame(before, plan.beforeFilters().get(0).getTarget());
+        assertSame(route, plan.route().getTarget());
+        assertSame(after, plan.afterFilters().get(0).getTarget());
+        assertSame(afterAfter, plan.afterAfterFilters().get(0).getTarget());
+        assertFalse(plan.headMappedByGet());
+    }
+
+    @Test
+    public void testPlan_isCachedUntilRoutesChange() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route("/hello"));
+
+        DispatchPlan plan = routes.plan(HttpMethod.get, "/hello", "text/html");
+        assertSame(plan, routes.plan(HttpMethod.get, "/hello", "text/html"));
+
+        routes.add(HttpMethod.before, filter("/hello"));
+        DispatchPlan replanned = routes.plan(HttpMethod.get, "/hello", "text/html");
+
+        assertNotSame(plan, replanned);
+        assertEquals(1, replanned.beforeFilters().size());
+
+        routes.remove("/hello", "before");
+        assertTrue(routes.plan(HttpMethod.get, "/hello", "text/html").beforeFilters().isEmpty());
+    }
+
+    @Test
+    public void testPlan_missesAreNotCached() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route("/hello"));
+
+        DispatchPlan miss = routes.plan(HttpMethod.get, "/unknown", null);
+
+        assertNull(miss.route());
+        assertNotSame(miss, routes.plan(HttpMethod.get, "/unknown", null));
+    }
+
+    @Test
+    public void testPlan_evictsLeastRecentlyUsedPlans() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route("/:name"));
+
+        DispatchPlan hot = routes.plan(HttpMethod.get, "/hot", null);
+        DispatchPlan cold = routes.plan(HttpMethod.get, "/cold", null);
+        for (int i = 0; i < 20_000; i++) {
+            routes.plan(HttpMethod.get, "/path" + i, null);
+            assertSame(hot, routes.plan(HttpMethod.get, "/hot", null));
+        }
+
+        assertNotSame(cold, routes.plan(HttpMethod.get, "/cold", null));
+    }
+
+    @Test
+    public void testPlan_headFallsBackToGet() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route("/hello"));
+
+        DispatchPlan plan = routes.plan(HttpMethod.head, "/hello", null);
+
+        assertNull(plan.route());
+        assertTrue(plan.headMappedByGet());
+        assertFalse(routes.plan(HttpMethod.head, "/other", null).headMappedByGet());
+    }
+
+    @Test
+    public void testReplaceWith_swapsAllRoutesAtOnce() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.get, route("/old"));
+        routes.add(HttpMethod.before, filter("/*"));
+        DispatchPlan oldPlan = routes.plan(HttpMethod.get, "/new", null);
+
+        Routes replacement = Routes.create();
+        RouteImpl newRoute = route("/new");
+        replacement.add(HttpMethod.get, newRoute);
+
+        routes.replaceWith(replacement);
+
+        assertNull(routes.find(HttpMethod.get, "/old", null));
+        assertSame(newRoute, routes.find(HttpMethod.get, "/new", null).getTarget());
+        assertNotSame(oldPlan, routes.plan(HttpMethod.get, "/new", null));
+        assertTrue(routes.plan(HttpMethod.get, "/new", null).beforeFilters().isEmpty());
+        assertEquals(1, routes.findAll().size());
+    }
+
+    @Test
+    public void testReplaceWith_laterRoutesKeepMappingOrder() {
+        Routes routes = Routes.create();
+        Routes replacement = Routes.create();
+        RouteImpl first = route("/:name");
+        replacement.add(HttpMethod.get, first);
+
+        routes.replaceWith(replacement);
+        routes.add(HttpMethod.get, route("/hello"));
+
+        assertSame(first, routes.find(HttpMethod.get, "/hello", null).getTarget());
+    }
+
+    @Test
+    public void testCreateDeferred_buildsTableWhenRead() {
+        Routes deferred = Routes.createDeferred();
+        RouteImpl first = route("/:name");
+        deferred.add(HttpMethod.get, first);
+        deferred.add(HttpMethod.get, route("/hello"));
+
+        assertSame(first, deferred.find(HttpMethod.get, "/hello", null).getTarget());
+
+        RouteImpl other = route("/other/:name");
+        deferred.add(HttpMethod.get, other);
+        assertEquals(3, deferred.findAll().size());
+
+        Routes routes = Routes.create();
+        routes.replaceWith(deferred);
+        assertSame(other, routes.find(HttpMethod.get, "/other/bob", null).getTarget());
+    }
+
+    private static RouteImpl route(String path) {
+        return RouteImpl.create(path, (request, response) -> path);
+    }
+
+    private static FilterImpl filter(String path) {
+        return new FilterImpl(path, "*/*") {
+            @Override
+            public void handle(spark.Request request, spark.Response response) {
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package spark.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BytesSerializerTest {
+
+    private final BytesSerializer serializer = new BytesSerializer();
+
+    @Test
+    public void testProcess_whenSlice() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes("--slice--"));
+        buffer.position(2).limit(7);
+
+        assertEquals("slice", process(buffer.slice()));
+        assertEquals("slice", process(buffer));
+        assertEquals(2, buffer.position(), "The position of the buffer should not change");
+    }
+
+    @Test
+    public void testProcess_whenDirect() throws IOException {
+        byte[] content = new byte[20_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length + 1);
+        buffer.put((byte) '-').put(content).flip().position(1);
+
+        assertEquals(new String(content, StandardCharsets.UTF_8), process(buffer));
+        assertEquals(1, buffer.position(), "The position of the buffer should not change");
+    }
+
+    @Test
+    public void testProcess_whenBuffers(@TempDir File folder) throws IOException {
+        File file = new File(folder, "mapped.txt");
+        Files.write(file.toPath(), bytes("mapped"));
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        assertEquals("heap mapped", process(new ByteBuffer[] {ByteBuffer.wrap(bytes("heap ")), mapped}));
+    }
+
+    @Test
+    public void testChain_whenBufferSubclasses(@TempDir File folder) throws IOException {
+        File file = new File(folder, "mapped.txt");
+        Files.write(file.toPath(), bytes("mapped"));
+
+        MappedByteBuffer[] mapped = new MappedByteBuffer[1];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            mapped[0] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new SerializerChain().process(output, mapped);
+        assertEquals("mapped", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private String process(Object element) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.process(output, element);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,96 @@
+package spark.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class CharSequenceSerializerTest {
+
+    private final CharSequenceSerializer serializer = new CharSequenceSerializer();
+
+    @Test
+    public void testProcess_encodesInChunks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10 * CharSequenceSerializer.BUFFER_SIZE) {
+            // Multi-byte characters end up on chunk boundaries
+            text.append("{\"name\":\"Grüße 😀\"},");
+        }
+        String expected = text.toString();
+
+        ChunkRecordingOutputStream output = new ChunkRecordingOutputStream();
+        serializer.process(output, expected);
+
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+        assertTrue(output.largestWrite <= CharSequenceSerializer.BUFFER_SIZE,
+                   "Writes should not be larger than the buffer, was " + output.largestWrite);
+    }
+
+    @Test
+    public void testProcess_whenReused() throws IOException {
+        for (String text : new String[] {"first", "sécond", ""}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            serializer.process(output, text);
+            assertEquals(text, new String(output.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testProcess_doesNotCallToString() throws IOException {
+        CharSequence chars = new CharSequence() {
+            private final String text = "no toString";
+
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                throw new AssertionError("toString should not be called");
+            }
+        };
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.process(output, chars);
+
+        assertEquals("no toString", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_whenMalformed() throws IOException {
+        String text = "broken \uD800 surrogate";
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.process(output, text);
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    private static class ChunkRecordingOutputStream extends ByteArrayOutputStream {
+
+        int largestWrite;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            largestWrite = Math.max(largestWrite, len);
+            super.write(b, off, len);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package spark.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class IterableSerializerTest {
+
+    @Test
+    public void testNewlineDelimited() throws IOException {
+        IterableSerializer serializer = IterableSerializer.newlineDelimited();
+
+        assertEquals("a\nb\nnull\n", serialize(serializer, Arrays.asList("a", "b", null)));
+        assertEquals("", serialize(serializer, Collections.emptyList()));
+    }
+
+    @Test
+    public void testDelimited() throws IOException {
+        IterableSerializer serializer = IterableSerializer
+                .delimited("[", ",", "]")
+                .withElementSerializer((out, element) -> write(out, "\"" + element + "\""));
+
+        assertEquals("[\"a\",\"b\"]", serialize(serializer, Arrays.asList("a", "b").iterator()));
+        assertEquals("[]", serialize(serializer, Collections.emptyIterator()));
+    }
+
+    @Test
+    public void testLengthPrefixed() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IterableSerializer.lengthPrefixed().serialize(output, Arrays.asList("ab", "ü"));
+
+        assertArrayEquals(new byte[] {0, 0, 0, 2, 'a', 'b', 0, 0, 0, 2, (byte) 0xc3, (byte) 0xbc},
+                          output.toByteArray());
+    }
+
+    @Test
+    public void testStream_isClosed() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Integer> stream = Stream.of(1, 2, 3).onClose(() -> closed.set(true));
+
+        assertEquals("1\n2\n3\n", serialize(IterableSerializer.newlineDelimited(), stream));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testFlushEvery() throws IOException {
+        FlushCountingOutputStream output = new FlushCountingOutputStream();
+        IterableSerializer.newlineDelimited()
+                          .withFlushEvery(10, 0)
+                          .serialize(output, IntStream.range(0, 100).boxed());
+        assertEquals(10, output.flushes);
+
+        output = new FlushCountingOutputStream();
+        IterableSerializer.newlineDelimited()
+                          .withFlushEvery(0, 100)
+                          // 10 bytes per element
+                          .serialize(output, IntStream.range(0, 100).mapToObj(i -> "123456789"));
+        assertEquals(10, output.flushes);
+    }
+
+    @Test
+    public void testElementSerializer_closingStream() throws IOException {
+        FlushCountingOutputStream output = new FlushCountingOutputStream();
+        IterableSerializer.newlineDelimited()
+                          .withElementSerializer((out, element) -> {
+                              write(out, String.valueOf(element));
+                              out.close();
+                          })
+                          .serialize(output, Arrays.asList(1, 2));
+
+        assertEquals("1\n2\n", output.toString(StandardCharsets.UTF_8.name()));
+        assertEquals(0, output.closes, "Element serializers should not close the response");
+    }
+
+    @Test
+    public void testChain_likeToString() throws IOException {
+        SerializerChain chain = new SerializerChain();
+        List<Object> list = new ArrayList<>(Arrays.asList(1, "two", null, Arrays.asList(3, 4)));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chain.process(output, list.iterator());
+        assertEquals(list.toString(), output.toString(StandardCharsets.UTF_8.name()));
+
+        chain.register(Integer.class, (out, element) -> write(out, "#" + element));
+        output = new ByteArrayOutputStream();
+        chain.process(output, list.stream());
+        assertEquals("[#1, two, null, [3, 4]]", output.toString(StandardCharsets.UTF_8.name()),
+                     "Elements should be written by the mapped serializers, collections by their toString");
+    }
+
+    @Test
+    public void testChain_collectionsWrittenByToString() throws IOException {
+        SerializerChain chain = new SerializerChain();
+        List<Object> list = new ArrayList<Object>() {
+            @Override
+            public String toString() {
+                return "custom";
+            }
+        };
+        list.add(1);
+        List<Object> self = new ArrayList<>();
+        self.add(self);
+
+        assertEquals("custom", process(chain, list));
+        assertEquals("[(this Collection)]", process(chain, self));
+
+        chain.register(Collection.class, IterableSerializer.newlineDelimited());
+        assertEquals("1\n", process(chain, list), "Collections should be streamed when mapped");
+    }
+
+    private static String process(SerializerChain chain, Object element) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chain.process(output, element);
+        return output.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static String serialize(IterableSerializer serializer, Object element) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.serialize(output, element);
+        return output.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static void write(OutputStream outputStream, String text) throws IOException {
+        outputStream.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+        int flushes;
+        int closes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closes++;
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package spark.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SerializerChainTest {
+
+    private final SerializerChain chain = new SerializerChain();
+
+    @Test
+    public void testProcess_defaults() throws IOException {
+        assertEquals("bytes", process("bytes".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("buffer", process(ByteBuffer.wrap("buffer".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("stream", process(new ByteArrayInputStream("stream".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("hé", process("hé"));
+        assertEquals("42", process(42));
+    }
+
+    @Test
+    public void testProcess_whenRegistered() throws IOException {
+        chain.register(Integer.class, (outputStream, element) -> write(outputStream, "int " + element));
+
+        assertEquals("int 42", process(42));
+        assertEquals("42", process(42L), "Other types should not be affected");
+    }
+
+    @Test
+    public void testProcess_mostSpecificTypeWins() throws IOException {
+        chain.register(Number.class, (outputStream, element) -> write(outputStream, "number"));
+        chain.register(Comparable.class, (outputStream, element) -> write(outputStream, "comparable"));
+        chain.register(List.class, (outputStream, element) -> write(outputStream, "list"));
+        chain.register(ArrayList.class, (outputStream, element) -> write(outputStream, "array list"));
+
+        assertEquals("number", process(42), "Superclasses should win over interfaces");
+        assertEquals("comparable", process("text"));
+        assertEquals("array list", process(new ArrayList<>()));
+        assertEquals("list", process(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void testProcess_whenReplaced() throws IOException {
+        assertEquals("42", process(42));
+
+        chain.register(Integer.class, (outputStream, element) -> write(outputStream, "first"));
+        assertEquals("first", process(42));
+
+        chain.register(Integer.class, (outputStream, element) -> write(outputStream, "second"));
+        assertEquals("second", process(42), "Cached lookups should not survive a registration");
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        chain.register(Object.class, (outputStream, element) -> write(outputStream, "object"));
+        assertEquals("object", process(42));
+
+        chain.clear();
+        assertEquals("42", process(42));
+    }
+
+    @Test
+    public void testRegister_whenNull() {
+        assertThrows(IllegalArgumentException.class, () -> chain.register(Integer.class, null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> chain.register(null, (outputStream, element) -> write(outputStream, "")));
+    }
+
+    private String process(Object element) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chain.process(output, element);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(OutputStream outputStream, String text) throws IOException {
+        outputStream.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,70 @@
+package spark.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import spark.StreamingBody;
+
+public class StreamingBodySerializerTest {
+
+    private final StreamingBodySerializer serializer = new StreamingBodySerializer();
+
+    @Test
+    public void testProcess_whenMixingOutputs() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        serializer.process(output, (StreamingBody) out -> {
+            out.writer().write("writer, ");
+            out.outputStream().write("stream, ".getBytes(StandardCharsets.UTF_8));
+            out.writer().write("wrïter, ");
+            ByteBuffer buffer = ByteBuffer.wrap("channel".getBytes(StandardCharsets.UTF_8));
+            assertEquals(7, out.channel().write(buffer));
+            assertFalse(buffer.hasRemaining());
+            out.writer().write("!");
+        });
+
+        assertEquals("writer, stream, wrïter, channel!", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcess_closesChannel() throws IOException {
+        AtomicReference<WritableByteChannel> channel = new AtomicReference<>();
+
+        serializer.process(new ByteArrayOutputStream(), (StreamingBody) out -> channel.set(out.channel()));
+
+        assertFalse(channel.get().isOpen(), "The channel should not be used after the body was written");
+    }
+
+    @Test
+    public void testProcess_whenFailing() {
+        IOException ioException = new IOException("disconnected");
+        assertSame(ioException, assertThrows(IOException.class, () -> serializer.process(
+                new ByteArrayOutputStream(), (StreamingBody) out -> {
+                    throw ioException;
+                })));
+
+        IllegalStateException runtimeException = new IllegalStateException();
+        assertSame(runtimeException, assertThrows(IllegalStateException.class, () -> serializer.process(
+                new ByteArrayOutputStream(), (StreamingBody) out -> {
+                    throw runtimeException;
+                })));
+
+        Exception exception = new Exception();
+        assertSame(exception, assertThrows(IOException.class, () -> serializer.process(
+                new ByteArrayOutputStream(), (StreamingBody) out -> {
+                    throw exception;
+                })).getCause());
+    }
+
+}
@@ -0,0 +1,52 @@
+package spark.sse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+public class SseEmitterTest {
+
+    @Test
+    public void testSend_whenNotKeepingUp() {
+        SseEmitter emitter = new SseEmitter(mock(HttpServletRequest.class), mock(HttpServletResponse.class), 0, 20);
+
+        assertTrue(emitter.send("0123456789"), "An event should be queued when nothing is queued");
+        assertEquals(18, emitter.queuedBytes());
+        assertFalse(emitter.send("0123456789"), "Events exceeding the limit should not be queued");
+        assertEquals(18, emitter.queuedBytes());
+    }
+
+    @Test
+    public void testSend_whenClosing() {
+        SseEmitter emitter = new SseEmitter(mock(HttpServletRequest.class), mock(HttpServletResponse.class), 0, 1024);
+
+        emitter.close();
+
+        assertFalse(emitter.isOpen());
+        assertFalse(emitter.send("data"));
+    }
+
+    @Test
+    public void testBroadcast_removesClientsNotKeepingUp() {
+        SseEmitter slow = new SseEmitter(mock(HttpServletRequest.class), mock(HttpServletResponse.class), 0, 20);
+        SseEmitter fast = new SseEmitter(mock(HttpServletRequest.class), mock(HttpServletResponse.class), 0, 1024);
+
+        SseBroadcaster broadcaster = new SseBroadcaster();
+        broadcaster.add(slow);
+        broadcaster.add(fast);
+
+        assertEquals(2, broadcaster.broadcast("0123456789"));
+        assertEquals(1, broadcaster.broadcast("0123456789"));
+
+        assertEquals(1, broadcaster.size());
+        assertFalse(slow.isOpen(), "Clients not keeping up should be closed, to reconnect later");
+        assertTrue(fast.isOpen());
+    }
+
+}
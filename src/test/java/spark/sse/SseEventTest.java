@@ -0,0 +1,43 @@
+package spark.sse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class SseEventTest {
+
+    @Test
+    public void testEncode() {
+        assertEquals("data: hello\n\n", encode(SseEvent.of("hello")));
+        assertEquals("data: \n\n", encode(SseEvent.of("")));
+        assertEquals("id: 7\nevent: update\nretry: 3000\ndata: {\"a\":1}\n\n",
+                     encode(SseEvent.of("{\"a\":1}").withName("update").withId("7").withRetry(3000)));
+    }
+
+    @Test
+    public void testEncode_whenMultipleLines() {
+        assertEquals("data: a\ndata: b\ndata: c\ndata: \ndata: d\n\n", encode(SseEvent.of("a\nb\r\nc\r\rd")));
+    }
+
+    @Test
+    public void testComment() {
+        assertEquals(": \n\n", new String(SseEvent.comment(""), StandardCharsets.UTF_8));
+        assertEquals(": a\n: b\n\n", new String(SseEvent.comment("a\nb"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> SseEvent.of(null));
+        assertThrows(IllegalArgumentException.class, () -> SseEvent.of("a").withId("1\n2"));
+        assertThrows(IllegalArgumentException.class, () -> SseEvent.of("a").withName("x\ry"));
+        assertThrows(IllegalArgumentException.class, () -> SseEvent.of("a").withRetry(-1));
+    }
+
+    private static String encode(SseEvent event) {
+        return new String(event.encode(), StandardCharsets.UTF_8);
+    }
+
+}
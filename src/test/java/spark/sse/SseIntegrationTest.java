@@ -0,0 +1,162 @@
+package spark.sse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import spark.Service;
+
+public class SseIntegrationTest {
+
+    private static final SseBroadcaster broadcaster = new SseBroadcaster();
+    private static final SseBroadcaster heartbeatBroadcaster = new SseBroadcaster();
+
+    private static Service http;
+
+    @BeforeAll
+    public static void setup() {
+        http = Service.ignite().port(0);
+
+        http.sse("/events", (request, emitter) -> {
+            emitter.send(SseEvent.of("first").withId("1"));
+            emitter.send(SseEvent.of("second\nline").withId("2").withName("update"));
+            emitter.close();
+        });
+
+        http.sse("/resume", (request, emitter) -> {
+            emitter.send("after " + emitter.lastEventId());
+            emitter.close();
+        });
+
+        http.sse("/live", (request, emitter) -> broadcaster.add(emitter));
+
+        http.get("/heartbeat", new SseRoute((request, emitter) -> heartbeatBroadcaster.add(emitter), 50, 1024));
+
+        http.after("/events", (request, response) -> response.header("X-After", "yes"));
+
+        http.awaitInitialization();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        http.stop();
+        http.awaitStop();
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        HttpURLConnection connection = connect("/events", null);
+        try {
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("text/event-stream;charset=utf-8", connection.getContentType().replace(" ", ""));
+            assertEquals("no-cache", connection.getHeaderField("Cache-Control"));
+            assertEquals("yes", connection.getHeaderField("X-After"), "After filters should run before the events");
+
+            try (BufferedReader reader = reader(connection)) {
+                assertEquals(List.of("id: 1", "data: first"), readEvent(reader));
+                assertEquals(List.of("id: 2", "event: update", "data: second", "data: line"), readEvent(reader));
+                assertNull(reader.readLine(), "The response should end when the emitter is closed");
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testLastEventId() throws Exception {
+        HttpURLConnection connection = connect("/resume", "41");
+        try (BufferedReader reader = reader(connection)) {
+            assertEquals(List.of("data: after 41"), readEvent(reader));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        List<HttpURLConnection> connections = new ArrayList<>();
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                HttpURLConnection connection = connect("/live", null);
+                connections.add(connection);
+                readers.add(reader(connection));
+            }
+            await(() -> broadcaster.size() == 3);
+
+            assertEquals(3, broadcaster.broadcast(SseEvent.of("tick").withId("10")));
+            for (BufferedReader reader : readers) {
+                assertEquals(List.of("id: 10", "data: tick"), readEvent(reader));
+            }
+
+            broadcaster.close();
+            for (BufferedReader reader : readers) {
+                assertNull(reader.readLine());
+            }
+            assertEquals(0, broadcaster.size());
+        } finally {
+            for (HttpURLConnection connection : connections) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Test
+    public void testHeartbeat_whenClientIsGone() throws Exception {
+        HttpURLConnection connection = connect("/heartbeat", null);
+        try (BufferedReader reader = reader(connection)) {
+            assertEquals(List.of(": "), readEvent(reader));
+        } finally {
+            connection.disconnect();
+        }
+
+        await(() -> heartbeatBroadcaster.size() == 0);
+    }
+
+    private HttpURLConnection connect(String path, String lastEventId) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + http.port() + path)
+                .openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            connection.setRequestProperty("Last-Event-ID", lastEventId);
+        }
+        connection.setReadTimeout(30_000);
+        return connection;
+    }
+
+    private static BufferedReader reader(HttpURLConnection connection) throws IOException {
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readEvent(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import spark.resource.ClassPathResourceHandler;
+import spark.resource.ExternalResourceHandler;
+
+public class AssetManifestTest {
+
+    @Test
+    public void testFingerprint() {
+        assertEquals("/app.3f9a1c2b.js", AssetManifest.fingerprint("/app.js", "3f9a1c2b"));
+        assertEquals("/js/app.min.3f9a1c2b.js", AssetManifest.fingerprint("/js/app.min.js", "3f9a1c2b"));
+        assertEquals("/LICENSE.3f9a1c2b", AssetManifest.fingerprint("/LICENSE", "3f9a1c2b"));
+        assertEquals("/.well-known/security.3f9a1c2b", AssetManifest.fingerprint("/.well-known/security", "3f9a1c2b"));
+    }
+
+    @Test
+    public void testBuild(@TempDir File folder) throws Exception {
+        assertTrue(new File(folder, "js").mkdir());
+        Files.write(new File(folder, "js/app.js").toPath(), "var a = 1;".getBytes());
+
+        AssetManifest manifest = AssetManifest.build(
+                Collections.singletonList(new ExternalResourceHandler(folder.getPath())), new EntityTags());
+
+        String fingerprintedPath = manifest.fingerprintedPath("/js/app.js");
+        assertNotNull(fingerprintedPath);
+        assertTrue(fingerprintedPath.matches("/js/app\\.[0-9a-f]{8}\\.js"), fingerprintedPath);
+
+        AssetManifest.Entry entry = manifest.get(fingerprintedPath);
+        assertNotNull(entry);
+        assertEquals("/js/app.js", entry.path());
+        assertNull(manifest.get("/js/app.js"));
+        assertNull(manifest.fingerprintedPath("/js/missing.js"));
+    }
+
+    @Test
+    public void testBuild_whenFileChanges(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        Files.write(file.toPath(), "var a = 1;".getBytes());
+
+        AssetManifest manifest = AssetManifest.build(
+                Collections.singletonList(new ExternalResourceHandler(folder.getPath())), new EntityTags());
+        String fingerprintedPath = manifest.fingerprintedPath("/app.js");
+
+        Files.write(file.toPath(), "var a = 22;".getBytes());
+        assertEquals(fingerprintedPath, manifest.fingerprintedPath("/app.js"), "Recently checked, not checked again");
+        assertFalse(manifest.get(fingerprintedPath).isFingerprintOf(EntityTags.of("var a = 22;".getBytes())));
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(AssetManifest.CHECK_INTERVAL_NANOS) + 100);
+
+        assertNotEquals(fingerprintedPath, manifest.fingerprintedPath("/app.js"));
+        assertNull(manifest.get(fingerprintedPath), "The fingerprinted path of the old version should not be served");
+        assertNotNull(manifest.get(manifest.fingerprintedPath("/app.js")));
+    }
+
+    @Test
+    public void testUpdate(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        Files.write(file.toPath(), "var a = 1;".getBytes());
+
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        AssetManifest manifest = AssetManifest.build(Collections.singletonList(handler), new EntityTags());
+        String fingerprintedPath = manifest.fingerprintedPath("/app.js");
+
+        Files.write(file.toPath(), "var a = 22;".getBytes());
+        manifest.update(handler, "/app.js");
+
+        assertNotEquals(fingerprintedPath, manifest.fingerprintedPath("/app.js"));
+        assertNull(manifest.get(fingerprintedPath), "The fingerprinted path of the old version should not be served");
+        assertTrue(manifest.get(manifest.fingerprintedPath("/app.js"))
+                           .isFingerprintOf(EntityTags.of("var a = 22;".getBytes())));
+    }
+
+    @Test
+    public void testBuild_firstHandlerWins() {
+        ClassPathResourceHandler first = new ClassPathResourceHandler("/public");
+        ClassPathResourceHandler second = new ClassPathResourceHandler("/public");
+
+        AssetManifest manifest = AssetManifest.build(Arrays.asList(first, second), new EntityTags());
+
+        assertEquals(first, manifest.get(manifest.fingerprintedPath("/page.html")).handler());
+    }
+
+}
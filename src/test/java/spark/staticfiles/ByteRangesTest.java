@@ -0,0 +1,50 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteRangesTest {
+
+    @Test
+    public void testParse() {
+        assertEquals("[0-499]", ByteRanges.parse("bytes=0-499", 1000).toString());
+        assertEquals("[500-999]", ByteRanges.parse("bytes=500-", 1000).toString());
+        assertEquals("[900-999]", ByteRanges.parse("bytes=-100", 1000).toString());
+        assertEquals("[0-999]", ByteRanges.parse("bytes=-2000", 1000).toString());
+        assertEquals("[990-999]", ByteRanges.parse("bytes=990-2000", 1000).toString(),
+                     "The last byte should be limited to the length");
+        assertEquals("[0-9, 20-29]", ByteRanges.parse("bytes=0-9, 20-29", 1000).toString());
+    }
+
+    @Test
+    public void testParse_mergesOverlappingRanges() {
+        assertEquals("[0-29, 50-59]", ByteRanges.parse("bytes=50-59,0-9,10-19,15-29", 1000).toString());
+    }
+
+    @Test
+    public void testParse_whenNotSatisfiable() {
+        assertTrue(ByteRanges.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=-1", 0).isEmpty());
+
+        List<ByteRanges.Range> ranges = ByteRanges.parse("bytes=2000-3000,10-20", 1000);
+        assertEquals("[10-20]", ranges.toString(), "Unsatisfiable ranges should be dropped");
+    }
+
+    @Test
+    public void testParse_whenInvalid() {
+        assertNull(ByteRanges.parse("items=0-9", 1000));
+        assertNull(ByteRanges.parse("bytes=9-0", 1000));
+        assertNull(ByteRanges.parse("bytes=abc", 1000));
+        assertNull(ByteRanges.parse("bytes=1--2", 1000));
+        assertNull(ByteRanges.parse("bytes=-", 1000));
+        assertNull(ByteRanges.parse("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25,"
+                                            + "26-27,28-29,30-31,32-33", 1000), "Too many ranges should be ignored");
+    }
+
+}
@@ -0,0 +1,129 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import spark.resource.ExternalResource;
+import spark.utils.IOUtils;
+
+public class CompressedVariantsTest {
+
+    @Test
+    public void testAccepted() {
+        assertEquals(Arrays.asList("br", "gzip"), accepted("gzip, deflate, br"));
+        assertEquals(Arrays.asList("gzip"), accepted("gzip;q=0.5, br;q=0"));
+        assertEquals(Arrays.asList("br"), accepted("BR"));
+        assertEquals(Collections.emptyList(), accepted("identity"));
+        assertEquals(Collections.emptyList(), accepted(null));
+    }
+
+    @Test
+    public void testCompressesOnce(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 'a');
+        Files.write(file.toPath(), content);
+        ExternalResource resource = new ExternalResource(file.getPath());
+
+        CompressedVariants variants = new CompressedVariants(100_000);
+        CompressedVariants.Variant gzip = variants.get(resource, file.lastModified(), null, "gzip");
+
+        assertNotNull(gzip);
+        assertArrayEquals(content, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzip.content()))));
+        assertSame(gzip, variants.get(resource, file.lastModified(), null, "gzip"));
+        assertEquals(gzip.content().length, variants.size());
+
+        assertNull(variants.get(resource, file.lastModified(), null, "br"), "Only siblings should be sent as brotli");
+
+        Files.write(file.toPath(), Arrays.copyOf(content, 900));
+        assertNotSame(gzip, variants.get(resource, file.lastModified(), null, "gzip"),
+                      "A changed file should be compressed again");
+    }
+
+    @Test
+    public void testPrefersSiblings(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        Files.write(file.toPath(), new byte[1000]);
+        Files.write(new File(folder, "app.js.gz").toPath(), new byte[] {1, 2, 3});
+        Files.write(new File(folder, "app.js.br").toPath(), new byte[] {4, 5});
+        ExternalResource resource = new ExternalResource(file.getPath());
+
+        CompressedVariants variants = new CompressedVariants(100_000);
+
+        assertArrayEquals(new byte[] {1, 2, 3}, variants.get(resource, file.lastModified(), null, "gzip").content());
+        assertArrayEquals(new byte[] {4, 5}, variants.get(resource, file.lastModified(), null, "br").content());
+    }
+
+    @Test
+    public void testDoesNotHoldLargeFiles(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        Files.write(file.toPath(), new byte[1000]);
+        File sibling = new File(folder, "app.js.br");
+        Files.write(sibling.toPath(), new byte[500]);
+        ExternalResource resource = new ExternalResource(file.getPath());
+
+        CompressedVariants variants = new CompressedVariants(1000);
+
+        assertNull(variants.get(resource, file.lastModified(), null, "gzip"));
+        CompressedVariants.Variant brotli = variants.get(resource, file.lastModified(), null, "br");
+        assertNull(brotli.content());
+        assertEquals(sibling, brotli.sibling().getFile(), "Large siblings should be sent from their file");
+        assertEquals(0, variants.size());
+    }
+
+    @Test
+    public void testCompressesFilesOverAQuarterOfTheSizeWhileSent(@TempDir File folder) throws Exception {
+        File small = new File(folder, "small.js");
+        Files.write(small.toPath(), new byte[250]);
+        File large = new File(folder, "large.js");
+        Files.write(large.toPath(), new byte[251]);
+
+        CompressedVariants variants = new CompressedVariants(1000);
+
+        assertNotNull(variants.get(new ExternalResource(small.getPath()), small.lastModified(), null, "gzip"));
+        assertNull(variants.get(new ExternalResource(large.getPath()), large.lastModified(), null, "gzip"));
+    }
+
+    @Test
+    public void testDisabled(@TempDir File folder) throws Exception {
+        File file = new File(folder, "app.js");
+        Files.write(file.toPath(), new byte[1000]);
+        Files.write(new File(folder, "app.js.br").toPath(), new byte[] {4, 5});
+        ExternalResource resource = new ExternalResource(file.getPath());
+
+        CompressedVariants variants = new CompressedVariants(0);
+
+        assertNull(variants.get(resource, file.lastModified(), null, "gzip"));
+        assertNotNull(variants.get(resource, file.lastModified(), null, "br").sibling(),
+                      "Siblings should still be sent from their file");
+        assertEquals(0, variants.size());
+    }
+
+    private static List<String> accepted(String acceptEncoding) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(acceptEncoding == null
+                ? Collections.emptyEnumeration()
+                : Collections.enumeration(Collections.singletonList(acceptEncoding)));
+        return CompressedVariants.accepted(request);
+    }
+
+}
@@ -0,0 +1,65 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+
+public class ConditionalRequestsTest {
+
+    private static final String ETAG = "\"0123456789abcdef0123456789abcdef\"";
+
+    @Test
+    public void testIfNoneMatch() {
+        assertTrue(isNotModified(ETAG));
+        assertTrue(isNotModified("W/" + ETAG), "Weak tags should match");
+        assertTrue(isNotModified("\"other\", " + ETAG));
+        assertTrue(isNotModified("*"));
+        assertTrue(isNotModified(ConditionalRequests.encoded(ETAG, "gzip")), "Tags of encoded responses should match");
+        assertFalse(isNotModified("\"other\""));
+        assertFalse(isNotModified("\"0123456789abcdef0123456789abcdee\""));
+    }
+
+    @Test
+    public void testIfNoneMatch_whenNotGet() {
+        HttpServletRequest request = request("POST");
+        when(request.getHeader("If-None-Match")).thenReturn(ETAG);
+
+        assertFalse(ConditionalRequests.isNotModified(request, ETAG, 0));
+    }
+
+    @Test
+    public void testIfModifiedSince() {
+        HttpServletRequest request = request("GET");
+        when(request.getHeader("If-Modified-Since")).thenReturn("Sat, 29 Oct 1994 19:43:31 GMT");
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(783459811000L);
+
+        assertTrue(ConditionalRequests.isNotModified(request, ETAG, 783459811500L),
+                   "Milliseconds should be ignored");
+        assertFalse(ConditionalRequests.isNotModified(request, ETAG, 783459812000L));
+        assertFalse(ConditionalRequests.isNotModified(request, ETAG, 0), "Unknown modification times never match");
+    }
+
+    @Test
+    public void testEncoded() {
+        assertEquals("\"0123456789abcdef0123456789abcdef-gzip\"", ConditionalRequests.encoded(ETAG, "gzip"));
+    }
+
+    private static boolean isNotModified(String ifNoneMatch) {
+        HttpServletRequest request = request("GET");
+        when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        return ConditionalRequests.isNotModified(request, ETAG, 0);
+    }
+
+    private static HttpServletRequest request(String method) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        return request;
+    }
+
+}
@@ -0,0 +1,101 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import spark.resource.ExternalResource;
+
+public class EntityTagsTest {
+
+    @Test
+    public void testTagIsHashOfContent(@TempDir File folder) throws Exception {
+        File file = new File(folder, "page.html");
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+
+        String tag = new EntityTags().of(new ExternalResource(file.getPath()), file.lastModified());
+
+        assertEquals(EntityTags.of(new byte[] {1, 2, 3}), tag);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneHash(@TempDir File folder) throws Exception {
+        File file = new File(folder, "page.html");
+        Files.write(file.toPath(), new byte[1000]);
+        CountingResource resource = new CountingResource(file);
+        EntityTags entityTags = new EntityTags();
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> tags = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tags.add(executor.submit(() -> {
+                    start.await();
+                    return entityTags.of(resource, file.lastModified());
+                }));
+            }
+            start.countDown();
+
+            for (Future<String> tag : tags) {
+                assertEquals(EntityTags.of(new byte[1000]), tag.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, resource.reads.get(), "The file should be hashed once");
+    }
+
+    @Test
+    public void testHashedAgainOnlyWhenChanged(@TempDir File folder) throws Exception {
+        File file = new File(folder, "video.mp4");
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+        CountingResource resource = new CountingResource(file);
+        EntityTags entityTags = new EntityTags();
+
+        String tag = entityTags.of(resource, 1000);
+        assertEquals(tag, entityTags.of(resource, 1000));
+        assertEquals(1, resource.reads.get());
+
+        Files.write(file.toPath(), new byte[] {4, 5, 6});
+        assertNotEquals(tag, entityTags.of(resource, 2000), "The tag should change with the content");
+        assertEquals(2, resource.reads.get());
+    }
+
+    private static final class CountingResource extends ExternalResource {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private CountingResource(File file) {
+            super(file.getPath());
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            reads.incrementAndGet();
+            try {
+                // Keeps the hash running while the other requests arrive
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getInputStream();
+        }
+    }
+
+}
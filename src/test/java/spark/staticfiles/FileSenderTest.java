@@ -0,0 +1,80 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileSenderTest {
+
+    @Test
+    public void testMapsFrequentlyRequestedFiles(@TempDir File folder) throws Exception {
+        File file = write(folder, "page.html", 10);
+        FileSender sender = new FileSender(64, 100);
+
+        assertNull(sender.mapped(file), "Files should be sent from their channel the first time");
+        ByteBuffer mapped = sender.mapped(file);
+
+        assertNotNull(mapped);
+        assertEquals(10, mapped.remaining());
+        assertEquals(10, sender.mappedBytes());
+    }
+
+    @Test
+    public void testDoesNotMapFilesOverTheCap(@TempDir File folder) throws Exception {
+        File file = write(folder, "large.bin", 65);
+        FileSender sender = new FileSender(64, 100);
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(sender.mapped(file));
+        }
+        assertEquals(0, sender.mappedBytes());
+    }
+
+    @Test
+    public void testDoesNotMapFilesOver2GiB(@TempDir File folder) throws Exception {
+        File file = new File(folder, "huge.bin");
+        try (RandomAccessFile sparse = new RandomAccessFile(file, "rw")) {
+            sparse.setLength(3L * 1024 * 1024 * 1024);
+        }
+        FileSender sender = new FileSender();
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(sender.mapped(file));
+        }
+        assertEquals(0, sender.mappedBytes());
+    }
+
+    @Test
+    public void testKeepsMappedBytesWithinBudget(@TempDir File folder) throws Exception {
+        File a = write(folder, "a", 40);
+        File b = write(folder, "b", 40);
+        File c = write(folder, "c", 40);
+        FileSender sender = new FileSender(64, 100);
+
+        for (File file : new File[] {a, b, a, c}) {
+            sender.mapped(file);
+            sender.mapped(file);
+        }
+
+        assertEquals(80, sender.mappedBytes());
+        assertNotNull(sender.mapped(a), "Recently requested files should stay mapped");
+
+        sender.invalidate(folder.getAbsolutePath());
+        assertEquals(0, sender.mappedBytes());
+    }
+
+    private static File write(File folder, String name, int length) throws Exception {
+        File file = new File(folder, name);
+        Files.write(file.toPath(), new byte[length]);
+        return file;
+    }
+
+}
@@ -0,0 +1,65 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FolderWatcherTest {
+
+    @Test
+    public void testReportsChanges(@TempDir File folder) throws Exception {
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        FolderWatcher watcher = FolderWatcher.start(folder, new FolderWatcher.Listener() {
+            @Override
+            public void changed(String path) {
+                changes.add(path);
+            }
+
+            @Override
+            public void overflowed() {
+                changes.add("overflow");
+            }
+        });
+        assertNotNull(watcher);
+
+        try {
+            Files.write(new File(folder, "app.js").toPath(), new byte[] {1});
+            assertEquals("/app.js", awaitChange(changes, "/app.js"));
+
+            File sub = new File(folder, "sub");
+            assertTrue(sub.mkdir());
+            assertEquals("/sub", awaitChange(changes, "/sub"));
+
+            Files.write(new File(sub, "style.css").toPath(), new byte[] {1});
+            assertEquals("/sub/style.css", awaitChange(changes, "/sub/style.css"),
+                         "Changes in new directories should be reported");
+
+            assertTrue(new File(folder, "app.js").delete());
+            assertEquals("/app.js", awaitChange(changes, "/app.js"));
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Skips other changes the file system reports, e.g. modifications of the directory.
+     */
+    private static String awaitChange(BlockingQueue<String> changes, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        String change;
+        do {
+            change = changes.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } while (change != null && !change.equals(expected));
+        return change;
+    }
+
+}
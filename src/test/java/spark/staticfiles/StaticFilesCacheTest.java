@@ -0,0 +1,113 @@
+package spark.staticfiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import spark.resource.ExternalResource;
+import spark.resource.ExternalResourceHandler;
+
+public class StaticFilesCacheTest {
+
+    @Test
+    public void testPutAndGet(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        File file = write(folder, "style.css", 10);
+
+        StaticFilesCache cache = new StaticFilesCache(100);
+        StaticFilesCache.Asset asset = cache.put(handler, "/style.css", new ExternalResource(file.getPath()));
+
+        assertNotNull(asset);
+        assertEquals("text/css", asset.contentType());
+        assertArrayEquals(Files.readAllBytes(file.toPath()), asset.content());
+        assertEquals(asset, cache.get(handler, "/style.css"));
+        assertNull(cache.get(handler, "/other.css"));
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testHeaderValuesArePrecomputed(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        File file = write(folder, "style.css", 10);
+        assertTrue(file.setLastModified(1_500_000_000_000L));
+
+        StaticFilesCache.Asset asset = new StaticFilesCache(100).put(handler, "/style.css", new ExternalResource(file.getPath()));
+
+        assertNotNull(asset);
+        assertEquals(DateGenerator.formatDate(1_500_000_000_000L), asset.lastModifiedHeader());
+        assertEquals(ConditionalRequests.encoded(asset.etag(), CompressedVariants.GZIP), asset.gzipEtag());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        StaticFilesCache cache = new StaticFilesCache(100);
+
+        cache.put(handler, "/a", new ExternalResource(write(folder, "a", 25).getPath()));
+        cache.put(handler, "/b", new ExternalResource(write(folder, "b", 25).getPath()));
+        cache.put(handler, "/c", new ExternalResource(write(folder, "c", 25).getPath()));
+        cache.get(handler, "/a");
+        cache.put(handler, "/d", new ExternalResource(write(folder, "d", 25).getPath()));
+        cache.put(handler, "/e", new ExternalResource(write(folder, "e", 25).getPath()));
+
+        assertNotNull(cache.get(handler, "/a"), "Recently used files should be kept");
+        assertNull(cache.get(handler, "/b"), "Least recently used files should be evicted");
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testDoesNotCacheLargeFiles(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        StaticFilesCache cache = new StaticFilesCache(100);
+
+        assertNull(cache.put(handler, "/large", new ExternalResource(write(folder, "large", 26).getPath())));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testChangedFileIsNotServed(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        File file = write(folder, "page.html", 10);
+        StaticFilesCache cache = new StaticFilesCache(100);
+
+        cache.put(handler, "/page.html", new ExternalResource(file.getPath()));
+        write(folder, "page.html", 12);
+
+        assertNull(cache.get(handler, "/page.html"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateMatchesWholeNames(@TempDir File folder) throws Exception {
+        ExternalResourceHandler handler = new ExternalResourceHandler(folder.getPath());
+        File app = write(folder, "app", 10);
+        File appJs = write(folder, "app.js", 10);
+        StaticFilesCache cache = new StaticFilesCache(100);
+
+        cache.put(handler, "/app", new ExternalResource(app.getPath()));
+        cache.put(handler, "/app.js", new ExternalResource(appJs.getPath()));
+        cache.invalidate(app.getAbsolutePath());
+
+        assertNull(cache.get(handler, "/app"));
+        assertNotNull(cache.get(handler, "/app.js"), "Files sharing a prefix with the changed file should be kept");
+
+        cache.invalidate(folder.getAbsolutePath());
+        assertNull(cache.get(handler, "/app.js"), "Files in a changed directory should be removed");
+    }
+
+    private static File write(File folder, String name, int length) throws Exception {
+        File file = new File(folder, name);
+        Files.write(file.toPath(), new byte[length]);
+        return file;
+    }
+
+}
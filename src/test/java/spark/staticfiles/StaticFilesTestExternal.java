@@ -19,7 +19,14 @@ package spark.staticfiles;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -30,8 +37,10 @@ import spark.Spark;
 import spark.examples.exception.NotFoundException;
 import spark.util.SparkTestUtil;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static spark.Spark.exception;
 import static spark.Spark.get;
 import static spark.Spark.staticFiles;
@@ -48,12 +57,23 @@ public class StaticFilesTestExternal {
 
     private static final String EXTERNAL_FILE_NAME_HTML = "externalFile.html";
 
+    private static final String EXTERNAL_FILE_NAME_BIN = "externalFile.bin";
+
     private static final String CONTENT_OF_EXTERNAL_FILE = "Content of external file";
 
+    private static final byte[] CONTENT_OF_EXTERNAL_BINARY_FILE = new byte[1024 * 1024];
+
+    private static final String EXTERNAL_FILE_NAME_JS = "externalFile.js";
+
+    private static final byte[] CONTENT_OF_EXTERNAL_PRECOMPRESSED_FILE = {31, -117, 8, 0, 0, 0, 0, 0};
+
     private static SparkTestUtil testUtil;
 
     private static File tmpExternalFile1;
     private static File tmpExternalFile2;
+    private static File tmpExternalFile3;
+    private static File tmpExternalFile4;
+    private static File tmpExternalFile5;
     private static File folderOutsideStaticFiles;
 
     @AfterAll
@@ -63,6 +83,9 @@ public class StaticFilesTestExternal {
             LOGGER.debug("tearDown(). Deleting tmp files");
             tmpExternalFile1.delete();
             tmpExternalFile2.delete();
+            tmpExternalFile3.delete();
+            tmpExternalFile4.delete();
+            tmpExternalFile5.delete();
             folderOutsideStaticFiles.delete();
         }
     }
@@ -81,6 +104,15 @@ public class StaticFilesTestExternal {
         writer.flush();
         writer.close();
 
+        new Random(42).nextBytes(CONTENT_OF_EXTERNAL_BINARY_FILE);
+        tmpExternalFile3 = new File(directoryRoot, EXTERNAL_FILE_NAME_BIN);
+        Files.write(tmpExternalFile3.toPath(), CONTENT_OF_EXTERNAL_BINARY_FILE);
+
+        tmpExternalFile4 = new File(directoryRoot, EXTERNAL_FILE_NAME_JS);
+        Files.write(tmpExternalFile4.toPath(), "var a = 1;".getBytes());
+        tmpExternalFile5 = new File(directoryRoot, EXTERNAL_FILE_NAME_JS + ".gz");
+        Files.write(tmpExternalFile5.toPath(), CONTENT_OF_EXTERNAL_PRECOMPRESSED_FILE);
+
         File root = new File(directoryRoot);
 
         folderOutsideStaticFiles = new File(root.getAbsolutePath() + "/../dumpsterstuff");
@@ -91,6 +123,8 @@ public class StaticFilesTestExternal {
         tmpExternalFile2.createNewFile();
 
         staticFiles.externalLocation(directoryRoot);
+        staticFiles.fingerprint();
+        staticFiles.cacheSize(64 * 1024);
 
         get("/hello", (q, a) -> FO_SHIZZY);
 
@@ -116,6 +150,210 @@ public class StaticFilesTestExternal {
         testGet();
     }
 
+    @Test
+    public void testExternalStaticFile_whenNotGzipEncoded() throws Exception {
+        // Sent from the file channel first, then from the memory mapping
+        for (int i = 0; i < 3; i++) {
+            HttpURLConnection connection = openBinaryFile();
+
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(CONTENT_OF_EXTERNAL_BINARY_FILE.length, connection.getContentLengthLong());
+            try (InputStream inputStream = connection.getInputStream()) {
+                assertArrayEquals(CONTENT_OF_EXTERNAL_BINARY_FILE, inputStream.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testExternalStaticFile_range() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=100-199");
+
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes 100-199/" + CONTENT_OF_EXTERNAL_BINARY_FILE.length, connection.getHeaderField("Content-Range"));
+        assertEquals(100, connection.getContentLengthLong());
+        try (InputStream inputStream = connection.getInputStream()) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT_OF_EXTERNAL_BINARY_FILE, 100, 200), inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testExternalStaticFile_multipleRanges() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=0-9,-10");
+
+        assertEquals(206, connection.getResponseCode());
+        String contentType = connection.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        byte[] body;
+        try (InputStream inputStream = connection.getInputStream()) {
+            body = inputStream.readAllBytes();
+        }
+        assertEquals(connection.getContentLengthLong(), body.length);
+
+        int length = CONTENT_OF_EXTERNAL_BINARY_FILE.length;
+        String text = new String(body, "ISO-8859-1");
+        assertTrue(text.startsWith("\r\n--" + boundary + "\r\n"));
+        assertTrue(text.contains("Content-Range: bytes 0-9/" + length + "\r\n\r\n"
+                                         + new String(CONTENT_OF_EXTERNAL_BINARY_FILE, 0, 10, "ISO-8859-1")));
+        assertTrue(text.contains("Content-Range: bytes " + (length - 10) + "-" + (length - 1) + "/" + length + "\r\n\r\n"
+                                         + new String(CONTENT_OF_EXTERNAL_BINARY_FILE, length - 10, 10, "ISO-8859-1")));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    public void testExternalStaticFile_whenRangeNotSatisfiable() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=" + CONTENT_OF_EXTERNAL_BINARY_FILE.length + "-");
+
+        assertEquals(416, connection.getResponseCode());
+        assertEquals("bytes */" + CONTENT_OF_EXTERNAL_BINARY_FILE.length, connection.getHeaderField("Content-Range"));
+    }
+
+    @Test
+    public void testExternalStaticFile_whenIfRangeDoesNotMatch() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=0-9");
+        connection.setRequestProperty("If-Range", "Thu, 01 Jan 1970 00:00:01 GMT");
+
+        assertEquals(200, connection.getResponseCode(), "The whole file should be sent if it has changed");
+        assertEquals("bytes", connection.getHeaderField("Accept-Ranges"));
+        assertNull(connection.getHeaderField("Content-Range"));
+        assertEquals(CONTENT_OF_EXTERNAL_BINARY_FILE.length, connection.getContentLengthLong());
+    }
+
+    @Test
+    public void testExternalStaticFile_ifRangeWithEntityTag() throws Exception {
+        String etag = openBinaryFile().getHeaderField("ETag");
+
+        HttpURLConnection connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=0-9");
+        connection.setRequestProperty("If-Range", etag);
+        assertEquals(206, connection.getResponseCode());
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("Range", "bytes=0-9");
+        connection.setRequestProperty("If-Range", "\"outdated\"");
+        assertEquals(200, connection.getResponseCode());
+    }
+
+    @Test
+    public void testExternalStaticFile_notModified() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        assertEquals(200, connection.getResponseCode());
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        assertTrue(etag.matches("\"[0-9a-f]{32}\""), etag);
+        assertEquals(tmpExternalFile3.lastModified() / 1000, connection.getLastModified() / 1000);
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, connection.getResponseCode());
+        assertEquals(etag, connection.getHeaderField("ETag"));
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("If-Modified-Since", lastModified);
+        assertEquals(304, connection.getResponseCode());
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("If-None-Match", "\"outdated\"");
+        connection.setRequestProperty("If-Modified-Since", lastModified);
+        assertEquals(200, connection.getResponseCode(), "If-Modified-Since should be ignored when If-None-Match is sent");
+    }
+
+    @Test
+    public void testExternalStaticFile_entityTagOfGzipEncodedFile() throws Exception {
+        HttpURLConnection connection = openBinaryFile();
+        String etag = connection.getHeaderField("ETag");
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        String gzipEtag = connection.getHeaderField("ETag");
+        assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzipEtag);
+
+        connection = openBinaryFile();
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        connection.setRequestProperty("If-None-Match", gzipEtag);
+        assertEquals(304, connection.getResponseCode());
+    }
+
+    @Test
+    public void testExternalStaticFile_precompressed() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:4567/" + EXTERNAL_FILE_NAME_JS)
+                .openConnection();
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", connection.getHeaderField("Vary"));
+        assertEquals("application/javascript", connection.getContentType());
+        try (InputStream inputStream = connection.getInputStream()) {
+            assertArrayEquals(CONTENT_OF_EXTERNAL_PRECOMPRESSED_FILE, inputStream.readAllBytes(),
+                              "The precompressed file should be sent");
+        }
+
+        connection = (HttpURLConnection) new URL("http://localhost:4567/" + EXTERNAL_FILE_NAME_JS).openConnection();
+        connection.setRequestProperty("Accept-Encoding", "br");
+
+        assertNull(connection.getHeaderField("Content-Encoding"));
+        try (InputStream inputStream = connection.getInputStream()) {
+            assertEquals("var a = 1;", new String(inputStream.readAllBytes()));
+        }
+    }
+
+    @Test
+    public void testExternalStaticFile_fingerprinted() throws Exception {
+        String fingerprintedPath = staticFiles.fingerprintedPath("/" + EXTERNAL_FILE_NAME_HTML);
+        assertTrue(fingerprintedPath.matches("/externalFile\\.[0-9a-f]{8}\\.html"), fingerprintedPath);
+        assertEquals("/missing.html", staticFiles.fingerprintedPath("/missing.html"));
+
+        SparkTestUtil.UrlResponse response = doGet(fingerprintedPath);
+        assertEquals(200, response.status);
+        assertEquals(CONTENT_OF_EXTERNAL_FILE, response.body);
+        assertEquals("public, max-age=31536000, immutable", response.headers.get("Cache-Control"));
+
+        response = doGet("/" + EXTERNAL_FILE_NAME_HTML);
+        assertNull(response.headers.get("Cache-Control"), "The file should be served as before under its own path");
+
+        response = doGet("/externalFile.00000000.html");
+        assertEquals(404, response.status);
+    }
+
+    @Test
+    public void testExternalStaticFile_whenCachedFileChanges() throws Exception {
+        File file = new File(tmpExternalFile1.getParentFile(), "watched.txt");
+        try {
+            Files.write(file.toPath(), "old".getBytes());
+            awaitBody("/watched.txt", "old");
+            long lastModified = file.lastModified();
+
+            // Same length and modification time, only the watcher can tell
+            Files.write(file.toPath(), "new".getBytes());
+            assertTrue(file.setLastModified(lastModified));
+
+            awaitBody("/watched.txt", "new");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void awaitBody(String path, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        SparkTestUtil.UrlResponse response = doGet(path);
+        while (!expected.equals(response.body) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            response = doGet(path);
+        }
+        assertEquals(expected, response.body);
+    }
+
+    private static HttpURLConnection openBinaryFile() throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:4567/" + EXTERNAL_FILE_NAME_BIN).openConnection();
+    }
+
     @Test
     public void testDirectoryTraversalProtectionExternal() throws Exception {
         String path = "/" + URLEncoder.encode("..\\..\\spark\\", "UTF-8") + "Spark.class";
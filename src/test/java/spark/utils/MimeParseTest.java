@@ -1,6 +1,9 @@
 package spark.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,4 +39,31 @@ public class MimeParseTest {
 
     }
 
+    @Test
+    public void testMediaRange_isParsedOnce() {
+        assertSame(MimeParse.mediaRange("application/json"), MimeParse.mediaRange("application/json"),
+                "the parsed media range should be reused for the same mime type");
+    }
+
+    @Test
+    public void testFitnessAndQuality() {
+        final String header = "text/html;q=0,application/json";
+
+        assertTrue(MimeParse.fitnessAndQuality(MimeParse.mediaRange("application/json"), header).isAcceptable());
+        assertFalse(MimeParse.fitnessAndQuality(MimeParse.mediaRange("text/html"), header).isAcceptable(),
+                "a media range with quality 0 should not be acceptable");
+        assertFalse(MimeParse.fitnessAndQuality(MimeParse.mediaRange("image/png"), header).isAcceptable());
+        assertSame(MimeParse.fitnessAndQuality(MimeParse.mediaRange("application/json"), header),
+                   MimeParse.fitnessAndQuality(MimeParse.mediaRange("application/json"), header),
+                   "the negotiation result should be cached per header");
+    }
+
+    @Test
+    public void testBestMatch_moreSpecificRangeWins() {
+        final String header = "application/*;q=0.5,application/json";
+
+        assertEquals("application/json", MimeParse.bestMatch(Arrays.asList("application/json", "application/xml"), header));
+        assertEquals(MimeParse.NO_MIME_TYPE, MimeParse.bestMatch(Collections.singletonList("text/plain"), header));
+    }
+
 }